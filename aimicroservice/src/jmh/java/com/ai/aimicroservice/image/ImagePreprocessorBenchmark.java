@@ -0,0 +1,50 @@
+package com.ai.aimicroservice.image;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of preprocessing the test fixtures before Rekognition
+ * The bytes saved are printed once per fixture at setup, the time per image is measured by JMH
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImagePreprocessorBenchmark {
+
+    @Param({"tomatoplant.jpg", "weed.png", "weed2.jpg"})
+    public String fixture;
+
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor(true, 1600, 0.85f, 512 * 1024);
+    private byte[] image;
+
+    @Setup
+    public void setUp() throws Exception {
+        image = Files.readAllBytes(Path.of("src/test/resources", fixture));
+        int payloadSize = preprocessor.prepare(ByteBuffer.wrap(image)).payload().remaining();
+        System.out.printf("%n%s: %d -> %d bytes (%.1f%% saved)%n",
+                fixture, image.length, payloadSize, 100.0 * (image.length - payloadSize) / image.length);
+    }
+
+    @Benchmark
+    public ImagePreprocessor.PreparedImage prepare() {
+        return preprocessor.prepare(ByteBuffer.wrap(image));
+    }
+}
@@ -0,0 +1,112 @@
+package com.ai.aimicroservice.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of concurrent analyses against a local stub model, with and without micro-batching
+ * The stub charges a fixed latency per request plus a small cost per item, and only serves a few requests at a time,
+ * like a rate-limited hosted model: batching trades a window of latency for fewer requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(64)
+@Fork(1)
+public class BatchingLLMBenchmark {
+
+    private static final String[] TEXTS = {
+            "Heirloom tomato seeds, harvested last summer, 50 seeds per pack.",
+            "Selling my old gaming laptop, barely used.",
+            "Organic basil and parsley seeds, shipped in paper envelopes.",
+            "Sunflower seeds for planting, giant variety, germination rate above 90%."
+    };
+
+    @Param({"1", "8", "16"})
+    public int maxBatchSize;
+
+    @Param({"20"})
+    public int windowMillis;
+
+    private LLM llm;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StubModel model = new StubModel(Duration.ofMillis(200), Duration.ofMillis(5), 4);
+        llm = maxBatchSize == 1 ? model : new BatchingLLM(model, new ObjectMapper(), maxBatchSize, Duration.ofMillis(windowMillis));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (llm instanceof BatchingLLM batching) {
+            batching.close();
+        }
+    }
+
+    @Benchmark
+    public String analyze() {
+        return llm.generateTextAnalysis(TEXTS[ThreadLocalRandom.current().nextInt(TEXTS.length)]);
+    }
+
+    private static class StubModel implements BatchLLM {
+
+        private final Duration requestLatency;
+        private final Duration itemLatency;
+        private final Semaphore concurrency;
+
+        StubModel(Duration requestLatency, Duration itemLatency, int maxConcurrentRequests) {
+            this.requestLatency = requestLatency;
+            this.itemLatency = itemLatency;
+            this.concurrency = new Semaphore(maxConcurrentRequests, true);
+        }
+
+        @Override
+        public String generateTextAnalysis(String text) {
+            serve(1);
+            return "The text is about seeds.\nTRUE";
+        }
+
+        @Override
+        public String generateBatchTextAnalysis(List<String> texts) {
+            serve(texts.size());
+            StringBuilder json = new StringBuilder("[");
+            for (int i = 0; i < texts.size(); i++) {
+                if (i > 0) json.append(',');
+                json.append("{\"id\": ").append(i).append(", \"verdict\": true, \"reasoning\": \"The text is about seeds.\"}");
+            }
+            return json.append(']').toString();
+        }
+
+        private void serve(int items) {
+            concurrency.acquireUninterruptibly();
+            try {
+                Thread.sleep(requestLatency.plus(itemLatency.multipliedBy(items)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrency.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.ai.aimicroservice.service;
+
+import com.ai.aimicroservice.admission.ProviderGates;
+import com.ai.aimicroservice.image.LabelPolicyEngine;
+import com.ai.aimicroservice.metrics.PipelineMetrics;
+import com.ai.aimicroservice.verdict.ImageVerdict;
+import com.ai.aimicroservice.verdict.TextVerdict;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import software.amazon.awssdk.services.rekognition.model.Label;
+import software.amazon.awssdk.services.rekognition.model.Parent;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request parsing of the LLM response, formatting of the image labels for reports, and label filtering
+ * Run with -prof gc to get the allocation rate of each path (gc.alloc.rate.norm, bytes per operation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VerdictParsingBenchmark {
+
+    private static final String SHORT = "This looks like a legal seed sale.\nTRUE";
+
+    private static final String LONG = """
+            The description advertises heirloom tomato seeds, basil and a few pepper varieties for the spring season.
+            The seller explains how the seeds were harvested, dried and stored, and gives sowing advice for each variety.
+            There is no mention of any controlled plant, no slang commonly used to refer to cannabis, and the language
+            stays polite throughout the text. The prices and shipping conditions are described in a neutral tone.
+            The context of the platform is respected: the post is about seeds and plants that are legal to trade.
+            Nothing in the text suggests that the seeds are a cover for another product, and the quantities are small.
+            TRUE""";
+
+    private static final String CRLF = "The text contains a slur aimed at other sellers.\r\nIt also insults the buyers.\r\nFALSE";
+
+    // no verdict line, trailing blank lines and a verdict in lower case
+    private static final String MALFORMED = "I cannot decide, the description is too short\n\n  \nfalse  \n\n";
+
+    private static final List<Label> LABELS = List.of(
+            label("Plant", 99.1F),
+            label("Potted Plant", 97.4F, "Plant"),
+            label("Leaf", 96.2F, "Plant"),
+            label("Tomato", 93.8F, "Vegetable", "Food", "Produce"),
+            label("Vegetable", 93.8F, "Food", "Produce"),
+            label("Food", 93.8F),
+            label("Produce", 93.8F, "Food"),
+            label("Herbal", 81.5F, "Plant"),
+            label("Flower", 78.0F, "Plant"),
+            label("Garden", 76.3F, "Outdoors"));
+
+    @Param({"short", "long", "crlf", "malformed"})
+    public String corpus;
+
+    private String llmResponse;
+    private ImageVerdict imageVerdict;
+    private TextAnalysisService textAnalysisService;
+    private ImageAnalysisService imageAnalysisService;
+
+    @Setup
+    public void setUp() {
+        llmResponse = switch (corpus) {
+            case "short" -> SHORT;
+            case "long" -> LONG;
+            case "crlf" -> CRLF;
+            default -> MALFORMED;
+        };
+        textAnalysisService = new TextAnalysisService(null, null, PipelineMetrics.noop(), false, null);
+        imageAnalysisService = new ImageAnalysisService(null, null, null, null, null,
+                new LabelPolicyEngine(new DefaultResourceLoader(), "classpath:assets/label-policy.txt"), null, null, null,
+                new ProviderGates(new StandardEnvironment(), new SimpleMeterRegistry()), false);
+        imageVerdict = new ImageVerdict(imageAnalysisService.filterLabels(LABELS), LABELS, "");
+    }
+
+    @Benchmark
+    public TextVerdict parseTextVerdict() {
+        return TextVerdict.parse(llmResponse);
+    }
+
+    @Benchmark
+    public String extractReasoning() {
+        return textAnalysisService.extractReasoning(llmResponse);
+    }
+
+    @Benchmark
+    public boolean extractVerdictText() {
+        return textAnalysisService.extractVerdictText(llmResponse);
+    }
+
+    @Benchmark
+    public String describeLabels() {
+        return imageVerdict.describeLabels();
+    }
+
+    @Benchmark
+    public boolean filterLabels() {
+        return imageAnalysisService.filterLabels(LABELS);
+    }
+
+    private static Label label(String name, float confidence, String... parents) {
+        return Label.builder()
+                .name(name)
+                .confidence(confidence)
+                .parents(Arrays.stream(parents).map(p -> Parent.builder().name(p).build()).toList())
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.ai.aimicroservice.text;
+
+import com.ai.aimicroservice.verdict.TextVerdict;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup latency of the near-duplicate index once filled with generated descriptions
+ * "signature" is the MinHash cost alone, "findNearDuplicate" looks up an edited copy of an indexed description
+ * and "findMiss" a description that is not in the index. The 1M case fills about 350 MB of heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class NearDuplicateIndexBenchmark {
+
+    private static final String SYLLABLES = "ba be bi bo ca ce co da de di do fa fe ga go la le li lo ma me mi mo "
+            + "na ne no pa pe pi po ra re ri ro sa se si so ta te ti to va ve vi";
+    private static final int VOCABULARY = 5000;
+    private static final int QUERIES = 1024;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private NearDuplicateIndex index;
+    private String[] words;
+    private String[] nearDuplicates;
+    private String[] misses;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new NearDuplicateIndex(size, Duration.ofDays(1), 0.9, System::nanoTime);
+        SplittableRandom random = new SplittableRandom(42);
+        // a vocabulary of made-up words, so that unrelated descriptions share about as many shingles as real ones
+        String[] syllables = SYLLABLES.split(" ");
+        words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int j = 1 + random.nextInt(4); j > 0; j--) {
+                word.append(syllables[random.nextInt(syllables.length)]);
+            }
+            words[i] = word.toString();
+        }
+        nearDuplicates = new String[QUERIES];
+        TextVerdict verdict = TextVerdict.of(true, "Legal seeds.");
+        for (int i = 0; i < size; i++) {
+            String description = description(random);
+            index.put(index.signature(description), verdict);
+            if (i % (size / QUERIES) == 0 && i / (size / QUERIES) < QUERIES) {
+                // the usual repost: a new price and an extra emoji
+                nearDuplicates[i / (size / QUERIES)] = description + " now 12€ 🌱";
+            }
+        }
+        misses = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            misses[i] = description(random);
+        }
+    }
+
+    private String description(SplittableRandom random) {
+        StringBuilder description = new StringBuilder();
+        int length = 20 + random.nextInt(30);
+        for (int i = 0; i < length; i++) {
+            description.append(words[random.nextInt(words.length)]).append(' ');
+        }
+        return description.append(random.nextInt(100)).append(" seeds for ").append(random.nextInt(50)).append('€').toString();
+    }
+
+    @Benchmark
+    public NearDuplicateIndex.Signature signature() {
+        return index.signature(misses[next++ & (QUERIES - 1)]);
+    }
+
+    @Benchmark
+    public Optional<NearDuplicateIndex.Match> findNearDuplicate() {
+        return index.find(index.signature(nearDuplicates[next++ & (QUERIES - 1)]));
+    }
+
+    @Benchmark
+    public Optional<NearDuplicateIndex.Match> findMiss() {
+        return index.find(index.signature(misses[next++ & (QUERIES - 1)]));
+    }
+}
@@ -0,0 +1,171 @@
+package com.ai.aimicroservice.admission;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit that follows the capacity of a provider
+ * The limit grows by one per round trip while latency stays close to the best observed latency, shrinks
+ * proportionally when latency rises (the provider is queueing our calls), and is halved when the provider
+ * throttles us (AIMD). Calls over the limit wait in FIFO order instead of failing.
+ */
+public class AdaptiveLimit {
+
+    // latency may grow to this multiple of the best latency before the limit shrinks
+    private static final double TOLERANCE = 2.0;
+    // weight of a single slow sample in the limit
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.5;
+    // the best latency is forgotten after this many samples, so a provider that got slower for good is followed
+    private static final int MIN_RTT_WINDOW = 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final LongSupplier clock;
+    private final Deque<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+
+    private double limit;
+    private int inFlight;
+    private long minRtt = Long.MAX_VALUE;
+    private int samples;
+    private long lastBackoff = Long.MIN_VALUE;
+
+    /**
+     * @param initialLimit the concurrency allowed before any latency is observed
+     * @param minLimit the lowest limit, the provider always gets at least this many calls
+     * @param maxLimit the highest limit
+     * @param clock the time source, in nanoseconds
+     */
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, LongSupplier clock) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("limits must satisfy 1 <= min <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.clock = clock;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+    }
+
+    /**
+     * Takes a slot, or queues for one
+     * @param maxWaitNanos how long to wait for a slot
+     * @return a future completing with the permit, or failing with a TimeoutException once the wait is over
+     */
+    public CompletableFuture<Permit> acquire(long maxWaitNanos) {
+        CompletableFuture<Permit> waiter;
+        synchronized (this) {
+            if (waiters.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                return CompletableFuture.completedFuture(new Permit());
+            }
+            waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+        }
+        waiter.orTimeout(maxWaitNanos, TimeUnit.NANOSECONDS)
+                .whenComplete((permit, e) -> {
+                    if (e != null) {
+                        synchronized (this) {
+                            waiters.remove(waiter);
+                        }
+                    }
+                });
+        return waiter;
+    }
+
+    private synchronized void release() {
+        inFlight--;
+        grantWaiters();
+    }
+
+    private void grantWaiters() {
+        while (inFlight < (int) limit && !waiters.isEmpty()) {
+            CompletableFuture<Permit> waiter = waiters.poll();
+            inFlight++;
+            if (!waiter.complete(new Permit())) {
+                // timed out or cancelled meanwhile
+                inFlight--;
+            }
+        }
+    }
+
+    private synchronized void onSample(long rtt) {
+        if (++samples > MIN_RTT_WINDOW) {
+            samples = 0;
+            minRtt = rtt;
+        }
+        minRtt = Math.min(minRtt, rtt);
+
+        if (rtt <= minRtt * TOLERANCE) {
+            // additive increase, about one slot per round trip of the whole limit
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        } else {
+            double gradient = Math.max(0.5, minRtt * TOLERANCE / rtt);
+            limit = Math.max(minLimit, limit * (1 - SMOOTHING + SMOOTHING * gradient));
+        }
+        grantWaiters();
+    }
+
+    private synchronized void onThrottled() {
+        long now = clock.getAsLong();
+        // calls throttled together are one signal, back off at most once per round trip
+        long window = minRtt == Long.MAX_VALUE ? TimeUnit.MILLISECONDS.toNanos(100) : minRtt;
+        if (lastBackoff == Long.MIN_VALUE || now - lastBackoff >= window) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            lastBackoff = now;
+        }
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int queued() {
+        return waiters.size();
+    }
+
+    /**
+     * A slot of the limit, released exactly once by one of its outcome methods
+     */
+    public class Permit {
+
+        private final long start = clock.getAsLong();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * The call succeeded, its latency drives the limit
+         */
+        public void success() {
+            if (released.compareAndSet(false, true)) {
+                onSample(clock.getAsLong() - start);
+                release();
+            }
+        }
+
+        /**
+         * The provider rejected the call for exceeding its quota
+         */
+        public void throttled() {
+            if (released.compareAndSet(false, true)) {
+                onThrottled();
+                release();
+            }
+        }
+
+        /**
+         * The call failed or was cancelled for another reason, it says nothing about the provider capacity
+         */
+        public void ignore() {
+            if (released.compareAndSet(false, true)) {
+                release();
+            }
+        }
+    }
+}
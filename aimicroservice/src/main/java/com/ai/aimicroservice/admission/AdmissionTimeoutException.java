@@ -0,0 +1,13 @@
+package com.ai.aimicroservice.admission;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a call to a provider could not be admitted within its maximum wait
+ */
+public class AdmissionTimeoutException extends RuntimeException {
+
+    public AdmissionTimeoutException(String provider, Duration maxWait) {
+        super("Call to " + provider + " not admitted within " + maxWait);
+    }
+}
@@ -0,0 +1,222 @@
+package com.ai.aimicroservice.admission;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of one provider (Mistral, Rekognition)
+ * A call first reserves its share of the provider quotas (requests, and tokens when the provider counts them),
+ * then a slot of the adaptive concurrency limit. Both may make the call wait, up to a bounded total wait, after
+ * which it fails with an {@link AdmissionTimeoutException}. Throttling errors of the provider shrink the limit.
+ */
+public class ProviderGate {
+
+    private static final Logger log = LoggerFactory.getLogger(ProviderGate.class);
+
+    private final String name;
+    private final TokenBucket requests;
+    private final TokenBucket tokens;
+    private final AdaptiveLimit limit;
+    private final Duration maxWait;
+    private final Predicate<Throwable> throttling;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    /**
+     * @param name the provider name
+     * @param requests the request quota
+     * @param tokens the token quota, null if the provider does not count tokens
+     * @param limit the concurrency limit
+     * @param maxWait how long a call may wait for the quotas and the limit
+     * @param throttling recognizes the errors the provider returns when it throttles us
+     */
+    public ProviderGate(String name, TokenBucket requests, TokenBucket tokens, AdaptiveLimit limit, Duration maxWait,
+                        Predicate<Throwable> throttling) {
+        this.name = name;
+        this.requests = requests;
+        this.tokens = tokens;
+        this.limit = limit;
+        this.maxWait = maxWait;
+        this.throttling = throttling;
+    }
+
+    /**
+     * Runs a blocking call once admitted
+     * @param tokenCount the estimated tokens of the call, ignored if the provider does not count tokens
+     * @param call the call to the provider
+     * @return the result of the call
+     */
+    public <T> T call(long tokenCount, Supplier<T> call) {
+        AdaptiveLimit.Permit permit = await(admit(tokenCount));
+        try {
+            T result = call.get();
+            permit.success();
+            return result;
+        } catch (RuntimeException e) {
+            failed(permit, e);
+            throw e;
+        }
+    }
+
+    /**
+     * @see #call(long, Supplier)
+     */
+    public <T> T call(Supplier<T> call) {
+        return call(0, call);
+    }
+
+    /**
+     * Subscribes to a reactive call once admitted, without blocking while waiting
+     * @param tokenCount the estimated tokens of the call, ignored if the provider does not count tokens
+     * @param call the call to the provider
+     * @return a Mono failing with an {@link AdmissionTimeoutException} if the call is not admitted in time
+     */
+    public <T> Mono<T> wrap(long tokenCount, Mono<T> call) {
+        return permit(tokenCount).flatMap(permit -> call
+                .doOnSuccess(result -> permit.success())
+                .doOnError(e -> failed(permit, e))
+                .doOnCancel(permit::ignore));
+    }
+
+    /**
+     * @see #wrap(long, Mono)
+     */
+    public <T> Mono<T> wrap(Mono<T> call) {
+        return wrap(0, call);
+    }
+
+    /**
+     * Streaming variant of {@link #wrap(long, Mono)}, the slot is held until the stream completes or is cancelled
+     */
+    public <T> Flux<T> wrapMany(long tokenCount, Flux<T> call) {
+        return permit(tokenCount).flatMapMany(permit -> call
+                .doOnComplete(permit::success)
+                .doOnError(e -> failed(permit, e))
+                .doOnCancel(permit::ignore));
+    }
+
+    /**
+     * Corrects the token quota once the tokens actually used by a call are known
+     * @param estimated the tokens the call was admitted with
+     * @param actual the tokens reported by the provider
+     */
+    public void settleTokens(long estimated, long actual) {
+        if (tokens != null && actual != estimated) {
+            tokens.adjust(actual - estimated);
+        }
+    }
+
+    CompletableFuture<AdaptiveLimit.Permit> admit(long tokenCount) {
+        long maxWaitNanos = maxWait.toNanos();
+        long wait = requests.reserve(1, maxWaitNanos);
+        if (wait < 0) {
+            return CompletableFuture.failedFuture(timeout());
+        }
+        if (tokens != null && tokenCount > 0) {
+            long tokenWait = tokens.reserve(tokenCount, maxWaitNanos);
+            if (tokenWait < 0) {
+                requests.adjust(-1);
+                return CompletableFuture.failedFuture(timeout());
+            }
+            wait = Math.max(wait, tokenWait);
+        }
+
+        long remaining = maxWaitNanos - wait;
+        CompletableFuture<Void> quota = wait == 0
+                ? CompletableFuture.completedFuture(null)
+                : new CompletableFuture<Void>().completeOnTimeout(null, wait, TimeUnit.NANOSECONDS);
+        CompletableFuture<AdaptiveLimit.Permit> admission = new CompletableFuture<>();
+        quota.thenCompose(v -> limit.acquire(remaining))
+                .whenComplete((permit, e) -> {
+                    if (e != null) {
+                        admission.completeExceptionally(unwrap(e) instanceof TimeoutException ? timeout() : unwrap(e));
+                    } else if (admission.complete(permit)) {
+                        admitted.increment();
+                    } else {
+                        // the caller gave up meanwhile
+                        permit.ignore();
+                    }
+                });
+        return admission;
+    }
+
+    private Mono<AdaptiveLimit.Permit> permit(long tokenCount) {
+        return Mono.defer(() -> {
+            CompletableFuture<AdaptiveLimit.Permit> admission = admit(tokenCount);
+            return Mono.fromFuture(admission, true)
+                    .doOnCancel(() -> abandon(admission));
+        });
+    }
+
+    private AdaptiveLimit.Permit await(CompletableFuture<AdaptiveLimit.Permit> admission) {
+        try {
+            return admission.get();
+        } catch (InterruptedException e) {
+            abandon(admission);
+            Thread.currentThread().interrupt();
+            throw new AdmissionTimeoutException(name, maxWait);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Gives the slot back if it was granted while the caller was leaving
+     */
+    private void abandon(CompletableFuture<AdaptiveLimit.Permit> admission) {
+        if (!admission.cancel(false)) {
+            admission.thenAccept(AdaptiveLimit.Permit::ignore);
+        }
+    }
+
+    private void failed(AdaptiveLimit.Permit permit, Throwable e) {
+        if (throttling.test(unwrap(e))) {
+            throttled.increment();
+            permit.throttled();
+            log.warn("{} throttled the call, concurrency limit now {}", name, limit.limit());
+        } else {
+            permit.ignore();
+        }
+    }
+
+    private AdmissionTimeoutException timeout() {
+        timedOut.increment();
+        return new AdmissionTimeoutException(name, maxWait);
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Stats stats() {
+        return new Stats(name, limit.limit(), limit.inFlight(), limit.queued(), requests.available(),
+                tokens == null ? null : tokens.available(), admitted.sum(), timedOut.sum(), throttled.sum());
+    }
+
+    public record Stats(String name, int limit, int inFlight, int queued, double requestsAvailable, Double tokensAvailable,
+                        long admitted, long timedOut, long throttled) {
+    }
+}
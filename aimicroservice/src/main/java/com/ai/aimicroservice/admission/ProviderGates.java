@@ -0,0 +1,95 @@
+package com.ai.aimicroservice.admission;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Creates the admission gates of the AI providers
+ * Each provider gets its own quotas and concurrency limit, read from ai.admission.&lt;name&gt;.requests-per-second,
+ * burst, tokens-per-minute (0 when the provider does not count tokens), initial-limit, min-limit, max-limit and max-wait.
+ */
+@Component
+public class ProviderGates {
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ProviderGate> gates = new ConcurrentHashMap<>();
+
+    public ProviderGates(Environment environment, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Creates the gate of a provider, or returns it if it already exists
+     * @param name the provider name, used to look up its ai.admission.&lt;name&gt;.* settings
+     * @param throttling recognizes the errors the provider returns when it throttles us
+     * @return the gate of the provider
+     */
+    public ProviderGate create(String name, Predicate<Throwable> throttling) {
+        return gates.computeIfAbsent(name, n -> register(build(n, throttling)));
+    }
+
+    private ProviderGate build(String name, Predicate<Throwable> throttling) {
+        double requestsPerSecond = setting(name, "requests-per-second", Double.class, 5d);
+        long burst = setting(name, "burst", Long.class, (long) Math.ceil(requestsPerSecond));
+        long tokensPerMinute = setting(name, "tokens-per-minute", Long.class, 0L);
+        int maxLimit = setting(name, "max-limit", Integer.class, 64);
+        int minLimit = setting(name, "min-limit", Integer.class, 1);
+        int initialLimit = setting(name, "initial-limit", Integer.class, 8);
+        Duration maxWait = setting(name, "max-wait", Duration.class, Duration.ofSeconds(5));
+
+        TokenBucket requests = new TokenBucket(burst, requestsPerSecond, System::nanoTime);
+        // a minute of tokens can be spent at once, like the provider counts them
+        TokenBucket tokens = tokensPerMinute > 0 ? new TokenBucket(tokensPerMinute, tokensPerMinute / 60d, System::nanoTime) : null;
+        AdaptiveLimit limit = new AdaptiveLimit(initialLimit, minLimit, maxLimit, System::nanoTime);
+        return new ProviderGate(name, requests, tokens, limit, maxWait, throttling);
+    }
+
+    private ProviderGate register(ProviderGate gate) {
+        Gauge.builder("provider.concurrency.limit", gate, g -> g.stats().limit())
+                .description("Adaptive concurrency limit of an AI provider")
+                .tag("provider", gate.name())
+                .register(meterRegistry);
+        Gauge.builder("provider.in.flight", gate, g -> g.stats().inFlight())
+                .description("Calls in flight to an AI provider")
+                .tag("provider", gate.name())
+                .register(meterRegistry);
+        Gauge.builder("provider.queued", gate, g -> g.stats().queued())
+                .description("Calls waiting for a slot of the concurrency limit")
+                .tag("provider", gate.name())
+                .register(meterRegistry);
+        FunctionCounter.builder("provider.admission.timeouts", gate, g -> g.stats().timedOut())
+                .description("Calls not admitted within their maximum wait")
+                .tag("provider", gate.name())
+                .register(meterRegistry);
+        FunctionCounter.builder("provider.throttled", gate, g -> g.stats().throttled())
+                .description("Calls throttled by an AI provider")
+                .tag("provider", gate.name())
+                .register(meterRegistry);
+        return gate;
+    }
+
+    private <T> T setting(String name, String key, Class<T> type, T defaultValue) {
+        return environment.getProperty("ai.admission." + name + "." + key, type, defaultValue);
+    }
+
+    /**
+     * @return the quotas, limit and counters of each provider
+     */
+    public List<ProviderGate.Stats> stats() {
+        List<ProviderGate.Stats> stats = new ArrayList<>();
+        gates.values().forEach(gate -> stats.add(gate.stats()));
+        return stats;
+    }
+}
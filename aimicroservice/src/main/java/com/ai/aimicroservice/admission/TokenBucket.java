@@ -0,0 +1,74 @@
+package com.ai.aimicroservice.admission;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket modelling a provider quota (requests per second, tokens per minute...)
+ * Reservations may put the bucket in debt: the caller is told how long to wait before using its permits, and the
+ * following callers wait behind it, so a steady stream of calls is spread at the quota rate instead of bursting.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private final LongSupplier clock;
+
+    private double available;
+    private long lastRefill;
+
+    /**
+     * @param capacity the maximum burst, in permits
+     * @param permitsPerSecond the refill rate
+     * @param clock the time source, in nanoseconds
+     */
+    public TokenBucket(long capacity, double permitsPerSecond, LongSupplier clock) {
+        if (capacity < 1 || permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("capacity and rate must be positive");
+        }
+        this.capacity = capacity;
+        this.refillPerNano = permitsPerSecond / 1_000_000_000d;
+        this.clock = clock;
+        this.available = capacity;
+        this.lastRefill = clock.getAsLong();
+    }
+
+    /**
+     * Reserves permits if they are available within the given wait
+     * @param permits the number of permits
+     * @param maxWaitNanos the longest acceptable wait
+     * @return how long to wait before using the permits, in nanoseconds, or -1 if nothing was reserved
+     */
+    public synchronized long reserve(long permits, long maxWaitNanos) {
+        refill();
+        double missing = permits - available;
+        long wait = missing <= 0 ? 0 : (long) Math.ceil(missing / refillPerNano);
+        if (wait > maxWaitNanos) {
+            return -1;
+        }
+        available -= permits;
+        return wait;
+    }
+
+    /**
+     * Corrects a reservation once the real cost is known, e.g. the tokens actually used by a model
+     * @param permits the permits to take back (positive) or give back (negative)
+     */
+    public synchronized void adjust(long permits) {
+        refill();
+        available = Math.min(capacity, available - permits);
+    }
+
+    /**
+     * @return the permits available right now, negative while the bucket is in debt
+     */
+    public synchronized double available() {
+        refill();
+        return available;
+    }
+
+    private void refill() {
+        long now = clock.getAsLong();
+        available = Math.min(capacity, available + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+    }
+}
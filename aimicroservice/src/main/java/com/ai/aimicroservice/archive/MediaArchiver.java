@@ -0,0 +1,164 @@
+package com.ai.aimicroservice.archive;
+
+import com.ai.aimicroservice.client.MediaServiceClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves processed media objects to the archive in the background
+ * Objects are queued by the moderation pipeline and moved later in batches, with a capped number of moves
+ * in flight. An object queued again before it is moved is only moved once. Failed moves are retried with
+ * exponential backoff, up to ai.archive.max-attempts.
+ */
+@Component
+public class MediaArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(MediaArchiver.class);
+
+    private final MediaServiceClient mediaServiceClient;
+    private final int batchSize;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final int maxQueueSize;
+    private final Duration initialBackoff;
+
+    private final ConcurrentLinkedQueue<Move> queue = new ConcurrentLinkedQueue<>();
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder moved = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public MediaArchiver(MediaServiceClient mediaServiceClient,
+                         @Value("${ai.archive.batch-size:100}") int batchSize,
+                         @Value("${ai.archive.concurrency:4}") int concurrency,
+                         @Value("${ai.archive.max-attempts:5}") int maxAttempts,
+                         @Value("${ai.archive.max-queue-size:100000}") int maxQueueSize,
+                         @Value("${ai.archive.initial-backoff:1s}") Duration initialBackoff) {
+        this.mediaServiceClient = mediaServiceClient;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.maxAttempts = maxAttempts;
+        this.maxQueueSize = maxQueueSize;
+        this.initialBackoff = initialBackoff;
+    }
+
+    /**
+     * Queues a processed object to be moved to the archive
+     * @param objectId the name of the object to move
+     */
+    public void archive(String objectId) {
+        if (!queued.add(objectId)) {
+            return; // already waiting to be moved
+        }
+        if (queueSize.incrementAndGet() > maxQueueSize) {
+            queueSize.decrementAndGet();
+            queued.remove(objectId);
+            dropped.increment();
+            log.warn("Archive queue full, object {} stays in place", objectId);
+            return;
+        }
+        long now = System.nanoTime();
+        queue.add(new Move(objectId, now, 1, now));
+    }
+
+    /**
+     * Moves the next batch of queued objects, unless the previous batch is still in flight
+     */
+    @Scheduled(fixedDelayString = "${ai.archive.flush-interval-ms:500}")
+    public void flush() {
+        if (queue.isEmpty() || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+        List<Move> batch = takeBatch();
+        if (batch.isEmpty()) {
+            flushing.set(false);
+            return;
+        }
+
+        Flux.fromIterable(batch)
+                .flatMap(move -> mediaServiceClient.moveObjectToArchiveReactive(move.objectId())
+                        .doOnSubscribe(subscription -> inFlight.incrementAndGet())
+                        .doFinally(signal -> inFlight.decrementAndGet())
+                        .then(Mono.fromRunnable(() -> onMoved(move)))
+                        .onErrorResume(e -> Mono.fromRunnable(() -> onFailed(move, e))), concurrency)
+                .doFinally(signal -> flushing.set(false))
+                .subscribe();
+    }
+
+    /**
+     * Takes up to batchSize moves that are due, moves waiting for a retry are put back at the end of the queue
+     */
+    private List<Move> takeBatch() {
+        List<Move> batch = new ArrayList<>(batchSize);
+        List<Move> notDue = new ArrayList<>();
+        long now = System.nanoTime();
+        int scanned = queueSize.get();
+        Move move;
+        while (batch.size() < batchSize && scanned-- > 0 && (move = queue.poll()) != null) {
+            if (now - move.notBefore() < 0) {
+                notDue.add(move);
+            } else {
+                batch.add(move);
+            }
+        }
+        queue.addAll(notDue);
+        return batch;
+    }
+
+    private void onMoved(Move move) {
+        queued.remove(move.objectId());
+        queueSize.decrementAndGet();
+        moved.increment();
+    }
+
+    private void onFailed(Move move, Throwable e) {
+        if (move.attempt() >= maxAttempts) {
+            queued.remove(move.objectId());
+            queueSize.decrementAndGet();
+            dropped.increment();
+            log.error("Giving up moving object {} to the archive after {} attempts", move.objectId(), move.attempt(), e);
+            return;
+        }
+        long backoff = initialBackoff.toNanos() << (move.attempt() - 1);
+        retried.increment();
+        log.warn("Failed to move object {} to the archive, attempt {}", move.objectId(), move.attempt(), e);
+        queue.add(new Move(move.objectId(), move.queuedAt(), move.attempt() + 1, System.nanoTime() + backoff));
+    }
+
+    /**
+     * @return the queue depth, the age of the oldest queued object and the move counters
+     */
+    public Stats stats() {
+        long now = System.nanoTime();
+        long oldest = 0;
+        for (Move move : queue) {
+            oldest = Math.max(oldest, now - move.queuedAt());
+        }
+        return new Stats(queueSize.get(), inFlight.get(), Duration.ofNanos(oldest).toMillis(),
+                moved.sum(), retried.sum(), dropped.sum());
+    }
+
+    public record Stats(int queued, int inFlight, long lagMillis, long moved, long retried, long dropped) {
+    }
+
+    private record Move(String objectId, long queuedAt, int attempt, long notBefore) {
+    }
+}
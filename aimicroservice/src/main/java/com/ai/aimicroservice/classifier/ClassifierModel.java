@@ -0,0 +1,73 @@
+package com.ai.aimicroservice.classifier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * The trained text classifier, loaded at startup and reloaded whenever the model file changes
+ * A missing model is not an error: until one is trained, every description goes to the LLM.
+ */
+@Component
+public class ClassifierModel {
+
+    private static final Logger log = LoggerFactory.getLogger(ClassifierModel.class);
+
+    private final Resource model;
+    private volatile TextClassifier classifier;
+    private volatile long lastModified = -1;
+
+    public ClassifierModel(ResourceLoader resourceLoader,
+                           @Value("${ai.classifier.model:file:data/text-classifier.bin}") String location) {
+        this.model = resourceLoader.getResource(location);
+        reload();
+    }
+
+    /**
+     * @return the current classifier, empty if none was trained
+     */
+    public Optional<TextClassifier> current() {
+        return Optional.ofNullable(classifier);
+    }
+
+    /**
+     * Reloads the model if the file changed since the last load
+     */
+    @Scheduled(fixedDelayString = "${ai.classifier.reload-interval-ms:30000}")
+    public void reloadIfChanged() {
+        try {
+            if (model.isFile() && model.exists() && model.lastModified() != lastModified) {
+                reload();
+            }
+        } catch (IOException e) {
+            log.error("Failed to check classifier model {}", model, e);
+        }
+    }
+
+    /**
+     * Loads the model, keeping the current one if the file cannot be read
+     */
+    public synchronized void reload() {
+        if (!model.exists()) {
+            log.info("No classifier model at {}, all descriptions go to the LLM", model);
+            return;
+        }
+        try (InputStream input = new BufferedInputStream(model.getInputStream())) {
+            long modified = model.isFile() ? model.lastModified() : 0;
+            classifier = TextClassifier.read(input);
+            lastModified = modified;
+            log.info("Loaded text classifier ({} features) from {}", 1 << classifier.bits(), model);
+        } catch (IOException e) {
+            log.error("Failed to load classifier model {}", model, e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.ai.aimicroservice.classifier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Offline training and evaluation of the embedded classifier from the verdict history
+ * <pre>
+ * ./mvnw compile exec:java -Dexec.mainClass=com.ai.aimicroservice.classifier.ClassifierTool \
+ *     -Dexec.args="train data/verdict-history.jsonl data/text-classifier.bin"
+ * ./mvnw compile exec:java -Dexec.mainClass=com.ai.aimicroservice.classifier.ClassifierTool \
+ *     -Dexec.args="evaluate data/verdict-history.jsonl data/text-classifier.bin 0.98"
+ * </pre>
+ * One description in ten, picked by hash so the split is stable across runs, is held out of training and used for
+ * the evaluation. The model is written to a temporary file first, the service only ever reloads a complete model.
+ */
+public final class ClassifierTool {
+
+    private static final int HOLDOUT = 10;
+    private static final double DEFAULT_THRESHOLD = 0.98;
+
+    private ClassifierTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !(args[0].equals("train") || args[0].equals("evaluate"))) {
+            System.err.println("Usage: ClassifierTool train|evaluate <history.jsonl> <model.bin> [threshold]");
+            System.exit(2);
+        }
+        Path history = Path.of(args[1]);
+        Path modelPath = Path.of(args[2]);
+        double threshold = args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_THRESHOLD;
+
+        List<LabeledText> examples = VerdictHistory.read(history, new ObjectMapper());
+        List<LabeledText> training = new ArrayList<>();
+        List<LabeledText> holdout = new ArrayList<>();
+        for (LabeledText example : examples) {
+            (Math.floorMod(example.text().hashCode(), HOLDOUT) == 0 ? holdout : training).add(example);
+        }
+        System.out.printf("%d descriptions, %d for training, %d held out%n", examples.size(), training.size(), holdout.size());
+
+        TextClassifier classifier;
+        if (args[0].equals("train")) {
+            classifier = new ClassifierTrainer().train(training);
+            Path tmp = modelPath.resolveSibling(modelPath.getFileName() + ".tmp");
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                classifier.write(output);
+            }
+            Files.move(tmp, modelPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.printf("Model written to %s%n", modelPath);
+        } else {
+            try (InputStream input = Files.newInputStream(modelPath)) {
+                classifier = TextClassifier.read(input);
+            }
+        }
+
+        ClassifierTrainer.Evaluation evaluation = ClassifierTrainer.evaluate(classifier, holdout, threshold);
+        System.out.printf(Locale.ROOT, "accuracy %.4f, log loss %.4f%n", evaluation.accuracy(), evaluation.logLoss());
+        System.out.printf(Locale.ROOT, "threshold %.3f: decides %.1f%% alone, %.4f accurate, %d false allows%n",
+                threshold, evaluation.coverage() * 100, evaluation.decidedAccuracy(), evaluation.falseAllows());
+    }
+}
@@ -0,0 +1,112 @@
+package com.ai.aimicroservice.classifier;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Trains and evaluates a {@link TextClassifier} with stochastic gradient descent on the log loss
+ */
+public class ClassifierTrainer {
+
+    private final int bits;
+    private final int epochs;
+    private final double learningRate;
+    private final double l2;
+    private final long seed;
+
+    /**
+     * @param bits the number of hash bits of the features
+     * @param epochs the number of passes over the examples
+     * @param learningRate the initial step size, decayed as 1/sqrt(epoch)
+     * @param l2 the L2 regularization, applied to the weights of the features of each example
+     * @param seed the seed of the shuffling, training is deterministic
+     */
+    public ClassifierTrainer(int bits, int epochs, double learningRate, double l2, long seed) {
+        this.bits = bits;
+        this.epochs = epochs;
+        this.learningRate = learningRate;
+        this.l2 = l2;
+        this.seed = seed;
+    }
+
+    public ClassifierTrainer() {
+        this(18, 8, 0.5, 1e-6, 42);
+    }
+
+    /**
+     * @param examples the labeled descriptions
+     * @return the trained model
+     */
+    public TextClassifier train(List<LabeledText> examples) {
+        FeatureHasher hasher = new FeatureHasher(bits);
+        float[] weights = new float[hasher.dimension()];
+        double bias = 0;
+
+        List<int[]> features = new ArrayList<>(examples.size());
+        for (LabeledText example : examples) {
+            features.add(hasher.features(example.text()));
+        }
+        List<Integer> order = new ArrayList<>(examples.size());
+        for (int i = 0; i < examples.size(); i++) order.add(i);
+
+        Random random = new Random(seed);
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            Collections.shuffle(order, random);
+            double rate = learningRate / Math.sqrt(epoch);
+            for (int index : order) {
+                int[] x = features.get(index);
+                double p = TextClassifier.sigmoid(TextClassifier.score(x, weights, (float) bias));
+                double gradient = p - (examples.get(index).allowed() ? 1 : 0);
+                double scale = x.length == 0 ? 0 : 1 / Math.sqrt(x.length);
+                for (int feature : x) {
+                    weights[feature] -= (float) (rate * (gradient * scale + l2 * weights[feature]));
+                }
+                bias -= rate * gradient;
+            }
+        }
+        return new TextClassifier(bits, weights, (float) bias);
+    }
+
+    /**
+     * Measures how the model would behave in front of the LLM
+     * @param classifier the model
+     * @param examples held-out labeled descriptions
+     * @param threshold the confidence above which the model decides alone
+     * @return the evaluation
+     */
+    public static Evaluation evaluate(TextClassifier classifier, List<LabeledText> examples, double threshold) {
+        int correct = 0;
+        int decided = 0;
+        int decidedCorrect = 0;
+        int falseAllows = 0;
+        double logLoss = 0;
+        for (LabeledText example : examples) {
+            double p = classifier.probabilityAllowed(example.text());
+            boolean predicted = p >= 0.5;
+            if (predicted == example.allowed()) correct++;
+            logLoss -= Math.log(Math.max(1e-12, example.allowed() ? p : 1 - p));
+            if (Math.max(p, 1 - p) >= threshold) {
+                decided++;
+                if (predicted == example.allowed()) decidedCorrect++;
+                else if (predicted) falseAllows++;
+            }
+        }
+        int n = Math.max(1, examples.size());
+        return new Evaluation(examples.size(), (double) correct / n, logLoss / n, (double) decided / n,
+                decided == 0 ? 0 : (double) decidedCorrect / decided, falseAllows);
+    }
+
+    /**
+     * @param examples the number of evaluated descriptions
+     * @param accuracy the accuracy at the 0.5 cut, over all descriptions
+     * @param logLoss the mean log loss
+     * @param coverage the share of descriptions the model decides alone at the threshold
+     * @param decidedAccuracy the accuracy over the descriptions decided alone
+     * @param falseAllows the descriptions decided alone as allowed that the LLM rejected
+     */
+    public record Evaluation(int examples, double accuracy, double logLoss, double coverage, double decidedAccuracy,
+                             int falseAllows) {
+    }
+}
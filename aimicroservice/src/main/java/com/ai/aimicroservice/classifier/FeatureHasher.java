@@ -0,0 +1,91 @@
+package com.ai.aimicroservice.classifier;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Turns a text into hashed features: words, word bigrams and character 3- and 4-grams of each word
+ * Features are hashed into 2^bits buckets, so the model is a plain float array and no vocabulary is kept.
+ * Character n-grams make the model robust to typos and to words it never saw ("tomatoes" shares most of its
+ * n-grams with "tomato").
+ */
+public final class FeatureHasher {
+
+    private static final int WORD = 0x9E3779B9;
+    private static final int BIGRAM = 0x85EBCA6B;
+    private static final int CHARS = 0xC2B2AE35;
+
+    private final int mask;
+
+    /**
+     * @param bits the number of hash bits, the model has 2^bits weights
+     */
+    public FeatureHasher(int bits) {
+        if (bits < 1 || bits > 30) {
+            throw new IllegalArgumentException("bits must be between 1 and 30");
+        }
+        this.mask = (1 << bits) - 1;
+    }
+
+    public int dimension() {
+        return mask + 1;
+    }
+
+    /**
+     * @param text the text
+     * @return the feature indices of the text, an index appears once per occurrence of its feature
+     */
+    public int[] features(String text) {
+        String normalized = Normalizer.normalize(text == null ? "" : text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        int[] features = new int[Math.max(16, normalized.length() * 3)];
+        int count = 0;
+        int previousWord = 0;
+        boolean hasPrevious = false;
+
+        int i = 0;
+        while (i < normalized.length()) {
+            while (i < normalized.length() && !Character.isLetterOrDigit(normalized.charAt(i))) i++;
+            int start = i;
+            while (i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i))) i++;
+            if (start == i) break;
+
+            int word = hash(normalized, start, i, WORD);
+            if (count + 2 + 2 * (i - start + 2) > features.length) {
+                features = Arrays.copyOf(features, features.length * 2 + 2 * (i - start + 2));
+            }
+            features[count++] = word & mask;
+            if (hasPrevious) {
+                features[count++] = (previousWord * 31 + word ^ BIGRAM) & mask;
+            }
+            previousWord = word;
+            hasPrevious = true;
+
+            // n-grams of the word padded with spaces, so prefixes and suffixes get their own features
+            String padded = " " + normalized.substring(start, i) + " ";
+            for (int n = 3; n <= 4; n++) {
+                for (int j = 0; j + n <= padded.length(); j++) {
+                    features[count++] = hash(padded, j, j + n, CHARS + n) & mask;
+                }
+            }
+        }
+        return Arrays.copyOf(features, count);
+    }
+
+    /**
+     * FNV-1a over the characters, finished with a murmur mix so nearby strings spread over the buckets
+     */
+    private static int hash(CharSequence text, int start, int end, int seed) {
+        int h = 0x811C9DC5 ^ seed;
+        for (int i = start; i < end; i++) {
+            h ^= text.charAt(i);
+            h *= 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
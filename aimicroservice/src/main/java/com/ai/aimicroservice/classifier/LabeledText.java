@@ -0,0 +1,9 @@
+package com.ai.aimicroservice.classifier;
+
+/**
+ * A description and the verdict given to it
+ * @param text the description
+ * @param allowed whether the description was allowed
+ */
+public record LabeledText(String text, boolean allowed) {
+}
@@ -0,0 +1,111 @@
+package com.ai.aimicroservice.classifier;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Logistic regression over hashed text features, predicting whether a description is allowed
+ * The weights are a primitive array indexed by feature hash, scoring a text is one pass over its features.
+ */
+public final class TextClassifier {
+
+    private static final int MAGIC = 0x54434C46; // "TCLF"
+    private static final int FORMAT_VERSION = 1;
+
+    private final int bits;
+    private final FeatureHasher hasher;
+    private final float[] weights;
+    private final float bias;
+
+    /**
+     * @param bits the number of hash bits of the features
+     * @param weights one weight per feature bucket, 2^bits of them
+     * @param bias the intercept
+     */
+    public TextClassifier(int bits, float[] weights, float bias) {
+        this.bits = bits;
+        this.hasher = new FeatureHasher(bits);
+        if (weights.length != hasher.dimension()) {
+            throw new IllegalArgumentException("Expected " + hasher.dimension() + " weights, got " + weights.length);
+        }
+        this.weights = weights;
+        this.bias = bias;
+    }
+
+    /**
+     * @param text the description
+     * @return the probability that the description is allowed
+     */
+    public double probabilityAllowed(String text) {
+        return sigmoid(score(hasher.features(text), weights, bias));
+    }
+
+    /**
+     * Features are scaled by 1/sqrt(count), so long descriptions do not get extreme scores just for being long
+     */
+    static double score(int[] features, float[] weights, float bias) {
+        if (features.length == 0) return bias;
+        double sum = 0;
+        for (int feature : features) {
+            sum += weights[feature];
+        }
+        return bias + sum / Math.sqrt(features.length);
+    }
+
+    static double sigmoid(double z) {
+        return 1 / (1 + Math.exp(-z));
+    }
+
+    public int bits() {
+        return bits;
+    }
+
+    FeatureHasher hasher() {
+        return hasher;
+    }
+
+    /**
+     * Writes the model, see {@link #read(InputStream)}
+     * @param output the stream to write to, left open
+     */
+    public void write(OutputStream output) throws IOException {
+        DataOutputStream data = new DataOutputStream(output);
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        data.writeInt(bits);
+        data.writeFloat(bias);
+        for (float weight : weights) {
+            data.writeFloat(weight);
+        }
+        data.flush();
+    }
+
+    /**
+     * @param input a model written by {@link #write(OutputStream)}
+     * @return the model
+     * @throws IOException if the stream is not a model of a supported version
+     */
+    public static TextClassifier read(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(input);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a text classifier model");
+        }
+        int version = data.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported text classifier model version " + version);
+        }
+        int bits = data.readInt();
+        if (bits < 1 || bits > 30) {
+            throw new IOException("Invalid number of feature bits " + bits);
+        }
+        float bias = data.readFloat();
+        float[] weights = new float[1 << bits];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = data.readFloat();
+        }
+        return new TextClassifier(bits, weights, bias);
+    }
+}
@@ -0,0 +1,122 @@
+package com.ai.aimicroservice.classifier;
+
+import com.ai.aimicroservice.verdict.TextVerdict;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only JSON lines log of the descriptions and the verdicts given to them by the LLM
+ * It is the training set of the embedded classifier, see {@link ClassifierTool}. Verdicts of the classifier itself
+ * are not recorded, the classifier must not learn from its own decisions.
+ */
+@Component
+public class VerdictHistory {
+
+    private static final Logger log = LoggerFactory.getLogger(VerdictHistory.class);
+
+    private final ObjectMapper objectMapper;
+    private final Path path;
+    private final boolean enabled;
+    private BufferedWriter writer;
+
+    public VerdictHistory(ObjectMapper objectMapper,
+                          @Value("${ai.classifier.history.path:data/verdict-history.jsonl}") Path path,
+                          @Value("${ai.classifier.history.enabled:false}") boolean enabled) {
+        this.objectMapper = objectMapper;
+        this.path = path;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Records the verdict of the LLM on a description, malformed verdicts are skipped
+     * Failures are logged, the history never fails an analysis
+     * @param text the description
+     * @param verdict the verdict of the LLM
+     * @param model the version of the model that gave the verdict
+     */
+    public void record(String text, TextVerdict verdict, String model) {
+        if (!enabled || text == null || !verdict.wellFormed()) return;
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("text", text);
+        entry.put("allowed", verdict.allowed());
+        entry.put("model", model);
+        entry.put("timestamp", Instant.now().toString());
+        try {
+            String line = objectMapper.writeValueAsString(entry);
+            synchronized (this) {
+                if (writer == null) {
+                    Path parent = path.toAbsolutePath().getParent();
+                    if (parent != null) Files.createDirectories(parent);
+                    writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                writer.write(line);
+                writer.newLine();
+                writer.flush();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to record the verdict history to {}", path, e);
+        }
+    }
+
+    /**
+     * Reads a history, the last verdict of a description wins and unreadable lines are skipped
+     * @param path the history file
+     * @param objectMapper the mapper used to read the lines
+     * @return the labeled descriptions, in order of first appearance
+     */
+    public static List<LabeledText> read(Path path, ObjectMapper objectMapper) throws IOException {
+        Map<String, Boolean> verdicts = new LinkedHashMap<>();
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                try {
+                    JsonNode entry = objectMapper.readTree(line);
+                    JsonNode text = entry.path("text");
+                    JsonNode allowed = entry.path("allowed");
+                    if (!text.isTextual() || !allowed.isBoolean()) {
+                        skipped++;
+                        continue;
+                    }
+                    verdicts.put(text.textValue(), allowed.booleanValue());
+                } catch (IOException e) {
+                    skipped++;
+                }
+            }
+        }
+        if (skipped > 0) {
+            log.warn("Skipped {} unreadable lines of {}", skipped, path);
+        }
+        List<LabeledText> examples = new ArrayList<>(verdicts.size());
+        verdicts.forEach((text, allowed) -> examples.add(new LabeledText(text, allowed)));
+        return examples;
+    }
+
+    @PreDestroy
+    synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.ai.aimicroservice.client;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of in-flight requests to one downstream service
+ * Once a downstream is saturated, extra calls fail with a {@link BulkheadFullException} instead of queueing
+ * behind it, so a slow service cannot tie up every thread and connection of the moderation pipeline.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrency;
+    private final Duration maxWait;
+    private final Semaphore permits;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param name the downstream service name
+     * @param maxConcurrency the maximum number of calls in flight
+     * @param maxWait how long a blocking call waits for a free slot, reactive calls never wait
+     */
+    public Bulkhead(String name, int maxConcurrency, Duration maxWait) {
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        this.maxWait = maxWait;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Runs a blocking call inside the bulkhead
+     * @param call the call to the downstream service
+     * @return the result of the call
+     */
+    public <T> T call(Supplier<T> call) {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BulkheadFullException(name, maxConcurrency);
+        }
+        if (!acquired) {
+            throw reject();
+        }
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Subscribes to a reactive call inside the bulkhead, the slot is freed on completion, error or cancellation
+     * @param call the call to the downstream service
+     * @return a Mono failing with a {@link BulkheadFullException} if the bulkhead is full
+     */
+    public <T> Mono<T> wrap(Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!permits.tryAcquire()) {
+                return Mono.error(reject());
+            }
+            return call.doFinally(signal -> permits.release());
+        });
+    }
+
+    private BulkheadFullException reject() {
+        rejected.increment();
+        return new BulkheadFullException(name, maxConcurrency);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Stats stats() {
+        return new Stats(name, maxConcurrency - permits.availablePermits(), maxConcurrency, rejected.sum());
+    }
+
+    public record Stats(String name, int inFlight, int maxConcurrency, long rejected) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.ai.aimicroservice.client;
+
+/**
+ * Thrown when a downstream service already has as many requests in flight as its bulkhead allows
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    public BulkheadFullException(String downstream, int maxConcurrency) {
+        super("Too many concurrent calls to " + downstream + " (max " + maxConcurrency + ")");
+    }
+}
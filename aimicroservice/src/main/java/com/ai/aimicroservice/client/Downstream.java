@@ -0,0 +1,14 @@
+package com.ai.aimicroservice.client;
+
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * The HTTP client of one downstream service, with its bulkhead and hedging policy
+ * @param name the downstream service name, as used in the ai.http.* properties
+ * @param baseUrl the base url of the service
+ * @param webClient the non-blocking client
+ * @param bulkhead the bulkhead every call to the service goes through
+ * @param hedging the hedging policy of the idempotent reads of the service
+ */
+public record Downstream(String name, String baseUrl, WebClient webClient, Bulkhead bulkhead, Hedging hedging) {
+}
@@ -0,0 +1,165 @@
+package com.ai.aimicroservice.client;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds the HTTP clients of the downstream services (post, report, media)
+ * All of them share one Reactor Netty connection pool, so connections are kept alive and reused across
+ * requests, and HTTP/2 is negotiated with https services. Each downstream gets its own timeouts, bulkhead and hedging,
+ * read from ai.http.&lt;name&gt;.connect-timeout, read-timeout, max-concurrency, max-wait, compress, hedge.enabled,
+ * hedge.percentile and hedge.min-delay.
+ */
+@Component
+public class DownstreamHttpClients {
+
+    private final WebClient.Builder webClientBuilder;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final ConnectionProvider connectionProvider;
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final Map<String, Hedging> hedgings = new ConcurrentHashMap<>();
+
+    public DownstreamHttpClients(WebClient.Builder webClientBuilder, Environment environment, MeterRegistry meterRegistry,
+                                 @Value("${ai.http.pool.max-connections:200}") int maxConnections,
+                                 @Value("${ai.http.pool.pending-acquire-timeout:5s}") Duration pendingAcquireTimeout,
+                                 @Value("${ai.http.pool.max-idle-time:30s}") Duration maxIdleTime) {
+        this.webClientBuilder = webClientBuilder;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.connectionProvider = ConnectionProvider.builder("downstream")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .evictInBackground(maxIdleTime)
+                .metrics(true, () -> new ConnectionProvider.MeterRegistrar() {
+                    @Override
+                    public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+                        pools.put(id, new Pool(String.valueOf(remoteAddress), metrics));
+                    }
+
+                    @Override
+                    public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+                        pools.remove(id);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Creates the client of a downstream service
+     * @param name the downstream service name, used to look up its ai.http.&lt;name&gt;.* settings
+     * @param baseUrl the base url of the service
+     * @return the client of the service
+     */
+    public Downstream create(String name, String baseUrl) {
+        Duration connectTimeout = setting(name, "connect-timeout", Duration.ofSeconds(2));
+        Duration readTimeout = setting(name, "read-timeout", Duration.ofSeconds(10));
+        int maxConcurrency = environment.getProperty("ai.http." + name + ".max-concurrency", Integer.class, 32);
+        Duration maxWait = setting(name, "max-wait", Duration.ofMillis(100));
+        // off by default: gzip only pays off on text bodies, images are already compressed
+        boolean compress = environment.getProperty("ai.http." + name + ".compress", Boolean.class, false);
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(readTimeout)
+                .keepAlive(true)
+                .compress(compress);
+        if (baseUrl.startsWith("https")) {
+            // HTTP/2 needs TLS (ALPN), plain http services stay on HTTP/1.1
+            httpClient = httpClient.secure().protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+
+        WebClient webClient = webClientBuilder.clone()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+        Bulkhead bulkhead = bulkheads.computeIfAbsent(name, n -> register(new Bulkhead(n, maxConcurrency, maxWait)));
+        Hedging hedging = hedgings.computeIfAbsent(name, n -> register(new Hedging(n,
+                environment.getProperty("ai.http." + n + ".hedge.enabled", Boolean.class, false),
+                environment.getProperty("ai.http." + n + ".hedge.percentile", Double.class, 0.95),
+                setting(n, "hedge.min-delay", Duration.ofMillis(20)))));
+
+        return new Downstream(name, baseUrl, webClient, bulkhead, hedging);
+    }
+
+    private Bulkhead register(Bulkhead bulkhead) {
+        Gauge.builder("downstream.in.flight", bulkhead, b -> b.stats().inFlight())
+                .description("Requests in flight to a downstream service")
+                .tag("downstream", bulkhead.name())
+                .register(meterRegistry);
+        FunctionCounter.builder("downstream.bulkhead.rejected", bulkhead, b -> b.stats().rejected())
+                .description("Requests rejected because the downstream bulkhead was full")
+                .tag("downstream", bulkhead.name())
+                .register(meterRegistry);
+        return bulkhead;
+    }
+
+    private Hedging register(Hedging hedging) {
+        FunctionCounter.builder("downstream.hedged", hedging, h -> h.stats().hedged())
+                .description("Hedged requests fired to a downstream service")
+                .tag("downstream", hedging.name())
+                .register(meterRegistry);
+        FunctionCounter.builder("downstream.hedge.wins", hedging, h -> h.stats().hedgeWins())
+                .description("Hedged requests that answered before the original request")
+                .tag("downstream", hedging.name())
+                .register(meterRegistry);
+        return hedging;
+    }
+
+    private Duration setting(String name, String key, Duration defaultValue) {
+        return environment.getProperty("ai.http." + name + "." + key, Duration.class, defaultValue);
+    }
+
+    /**
+     * @return the utilization of the connection pools, one per remote address, of the bulkheads, and the hedging counters
+     */
+    public Stats stats() {
+        List<PoolStats> poolStats = new ArrayList<>();
+        pools.values().forEach(pool -> poolStats.add(pool.stats()));
+        List<Bulkhead.Stats> bulkheadStats = new ArrayList<>();
+        bulkheads.values().forEach(bulkhead -> bulkheadStats.add(bulkhead.stats()));
+        List<Hedging.Stats> hedgingStats = new ArrayList<>();
+        hedgings.values().forEach(hedging -> hedgingStats.add(hedging.stats()));
+        return new Stats(poolStats, bulkheadStats, hedgingStats);
+    }
+
+    @PreDestroy
+    void close() {
+        connectionProvider.dispose();
+    }
+
+    private record Pool(String remoteAddress, ConnectionPoolMetrics metrics) {
+
+        PoolStats stats() {
+            return new PoolStats(remoteAddress, metrics.acquiredSize(), metrics.idleSize(), metrics.pendingAcquireSize(),
+                    metrics.maxAllocatedSize());
+        }
+    }
+
+    public record PoolStats(String remoteAddress, int acquired, int idle, int pendingAcquire, int maxConnections) {
+    }
+
+    public record Stats(List<PoolStats> pools, List<Bulkhead.Stats> bulkheads, List<Hedging.Stats> hedging) {
+    }
+}
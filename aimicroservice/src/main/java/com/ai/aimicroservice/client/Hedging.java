@@ -0,0 +1,136 @@
+package com.ai.aimicroservice.client;
+
+import com.ai.aimicroservice.deadline.Deadline;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Hedged requests for the idempotent reads of one downstream service
+ * When a call has not answered after the recent p95 latency (by default) of the service, a second identical call is
+ * fired and the first answer wins, the other call is cancelled. A first call failing before the delay is covered
+ * by the hedge too. Only the slowest calls are hedged, so the extra load
+ * stays around 5% while the tail latency drops to roughly twice the percentile.
+ * The latency of a call is measured from the start of its first attempt to its result, whichever attempt wins:
+ * timing the attempts alone would drop the slow ones, cancelled by a faster hedge, and the delay would keep shrinking.
+ */
+public class Hedging {
+
+    // no hedging until the latency of the service is known
+    private static final int MIN_SAMPLES = 20;
+    private static final int WINDOW = 1024;
+    // the percentile is recomputed every RECOMPUTE samples rather than on every call
+    private static final int RECOMPUTE = 64;
+
+    private final String name;
+    private final boolean enabled;
+    private final double percentile;
+    private final Duration minDelay;
+    private final long[] latencies = new long[WINDOW];
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    private long samples;
+    private volatile long delayNanos = -1;
+
+    /**
+     * @param name the downstream service name
+     * @param enabled whether calls are hedged, latencies are recorded either way
+     * @param percentile the latency percentile after which a call is hedged, e.g. 0.95
+     * @param minDelay the shortest delay before hedging, so a very fast service is not hit twice for nothing
+     */
+    public Hedging(String name, boolean enabled, double percentile, Duration minDelay) {
+        this.name = name;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelay = minDelay;
+    }
+
+    /**
+     * Runs a call within the deadline, with a hedged call if the first one is slow
+     * @param deadline the deadline of the request, no hedge is fired if it would come after it
+     * @param call creates the call, invoked once per attempt
+     * @param discard releases a result that lost the race, for results holding resources
+     * @return a Mono emitting the first result
+     */
+    public <T> Mono<T> hedge(Deadline deadline, Supplier<Mono<T>> call, Consumer<? super T> discard) {
+        return deadline.bound(Mono.defer(() -> {
+            long delay = delayNanos;
+            if (!enabled || delay < 0 || deadline.remaining().toNanos() <= delay) {
+                return timed(call.get());
+            }
+            AtomicBoolean decided = new AtomicBoolean();
+            Mono<T> primary = attempt(call.get(), decided, discard);
+            Mono<T> hedge = Mono.delay(Duration.ofNanos(delay))
+                    .then(Mono.defer(() -> {
+                        hedged.increment();
+                        return attempt(call.get(), decided, discard).doOnNext(result -> hedgeWins.increment());
+                    }));
+            return timed(Mono.firstWithValue(primary, hedge));
+        }));
+    }
+
+    /**
+     * @see #hedge(Deadline, Supplier, Consumer)
+     */
+    public <T> Mono<T> hedge(Deadline deadline, Supplier<Mono<T>> call) {
+        return hedge(deadline, call, result -> {
+        });
+    }
+
+    /**
+     * Only the first attempt to produce a result emits it, a late result is released instead of being dropped
+     */
+    private static <T> Mono<T> attempt(Mono<T> call, AtomicBoolean decided, Consumer<? super T> discard) {
+        return call.flatMap(result -> {
+            if (decided.compareAndSet(false, true)) {
+                return Mono.just(result);
+            }
+            discard.accept(result);
+            return Mono.empty();
+        });
+    }
+
+    private <T> Mono<T> timed(Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnNext(result -> record(System.nanoTime() - start));
+        });
+    }
+
+    synchronized void record(long latencyNanos) {
+        latencies[(int) (samples % WINDOW)] = latencyNanos;
+        samples++;
+        if (samples >= MIN_SAMPLES && (samples % RECOMPUTE == 0 || samples == MIN_SAMPLES)) {
+            long[] sorted = Arrays.copyOf(latencies, (int) Math.min(samples, WINDOW));
+            Arrays.sort(sorted);
+            long value = sorted[(int) Math.min(sorted.length - 1, Math.floor(percentile * sorted.length))];
+            delayNanos = Math.max(minDelay.toNanos(), value);
+        }
+    }
+
+    /**
+     * @return the current hedging delay, or null while the latency of the service is not known yet
+     */
+    public Duration delay() {
+        long delay = delayNanos;
+        return delay < 0 ? null : Duration.ofNanos(delay);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Stats stats() {
+        Duration delay = delay();
+        return new Stats(name, enabled, delay == null ? null : delay.toMillis(), hedged.sum(), hedgeWins.sum());
+    }
+
+    public record Stats(String name, boolean enabled, Long delayMillis, long hedged, long hedgeWins) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.ai.aimicroservice.client;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A media object held in a pooled buffer
+ * Closing it gives the buffer back to the pool, the object must not be read afterwards
+ */
+public class MediaBuffer implements AutoCloseable {
+
+    private ByteBuffer buffer;
+    private final MediaBufferPool pool;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    MediaBuffer(ByteBuffer buffer, MediaBufferPool pool) {
+        this.buffer = buffer;
+        this.pool = pool;
+    }
+
+    /**
+     * Appends a chunk of the response body, growing a heap buffer when it is full
+     * @throws MediaTooLargeException if the object is bigger than the maximum object size
+     */
+    void append(DataBuffer chunk, String objectId) {
+        int length = chunk.readableByteCount();
+        if (length > buffer.remaining()) {
+            long size = (long) buffer.position() + length;
+            if (size > pool.maxObjectSize()) {
+                throw new MediaTooLargeException(objectId, pool.maxObjectSize());
+            }
+            grow((int) size);
+        }
+        try (DataBuffer.ByteBufferIterator iterator = chunk.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                buffer.put(iterator.next());
+            }
+        }
+    }
+
+    // only heap buffers grow, the pooled direct ones already have the maximum size
+    private void grow(int minCapacity) {
+        int capacity = (int) Math.min(pool.maxObjectSize(), Math.max(minCapacity, 2L * buffer.capacity()));
+        ByteBuffer larger = ByteBuffer.allocate(capacity);
+        larger.put(buffer.flip());
+        buffer = larger;
+    }
+
+    MediaBuffer flip() {
+        buffer.flip();
+        return this;
+    }
+
+    /**
+     * @return a read-only view of the object bytes, positioned at the start of the object
+     */
+    public ByteBuffer buffer() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the size of the object, in bytes
+     */
+    public int size() {
+        return buffer.limit();
+    }
+
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            pool.release(buffer);
+        }
+    }
+}
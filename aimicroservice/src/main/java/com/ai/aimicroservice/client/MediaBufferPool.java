@@ -0,0 +1,67 @@
+package com.ai.aimicroservice.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct buffers holding fetched media objects
+ * Each buffer is sized for the largest accepted object, so an object is written exactly once and never regrown.
+ * Up to ai.media.buffer-pool-size buffers are kept off-heap and reused; when they are all in use, a heap buffer
+ * is allocated for the request and dropped afterwards. It is sized from the Content-Length of the object, or starts
+ * small and grows when the length is unknown, so a burst of requests does not allocate the maximum size each.
+ */
+@Component
+public class MediaBufferPool {
+
+    static final int INITIAL_OVERFLOW_SIZE = 256 * 1024;
+
+    private final int maxObjectSize;
+    private final int poolSize;
+    private final BlockingQueue<ByteBuffer> available;
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    public MediaBufferPool(@Value("${ai.media.max-object-size:15728640}") int maxObjectSize,
+                           @Value("${ai.media.buffer-pool-size:4}") int poolSize) {
+        this.maxObjectSize = maxObjectSize;
+        this.poolSize = poolSize;
+        this.available = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+    }
+
+    /**
+     * @return the maximum accepted object size, in bytes
+     */
+    public int maxObjectSize() {
+        return maxObjectSize;
+    }
+
+    /**
+     * Takes a buffer from the pool, it must be closed once the object is no longer used
+     * @param contentLength the size of the object, -1 if unknown
+     * @return an empty buffer, of maxObjectSize bytes when pooled
+     */
+    public MediaBuffer acquire(long contentLength) {
+        ByteBuffer buffer = available.poll();
+        if (buffer != null) {
+            return new MediaBuffer(buffer, this);
+        }
+        if (allocated.incrementAndGet() <= poolSize) {
+            return new MediaBuffer(ByteBuffer.allocateDirect(maxObjectSize), this);
+        }
+        allocated.decrementAndGet();
+        int size = contentLength >= 0 ? (int) Math.min(contentLength, maxObjectSize) : Math.min(INITIAL_OVERFLOW_SIZE, maxObjectSize);
+        return new MediaBuffer(ByteBuffer.allocate(size), this);
+    }
+
+    void release(ByteBuffer buffer) {
+        // heap buffers are overflow allocations, only the direct ones go back to the pool
+        if (buffer.isDirect()) {
+            buffer.clear();
+            available.offer(buffer);
+        }
+    }
+}
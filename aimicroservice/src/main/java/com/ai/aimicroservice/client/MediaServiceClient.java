@@ -1,63 +1,83 @@
 package com.ai.aimicroservice.client;
 
+import com.ai.aimicroservice.deadline.Deadline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.scheduler.Schedulers;
-
-import java.util.concurrent.CompletableFuture;
+import reactor.core.publisher.Mono;
 
 @Component
 public class MediaServiceClient {
 
     private static final Logger logger = LoggerFactory.getLogger(MediaServiceClient.class);
 
-    private final WebClient webClient;
+    private final Downstream downstream;
+    // archive moves get their own timeouts and bulkhead, so they never take slots from live fetches
+    private final Downstream archive;
+    private final MediaBufferPool bufferPool;
 
-    public MediaServiceClient(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder.baseUrl("https://example.com").build();
+    public MediaServiceClient(DownstreamHttpClients downstreamHttpClients, MediaBufferPool bufferPool) {
+        this.downstream = downstreamHttpClients.create("media", "https://example.com");
+        this.archive = downstreamHttpClients.create("media-archive", "https://example.com");
+        this.bufferPool = bufferPool;
     }
 
     /**
-     * Fetch the object bytes from media service
+     * Stream the object from media service into a pooled buffer
+     * The body is copied chunk by chunk into the buffer as it arrives, without aggregating it on the heap first.
+     * Objects bigger than ai.media.max-object-size fail with a {@link MediaTooLargeException}: right away when
+     * the Content-Length is known, otherwise as soon as the limit is crossed, which also cancels the download.
+     * Slow fetches are hedged, the object that loses the race goes back to the pool.
      * @param objectId the name of the object to get
-     * @return bytes of the object
+     * @param deadline the deadline of the request
+     * @return a Mono emitting the object, the caller must close it once done
      */
-    public CompletableFuture<byte[]> getS3ObjectBytes(String objectId) {
-        return webClient.get()
+    public Mono<MediaBuffer> getS3ObjectBuffer(String objectId, Deadline deadline) {
+        return downstream.bulkhead().wrap(downstream.hedging().hedge(deadline, () -> fetchBuffer(objectId), MediaBuffer::close))
+                .doOnSuccess(media -> logger.info("Successfully fetched object {} ({} bytes)", objectId, media.size()))
+                .doOnError(e -> logger.error("Failed to fetch object {}", objectId, e));
+    }
+
+    private Mono<MediaBuffer> fetchBuffer(String objectId) {
+        return downstream.webClient().get()
                 .uri("/media/{objectId}", objectId)
-                .retrieve()
-                .bodyToMono(byte[].class)
-                .publishOn(Schedulers.boundedElastic())
-                .toFuture()
-                .whenComplete((bytes, ex) -> {
-                    if (ex != null) {
-                        logger.error("Failed to fetch object {}", objectId, ex);
-                    } else {
-                        logger.info("Successfully fetched object {}", objectId);
+                .exchangeToMono(response -> {
+                    if (response.statusCode().isError()) {
+                        return response.createError();
                     }
+                    long contentLength = response.headers().contentLength().orElse(-1);
+                    if (contentLength > bufferPool.maxObjectSize()) {
+                        return response.releaseBody()
+                                .then(Mono.error(new MediaTooLargeException(objectId, bufferPool.maxObjectSize())));
+                    }
+                    return Mono.defer(() -> {
+                        MediaBuffer media = bufferPool.acquire(contentLength);
+                        return response.bodyToFlux(DataBuffer.class)
+                                .doOnNext(chunk -> {
+                                    try {
+                                        media.append(chunk, objectId);
+                                    } finally {
+                                        DataBufferUtils.release(chunk);
+                                    }
+                                })
+                                .then(Mono.fromCallable(media::flip))
+                                .doOnError(e -> media.close())
+                                .doOnCancel(media::close);
+                    });
                 });
     }
 
     /**
-     * Move the file to the archive
+     * Move the file to the archive without blocking the calling thread
      * @param objectId the name of the object to move
-     * @return nothing
+     * @return a Mono completing once the object is moved
      */
-    public CompletableFuture<Void> moveObjectToArchive(String objectId) {
-        return webClient.post()
+    public Mono<Void> moveObjectToArchiveReactive(String objectId) {
+        return archive.bulkhead().wrap(archive.webClient().post()
                 .uri("/media/{objectId}/move", objectId)
                 .retrieve()
-                .bodyToMono(Void.class)
-                .publishOn(Schedulers.boundedElastic())
-                .toFuture()
-                .whenComplete((v, ex) -> {
-                    if (ex != null) {
-                        logger.error("Failed to move object {}", objectId, ex);
-                    } else {
-                        logger.info("Successfully moved object {}", objectId);
-                    }
-                });
+                .bodyToMono(Void.class));
     }
 }
@@ -0,0 +1,11 @@
+package com.ai.aimicroservice.client;
+
+/**
+ * Thrown when a media object is bigger than the configured maximum size
+ */
+public class MediaTooLargeException extends RuntimeException {
+
+    public MediaTooLargeException(String objectId, long maxObjectSize) {
+        super("Object " + objectId + " exceeds the maximum size of " + maxObjectSize + " bytes");
+    }
+}
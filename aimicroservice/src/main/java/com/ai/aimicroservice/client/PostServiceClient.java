@@ -1,21 +1,47 @@
 package com.ai.aimicroservice.client;
 
+import com.ai.aimicroservice.deadline.Deadline;
 import com.ai.aimicroservice.entity.Post;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
+import reactor.core.publisher.Mono;
 
 @Component
 public class PostServiceClient {
 
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final String baseUrl = "https://example.com/post/";
+    private final Downstream downstream;
+
+    public PostServiceClient(DownstreamHttpClients downstreamHttpClients) {
+        this.downstream = downstreamHttpClients.create("post", "https://example.com/post/");
+    }
 
     /**
      * Maps a post to a Post entity
+     * Goes through the reactive client, so the call is cut at the deadline rather than at a fixed read timeout
      * @param postId the id of the post
+     * @param deadline the deadline of the request
      * @return a Post entity
      */
-    public Post getPost(String postId) {
-        return restTemplate.getForObject(baseUrl + postId, Post.class);
+    public Post getPost(String postId, Deadline deadline) {
+        return downstream.bulkhead().call(() -> deadline.await(fetch(postId, deadline)));
+    }
+
+    /**
+     * Maps a post to a Post entity without blocking the calling thread
+     * @param postId the id of the post
+     * @param deadline the deadline of the request
+     * @return a Mono emitting the Post entity
+     */
+    public Mono<Post> getPostAsync(String postId, Deadline deadline) {
+        return downstream.bulkhead().wrap(fetch(postId, deadline));
+    }
+
+    /**
+     * A lookup is a plain read, slow ones are hedged; the hedge shares the bulkhead slot of the original call
+     */
+    private Mono<Post> fetch(String postId, Deadline deadline) {
+        return downstream.hedging().hedge(deadline, () -> downstream.webClient().get()
+                .uri("{postId}", postId)
+                .retrieve()
+                .bodyToMono(Post.class));
     }
-}
\ No newline at end of file
+}
@@ -2,20 +2,28 @@ package com.ai.aimicroservice.client;
 
 import com.ai.aimicroservice.entity.Report;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
+import reactor.core.publisher.Mono;
 
 @Component
 public class ReportServiceClient {
 
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final String baseUrl = "https://example.com/posts/";
+    private final Downstream downstream;
+
+    public ReportServiceClient(DownstreamHttpClients downstreamHttpClients) {
+        this.downstream = downstreamHttpClients.create("report", "https://example.com/posts/");
+    }
 
     /**
-     * Report a post
+     * Report a post without blocking the calling thread
      * @param report the report entity to send
      * @param postId the id of the post
+     * @return a Mono completing once the report is sent
      */
-    public void postReport(Report report, String postId) {
-        restTemplate.postForObject(baseUrl + postId, report, Void.class);
+    public Mono<Void> postReportAsync(Report report, String postId) {
+        return downstream.bulkhead().wrap(downstream.webClient().post()
+                .uri("{postId}", postId)
+                .bodyValue(report)
+                .retrieve()
+                .bodyToMono(Void.class));
     }
 }
@@ -0,0 +1,21 @@
+package com.ai.aimicroservice.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Executor used to fan out the text and image analysis of a post
+     * One virtual thread per branch, so blocking on Mistral/Rekognition does not pin platform threads
+     * @return the analysis executor
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService analysisExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("analysis-", 0).factory());
+    }
+}
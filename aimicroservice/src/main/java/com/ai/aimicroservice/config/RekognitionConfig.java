@@ -4,6 +4,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClient;
 import software.amazon.awssdk.services.rekognition.RekognitionClient;
 
 @Configuration
@@ -16,4 +17,12 @@ public class RekognitionConfig {
                 .region(Region.US_WEST_1)
                 .build();
     }
+
+    @Bean
+    public RekognitionAsyncClient rekognitionAsyncClient() {
+        return RekognitionAsyncClient.builder()
+                .credentialsProvider(DefaultCredentialsProvider.builder().build())
+                .region(Region.US_WEST_1)
+                .build();
+    }
 }
@@ -0,0 +1,11 @@
+package com.ai.aimicroservice.consumer;
+
+/**
+ * Thrown when an event is published to a broker that is at capacity, the publisher should retry later
+ */
+public class BrokerFullException extends RuntimeException {
+
+    public BrokerFullException(int capacity) {
+        super("Event broker is full (" + capacity + " events)");
+    }
+}
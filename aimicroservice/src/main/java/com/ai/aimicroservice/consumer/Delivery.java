@@ -0,0 +1,10 @@
+package com.ai.aimicroservice.consumer;
+
+/**
+ * An event handed to a consumer, until it is acknowledged
+ * @param event the event
+ * @param tag identifies this delivery when acknowledging it
+ * @param attempt 1 for the first delivery, incremented on each redelivery
+ */
+public record Delivery(PostEvent event, long tag, int attempt) {
+}
@@ -0,0 +1,57 @@
+package com.ai.aimicroservice.consumer;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Queue of post events with at-least-once delivery
+ * A polled event stays invisible to other polls until it is acknowledged, negatively acknowledged, or its
+ * visibility timeout expires, in which case it is delivered again. Adapters for an external broker implement
+ * the same contract, see {@link InMemoryEventBroker} for the embedded one.
+ */
+public interface EventBroker {
+
+    /**
+     * @param event the event to queue
+     * @throws BrokerFullException if the broker cannot take more events
+     */
+    void publish(PostEvent event);
+
+    /**
+     * Takes the next events, waiting for one if there is none
+     * @param max the maximum number of events to take
+     * @param wait how long to wait for an event
+     * @return the deliveries, empty if none arrived in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    List<Delivery> poll(int max, Duration wait) throws InterruptedException;
+
+    /**
+     * Marks a delivery as processed, the event is removed
+     * @param delivery the delivery
+     * @return false if the delivery had already expired and the event was queued again
+     */
+    boolean ack(Delivery delivery);
+
+    /**
+     * Gives a delivery back, the event is delivered again after the delay
+     * @param delivery the delivery
+     * @param delay how long to wait before delivering the event again
+     */
+    void nack(Delivery delivery, Duration delay);
+
+    /**
+     * @return the depth and lag of the broker
+     */
+    Stats stats();
+
+    /**
+     * @param backlog the events waiting to be delivered, retries included
+     * @param inFlight the events delivered and not acknowledged yet
+     * @param lagMillis the age of the oldest event not acknowledged yet
+     * @param published the events published since startup
+     * @param redelivered the events delivered again after a nack or an expired visibility timeout
+     */
+    record Stats(int backlog, int inFlight, long lagMillis, long published, long redelivered) {
+    }
+}
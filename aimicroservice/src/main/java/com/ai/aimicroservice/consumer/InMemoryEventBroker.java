@@ -0,0 +1,181 @@
+package com.ai.aimicroservice.consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Embedded, bounded {@link EventBroker}, for running the consumer without an external broker and for tests
+ * Events are kept in memory and lost on restart. Events are delivered in publication order, retries once their
+ * delay has elapsed. A publisher gets a {@link BrokerFullException} once ai.consumer.broker.capacity events are
+ * waiting or in flight.
+ */
+@Component
+public class InMemoryEventBroker implements EventBroker {
+
+    private final int capacity;
+    private final long visibilityTimeoutNanos;
+    private final LongSupplier nanoClock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final ArrayDeque<Pending> ready = new ArrayDeque<>();
+    private final PriorityQueue<Pending> delayed = new PriorityQueue<>(Comparator.comparingLong(Pending::notBefore));
+    private final Map<Long, InFlight> inFlight = new HashMap<>();
+    private long nextTag = 1;
+    private long published;
+    private long redelivered;
+
+    @Autowired
+    public InMemoryEventBroker(@Value("${ai.consumer.broker.capacity:100000}") int capacity,
+                               @Value("${ai.consumer.broker.visibility-timeout:5m}") Duration visibilityTimeout) {
+        this(capacity, visibilityTimeout, System::nanoTime);
+    }
+
+    InMemoryEventBroker(int capacity, Duration visibilityTimeout, LongSupplier nanoClock) {
+        this.capacity = capacity;
+        this.visibilityTimeoutNanos = visibilityTimeout.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public void publish(PostEvent event) {
+        lock.lock();
+        try {
+            if (ready.size() + delayed.size() + inFlight.size() >= capacity) {
+                throw new BrokerFullException(capacity);
+            }
+            long now = nanoClock.getAsLong();
+            ready.add(new Pending(event, 1, now, now));
+            published++;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Delivery> poll(int max, Duration wait) throws InterruptedException {
+        long waitNanos = wait.toNanos();
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                long now = nanoClock.getAsLong();
+                long nextDue = requeueDue(now);
+                if (!ready.isEmpty()) {
+                    List<Delivery> deliveries = new ArrayList<>(Math.min(max, ready.size()));
+                    while (deliveries.size() < max && !ready.isEmpty()) {
+                        Pending pending = ready.poll();
+                        Delivery delivery = new Delivery(pending.event(), nextTag++, pending.attempt());
+                        inFlight.put(delivery.tag(), new InFlight(pending, now + visibilityTimeoutNanos));
+                        deliveries.add(delivery);
+                    }
+                    return deliveries;
+                }
+                if (waitNanos <= 0) {
+                    return List.of();
+                }
+                // wake up for the next retry or expiry even if nothing is published
+                long sleep = nextDue == Long.MAX_VALUE ? waitNanos : Math.min(waitNanos, Math.max(0, nextDue - now));
+                long slept = sleep - available.awaitNanos(sleep);
+                waitNanos -= Math.max(slept, 1);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the retries that are due and the expired deliveries back to the ready queue
+     * @return when the next delayed event or in-flight delivery is due, Long.MAX_VALUE if none
+     */
+    private long requeueDue(long now) {
+        long nextDue = Long.MAX_VALUE;
+        while (!delayed.isEmpty() && now - delayed.peek().notBefore() >= 0) {
+            ready.add(delayed.poll());
+        }
+        if (!delayed.isEmpty()) {
+            nextDue = delayed.peek().notBefore();
+        }
+        Iterator<InFlight> deliveries = inFlight.values().iterator();
+        while (deliveries.hasNext()) {
+            InFlight delivery = deliveries.next();
+            if (now - delivery.visibleAt() >= 0) {
+                deliveries.remove();
+                ready.add(delivery.pending().retry(now));
+                redelivered++;
+            } else {
+                nextDue = Math.min(nextDue, delivery.visibleAt());
+            }
+        }
+        return nextDue;
+    }
+
+    @Override
+    public boolean ack(Delivery delivery) {
+        lock.lock();
+        try {
+            return inFlight.remove(delivery.tag()) != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void nack(Delivery delivery, Duration delay) {
+        lock.lock();
+        try {
+            InFlight removed = inFlight.remove(delivery.tag());
+            if (removed == null) return; // expired, already queued again
+            delayed.add(removed.pending().retry(nanoClock.getAsLong() + delay.toNanos()));
+            redelivered++;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Stats stats() {
+        lock.lock();
+        try {
+            long now = nanoClock.getAsLong();
+            long oldest = now;
+            // redelivered events go to the back of the queue, the head is not always the oldest
+            for (Pending pending : ready) oldest = Math.min(oldest, pending.publishedAt());
+            for (Pending pending : delayed) oldest = Math.min(oldest, pending.publishedAt());
+            for (InFlight delivery : inFlight.values()) oldest = Math.min(oldest, delivery.pending().publishedAt());
+            return new Stats(ready.size() + delayed.size(), inFlight.size(), Duration.ofNanos(now - oldest).toMillis(),
+                    published, redelivered);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param publishedAt when the event was first published, on the nano clock, the lag is measured from it
+     * @param notBefore when the event may be delivered
+     */
+    private record Pending(PostEvent event, int attempt, long publishedAt, long notBefore) {
+
+        Pending retry(long notBefore) {
+            return new Pending(event, attempt + 1, publishedAt, notBefore);
+        }
+    }
+
+    private record InFlight(Pending pending, long visibleAt) {
+    }
+}
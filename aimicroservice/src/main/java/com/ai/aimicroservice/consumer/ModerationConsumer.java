@@ -0,0 +1,201 @@
+package com.ai.aimicroservice.consumer;
+
+import com.ai.aimicroservice.deadline.Deadline;
+import com.ai.aimicroservice.service.AIAnalysisService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moderates posts from the events of an {@link EventBroker}, instead of waiting for GET /ai/{postId}
+ * At most ai.consumer.concurrency posts are analyzed at the same time, and events are only taken from the broker
+ * when a worker is free, so a burst of new posts piles up in the broker and is drained at the pace the providers
+ * admit. An event is acknowledged once its post is moderated. A failed analysis is retried with exponential
+ * backoff, after ai.consumer.max-attempts the event is dropped and counted as dead-lettered.
+ * Events are only taken once the application is ready, so no post is analyzed before the context is fully started.
+ */
+@Component
+public class ModerationConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(ModerationConsumer.class);
+    private static final Duration POLL_WAIT = Duration.ofMillis(500);
+
+    private final EventBroker broker;
+    private final AIAnalysisService aiAnalysisService;
+    private final boolean enabled;
+    private final int concurrency;
+    private final Duration deadline;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private final Semaphore workers;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("moderation-consumer-", 0).factory());
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final Timer latency;
+    private Thread poller;
+    private volatile boolean running = true;
+
+    public ModerationConsumer(EventBroker broker, AIAnalysisService aiAnalysisService, MeterRegistry meterRegistry,
+                              @Value("${ai.consumer.enabled:false}") boolean enabled,
+                              @Value("${ai.consumer.concurrency:8}") int concurrency,
+                              @Value("${ai.consumer.deadline:60s}") Duration deadline,
+                              @Value("${ai.consumer.max-attempts:5}") int maxAttempts,
+                              @Value("${ai.consumer.initial-backoff:1s}") Duration initialBackoff,
+                              @Value("${ai.consumer.max-backoff:1m}") Duration maxBackoff) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("ai.consumer.concurrency must be at least 1");
+        }
+        this.broker = broker;
+        this.aiAnalysisService = aiAnalysisService;
+        this.enabled = enabled;
+        this.concurrency = concurrency;
+        this.deadline = deadline;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.workers = new Semaphore(concurrency);
+        this.latency = Timer.builder("consumer.event.latency")
+                .description("Time from the publication of an event to its acknowledgement")
+                .register(meterRegistry);
+        registerMetrics(meterRegistry);
+    }
+
+    /**
+     * Starts taking events from the broker, when the consumer is enabled
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || poller != null || !running) return;
+        poller = Thread.ofVirtual().name("moderation-consumer-poller").start(this::pollLoop);
+    }
+
+    private void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("consumer.backlog", broker, b -> b.stats().backlog())
+                .description("Events waiting in the broker, retries included")
+                .register(registry);
+        TimeGauge.builder("consumer.lag", broker, TimeUnit.MILLISECONDS, b -> b.stats().lagMillis())
+                .description("Age of the oldest event not acknowledged yet")
+                .register(registry);
+        Gauge.builder("consumer.in.flight", inFlight, AtomicInteger::get)
+                .register(registry);
+        FunctionCounter.builder("consumer.events", acked, LongAdder::sum)
+                .tag("outcome", "acked")
+                .register(registry);
+        FunctionCounter.builder("consumer.events", retried, LongAdder::sum)
+                .tag("outcome", "retried")
+                .register(registry);
+        FunctionCounter.builder("consumer.events", deadLettered, LongAdder::sum)
+                .tag("outcome", "dead-lettered")
+                .register(registry);
+    }
+
+    private void pollLoop() {
+        log.info("Moderation consumer started with {} workers", concurrency);
+        while (running) {
+            try {
+                // only take as many events as there are free workers, the rest stays in the broker
+                workers.acquire();
+                int free = 1 + workers.drainPermits();
+                List<Delivery> deliveries;
+                try {
+                    deliveries = broker.poll(free, POLL_WAIT);
+                } catch (RuntimeException e) {
+                    workers.release(free);
+                    log.error("Failed to poll the event broker", e);
+                    Thread.sleep(POLL_WAIT.toMillis());
+                    continue;
+                }
+                workers.release(free - deliveries.size());
+                for (Delivery delivery : deliveries) {
+                    inFlight.incrementAndGet();
+                    executor.execute(() -> process(delivery));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    void process(Delivery delivery) {
+        PostEvent event = delivery.event();
+        try {
+            boolean allowed = aiAnalysisService.analyze(event.postId(), Deadline.after(deadline));
+            if (broker.ack(delivery)) {
+                acked.increment();
+                if (event.publishedAt() != null) {
+                    latency.record(Duration.between(event.publishedAt(), Instant.now()));
+                }
+            }
+            log.info("Post {} moderated from event {} ({}), allowed: {}", event.postId(), event.id(), event.type(), allowed);
+        } catch (RuntimeException e) {
+            onFailure(delivery, e);
+        } finally {
+            inFlight.decrementAndGet();
+            workers.release();
+        }
+    }
+
+    private void onFailure(Delivery delivery, RuntimeException e) {
+        PostEvent event = delivery.event();
+        if (delivery.attempt() >= maxAttempts) {
+            broker.ack(delivery);
+            deadLettered.increment();
+            log.error("Giving up moderating post {} from event {} after {} attempts", event.postId(), event.id(), delivery.attempt(), e);
+            return;
+        }
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(delivery.attempt() - 1, 20));
+        if (backoff.compareTo(maxBackoff) > 0) backoff = maxBackoff;
+        broker.nack(delivery, backoff);
+        retried.increment();
+        log.warn("Failed to moderate post {} from event {}, attempt {}, retrying in {}", event.postId(), event.id(), delivery.attempt(), backoff, e);
+    }
+
+    /**
+     * @return the worker usage and the event counters of the consumer, with the depth and lag of the broker
+     */
+    public Stats stats() {
+        return new Stats(enabled, concurrency, inFlight.get(), acked.sum(), retried.sum(), deadLettered.sum(), broker.stats());
+    }
+
+    public record Stats(boolean enabled, int concurrency, int inFlight, long acked, long retried, long deadLettered,
+                        EventBroker.Stats broker) {
+    }
+
+    /**
+     * Stops taking events and waits for the analyses in progress, their events are acknowledged
+     */
+    @PreDestroy
+    synchronized void close() throws InterruptedException {
+        running = false;
+        if (poller != null) {
+            poller.interrupt();
+            poller.join();
+        }
+        executor.close();
+    }
+}
@@ -0,0 +1,18 @@
+package com.ai.aimicroservice.consumer;
+
+import java.time.Instant;
+
+/**
+ * A change to a post published by the listing service, the post has to be moderated
+ * @param id the id of the event, used to trace it through redeliveries
+ * @param type what happened to the post
+ * @param postId the id of the post
+ * @param publishedAt when the listing service published the event
+ */
+public record PostEvent(String id, Type type, String postId, Instant publishedAt) {
+
+    public enum Type {
+        POST_CREATED,
+        POST_UPDATED
+    }
+}
@@ -1,13 +1,32 @@
 package com.ai.aimicroservice.controller;
 
+import com.ai.aimicroservice.deadline.Deadline;
+import com.ai.aimicroservice.entity.AnalysisResult;
 import com.ai.aimicroservice.service.AIAnalysisService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 @RestController
 @RequestMapping("/ai")
@@ -15,18 +34,106 @@ public class AIAnalysisController {
 
     private static final Logger log = LoggerFactory.getLogger(AIAnalysisController.class);
 
+    /**
+     * Time budget of a request, in milliseconds or as a duration ("2500", "2500ms", "3s")
+     */
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
     private final AIAnalysisService aiAnalysisService;
+    private final boolean reactive;
+    private final Scheduler blockingScheduler;
+    private final int batchConcurrency;
+    private final int batchMaxSize;
+    private final Duration defaultDeadline;
+    private final Duration maxDeadline;
 
-    public AIAnalysisController(AIAnalysisService aiAnalysisService) {
+    public AIAnalysisController(AIAnalysisService aiAnalysisService,
+                                @Qualifier("analysisExecutor") ExecutorService analysisExecutor,
+                                @Value("${ai.analysis.reactive:false}") boolean reactive,
+                                @Value("${ai.analysis.batch.concurrency:8}") int batchConcurrency,
+                                @Value("${ai.analysis.batch.max-size:50000}") int batchMaxSize,
+                                @Value("${ai.analysis.deadline:10s}") Duration defaultDeadline,
+                                @Value("${ai.analysis.max-deadline:60s}") Duration maxDeadline) {
         this.aiAnalysisService = aiAnalysisService;
+        this.reactive = reactive;
+        this.blockingScheduler = Schedulers.fromExecutorService(analysisExecutor);
+        this.batchConcurrency = batchConcurrency;
+        this.batchMaxSize = batchMaxSize;
+        this.defaultDeadline = defaultDeadline;
+        this.maxDeadline = maxDeadline;
     }
 
+    /**
+     * Analyze a post
+     * The request thread is released while the analysis runs, either on the reactive pipeline
+     * or, when ai.analysis.reactive is off, on a virtual thread running the blocking pipeline
+     * The analysis has to complete within the X-Request-Timeout header, or ai.analysis.deadline without it,
+     * otherwise the request fails with a 504
+     * @param postId the id of the post
+     * @param timeout the time budget of the request
+     * @return true if the post passes the check, false otherwise
+     */
     @GetMapping("/{postId}")
-    public ResponseEntity<?> getPostId(@PathVariable("postId") String postId) {
-        boolean result = aiAnalysisService.analyze(postId);
-        return ResponseEntity.ok(result);
+    public Mono<ResponseEntity<Boolean>> getPostId(@PathVariable("postId") String postId,
+                                                   @RequestHeader(value = TIMEOUT_HEADER, required = false) String timeout) {
+        Duration budget = budget(timeout);
+        return Mono.defer(() -> analyze(postId, Deadline.after(budget))).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Analyze a batch of posts
+     * At most ai.analysis.batch.concurrency posts are analyzed at the same time, the next post only starts
+     * once a slot frees up and the client has consumed the previous results
+     * The X-Request-Timeout header, or ai.analysis.deadline, is the budget of each post, counted from its start
+     * @param postIds the ids of the posts
+     * @param timeout the time budget of each post
+     * @return one NDJSON line per post, in completion order
+     */
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<AnalysisResult> batch(@RequestBody List<String> postIds,
+                                      @RequestHeader(value = TIMEOUT_HEADER, required = false) String timeout) {
+        if (postIds.size() > batchMaxSize) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Batch of " + postIds.size() + " posts exceeds the limit of " + batchMaxSize);
+        }
+        Duration budget = budget(timeout);
+        return Flux.fromIterable(postIds)
+                .flatMap(postId -> Mono.defer(() -> analyze(postId, Deadline.after(budget)))
+                        .map(allowed -> new AnalysisResult(postId, allowed, null))
+                        .onErrorResume(e -> {
+                            log.error("Failed to analyze post {} in batch", postId, e);
+                            return Mono.just(new AnalysisResult(postId, null, e.getMessage()));
+                        }), batchConcurrency);
     }
 
+    private Mono<Boolean> analyze(String postId, Deadline deadline) {
+        Mono<Boolean> analysis = reactive
+                ? aiAnalysisService.analyzeReactive(postId, deadline)
+                : Mono.fromCallable(() -> aiAnalysisService.analyze(postId, deadline)).subscribeOn(blockingScheduler);
+        // a branch timeout cut short by the deadline is a missed deadline too
+        return deadline.bound(analysis)
+                .onErrorMap(e -> Deadline.isExceeded(e) || deadline.isExpired(),
+                        e -> new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Analysis of post " + postId + " exceeded its deadline", e));
+    }
 
+    /**
+     * @param timeout the X-Request-Timeout header, may be null
+     * @return the budget of the request, capped at ai.analysis.max-deadline
+     */
+    private Duration budget(String timeout) {
+        if (timeout == null || timeout.isBlank()) {
+            return defaultDeadline;
+        }
+        Duration budget;
+        try {
+            budget = DurationStyle.detectAndParse(timeout.strip());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid " + TIMEOUT_HEADER + " header: " + timeout);
+        }
+        if (budget.isNegative() || budget.isZero()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, TIMEOUT_HEADER + " must be positive");
+        }
+        return budget.compareTo(maxDeadline) > 0 ? maxDeadline : budget;
+    }
 
 }
@@ -0,0 +1,57 @@
+package com.ai.aimicroservice.controller;
+
+import com.ai.aimicroservice.consumer.BrokerFullException;
+import com.ai.aimicroservice.consumer.EventBroker;
+import com.ai.aimicroservice.consumer.PostEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/ai/events")
+public class EventController {
+
+    private final EventBroker eventBroker;
+    private final boolean consumerEnabled;
+
+    public EventController(EventBroker eventBroker, @Value("${ai.consumer.enabled:false}") boolean consumerEnabled) {
+        this.eventBroker = eventBroker;
+        this.consumerEnabled = consumerEnabled;
+    }
+
+    /**
+     * Publishes a post event to the embedded broker, the post is moderated asynchronously by the consumer
+     * The listing service does not wait for the moderation, a full broker answers 503 and the event has to be
+     * published again later. While the consumer is disabled nothing would take the event, every event answers 503.
+     * @param event the event, its id and publication time are set when missing
+     * @return 202 with the published event
+     */
+    @PostMapping
+    public ResponseEntity<PostEvent> publish(@RequestBody PostEvent event) {
+        if (!consumerEnabled) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "The event consumer is disabled");
+        }
+        if (event.postId() == null || event.postId().isBlank() || event.type() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "An event needs a type and a postId");
+        }
+        PostEvent published = new PostEvent(
+                event.id() == null ? UUID.randomUUID().toString() : event.id(),
+                event.type(),
+                event.postId(),
+                event.publishedAt() == null ? Instant.now() : event.publishedAt());
+        try {
+            eventBroker.publish(published);
+        } catch (BrokerFullException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e);
+        }
+        return ResponseEntity.accepted().body(published);
+    }
+}
@@ -0,0 +1,131 @@
+package com.ai.aimicroservice.controller;
+
+import com.ai.aimicroservice.admission.ProviderGate;
+import com.ai.aimicroservice.admission.ProviderGates;
+import com.ai.aimicroservice.archive.MediaArchiver;
+import com.ai.aimicroservice.client.DownstreamHttpClients;
+import com.ai.aimicroservice.consumer.ModerationConsumer;
+import com.ai.aimicroservice.image.ImageLabelIndex;
+import com.ai.aimicroservice.llm.CascadeLLM;
+import com.ai.aimicroservice.llm.LLMFactory;
+import com.ai.aimicroservice.llm.VerdictCache;
+import com.ai.aimicroservice.report.ReportOutbox;
+import com.ai.aimicroservice.store.VerdictStore;
+import com.ai.aimicroservice.text.NearDuplicateIndex;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/ai/stats")
+public class StatsController {
+
+    private final VerdictCache verdictCache;
+    private final ImageLabelIndex imageLabelIndex;
+    private final NearDuplicateIndex nearDuplicateIndex;
+    private final DownstreamHttpClients downstreamHttpClients;
+    private final ReportOutbox reportOutbox;
+    private final MediaArchiver mediaArchiver;
+    private final ProviderGates providerGates;
+    private final LLMFactory llmFactory;
+    private final ModerationConsumer moderationConsumer;
+    private final VerdictStore verdictStore;
+
+    public StatsController(VerdictCache verdictCache, ImageLabelIndex imageLabelIndex, NearDuplicateIndex nearDuplicateIndex,
+                           DownstreamHttpClients downstreamHttpClients,
+                           ReportOutbox reportOutbox, MediaArchiver mediaArchiver, ProviderGates providerGates, LLMFactory llmFactory,
+                           ModerationConsumer moderationConsumer, VerdictStore verdictStore) {
+        this.verdictCache = verdictCache;
+        this.imageLabelIndex = imageLabelIndex;
+        this.nearDuplicateIndex = nearDuplicateIndex;
+        this.downstreamHttpClients = downstreamHttpClients;
+        this.reportOutbox = reportOutbox;
+        this.mediaArchiver = mediaArchiver;
+        this.providerGates = providerGates;
+        this.llmFactory = llmFactory;
+        this.moderationConsumer = moderationConsumer;
+        this.verdictStore = verdictStore;
+    }
+
+    /**
+     * Hit/miss/eviction counters of the LLM verdict cache
+     */
+    @GetMapping("/verdict-cache")
+    public VerdictCache.Stats verdictCache() {
+        return verdictCache.stats();
+    }
+
+    /**
+     * Hit/miss/eviction counters of the perceptual-hash image label index
+     */
+    @GetMapping("/image-cache")
+    public ImageLabelIndex.Stats imageCache() {
+        return imageLabelIndex.stats();
+    }
+
+    /**
+     * Hit/miss/eviction counters of the MinHash near-duplicate description index
+     */
+    @GetMapping("/text-cache")
+    public NearDuplicateIndex.Stats textCache() {
+        return nearDuplicateIndex.stats();
+    }
+
+    /**
+     * Size, garbage and hit/miss counters of the persistent verdict store
+     */
+    @GetMapping("/verdict-store")
+    public VerdictStore.Stats verdictStore() {
+        return verdictStore.stats();
+    }
+
+    /**
+     * Connection pool and bulkhead utilization of the downstream HTTP clients
+     */
+    @GetMapping("/http")
+    public DownstreamHttpClients.Stats http() {
+        return downstreamHttpClients.stats();
+    }
+
+    /**
+     * Journaled, sent and pending counters of the report outbox
+     */
+    @GetMapping("/report-outbox")
+    public ReportOutbox.Stats reportOutbox() {
+        return reportOutbox.stats();
+    }
+
+    /**
+     * Queue depth, lag and move counters of the media archiver
+     */
+    @GetMapping("/archive")
+    public MediaArchiver.Stats archive() {
+        return mediaArchiver.stats();
+    }
+
+    /**
+     * Quotas, concurrency limit and throttling counters of the AI providers
+     */
+    @GetMapping("/admission")
+    public List<ProviderGate.Stats> admission() {
+        return providerGates.stats();
+    }
+
+    /**
+     * Calls, escalation rate and mean latency of each model of the LLM cascade, empty when it is not in use
+     */
+    @GetMapping("/llm-cascade")
+    public List<CascadeLLM.Stats> llmCascade() {
+        return llmFactory.cascadeStats().orElse(List.of());
+    }
+
+    /**
+     * Worker usage, event counters, backlog and lag of the event consumer
+     */
+    @GetMapping("/consumer")
+    public ModerationConsumer.Stats consumer() {
+        return moderationConsumer.stats();
+    }
+}
@@ -0,0 +1,102 @@
+package com.ai.aimicroservice.deadline;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Time budget of one moderation request
+ * Set once when the request comes in and handed down to every downstream call, so each call only gets what is
+ * left of the budget instead of its own full timeout.
+ */
+public final class Deadline {
+
+    private static final Deadline UNBOUNDED = new Deadline(Long.MAX_VALUE, false);
+
+    private final long expiresAt;
+    private final boolean bounded;
+
+    private Deadline(long expiresAt, boolean bounded) {
+        this.expiresAt = expiresAt;
+        this.bounded = bounded;
+    }
+
+    /**
+     * @param budget the time allowed from now
+     * @return a deadline expiring after the budget
+     */
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos(), true);
+    }
+
+    /**
+     * @return a deadline that never expires, for calls made outside of a moderation request
+     */
+    public static Deadline unbounded() {
+        return UNBOUNDED;
+    }
+
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    /**
+     * @return the time left, zero once expired
+     */
+    public Duration remaining() {
+        if (!bounded) return Duration.ofNanos(Long.MAX_VALUE);
+        return Duration.ofNanos(Math.max(0, expiresAt - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return bounded && expiresAt - System.nanoTime() <= 0;
+    }
+
+    /**
+     * @param timeout the timeout of a call
+     * @return the timeout, shortened to the time left if the deadline comes first
+     */
+    public Duration cap(Duration timeout) {
+        Duration remaining = remaining();
+        return remaining.compareTo(timeout) < 0 ? remaining : timeout;
+    }
+
+    /**
+     * Bounds a reactive call by the deadline, the time left is read when the call is subscribed
+     * @param call the call
+     * @return a Mono failing with a {@link DeadlineExceededException} once the deadline passes
+     */
+    public <T> Mono<T> bound(Mono<T> call) {
+        if (!bounded) return call;
+        return Mono.defer(() -> {
+            if (isExpired()) {
+                return Mono.error(new DeadlineExceededException());
+            }
+            return call.timeout(remaining(), Mono.error(new DeadlineExceededException()));
+        });
+    }
+
+    /**
+     * Blocks on a reactive call, at most until the deadline
+     * @param call the call
+     * @return the result of the call, null if it completes empty
+     */
+    public <T> T await(Mono<T> call) {
+        return bound(call).block();
+    }
+
+    /**
+     * @return whether the error, or one of its causes, is a missed deadline
+     */
+    public static boolean isExceeded(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeadlineExceededException) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return bounded ? "Deadline[remaining=" + remaining() + "]" : "Deadline[unbounded]";
+    }
+}
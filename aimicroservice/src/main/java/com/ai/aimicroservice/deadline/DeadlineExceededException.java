@@ -0,0 +1,11 @@
+package com.ai.aimicroservice.deadline;
+
+/**
+ * Thrown when a call is cut short because the time budget of the request is spent
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException() {
+        super("Request deadline exceeded");
+    }
+}
@@ -0,0 +1,50 @@
+package com.ai.aimicroservice.entity;
+
+public class AnalysisResult {
+
+    private String postId;
+    private Boolean allowed;
+    private String error;
+
+    public AnalysisResult() {
+    }
+
+    public AnalysisResult(String postId, Boolean allowed, String error) {
+        this.postId = postId;
+        this.allowed = allowed;
+        this.error = error;
+    }
+
+    public String getPostId() {
+        return postId;
+    }
+
+    public void setPostId(String postId) {
+        this.postId = postId;
+    }
+
+    public Boolean getAllowed() {
+        return allowed;
+    }
+
+    public void setAllowed(Boolean allowed) {
+        this.allowed = allowed;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "AnalysisResult{" +
+                "postId='" + postId + '\'' +
+                ", allowed=" + allowed +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,42 @@
+package com.ai.aimicroservice.image;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.nio.ByteBuffer;
+
+/**
+ * ImageIO stream reading straight from a ByteBuffer
+ * ImageIO.createImageInputStream would copy the bytes into its own cache, this reads the buffer in place
+ */
+public class ByteBufferImageInputStream extends ImageInputStreamImpl {
+
+    private final ByteBuffer buffer;
+
+    /**
+     * @param buffer the encoded image, read from its position to its limit
+     */
+    public ByteBufferImageInputStream(ByteBuffer buffer) {
+        this.buffer = buffer.slice();
+    }
+
+    @Override
+    public int read() {
+        if (streamPos >= buffer.limit()) return -1;
+        bitOffset = 0;
+        return buffer.get((int) streamPos++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (streamPos >= buffer.limit()) return -1;
+        bitOffset = 0;
+        int count = (int) Math.min(len, buffer.limit() - streamPos);
+        buffer.get((int) streamPos, b, off, count);
+        streamPos += count;
+        return count;
+    }
+
+    @Override
+    public long length() {
+        return buffer.limit();
+    }
+}
@@ -0,0 +1,177 @@
+package com.ai.aimicroservice.image;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.rekognition.model.Label;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Bounded index of Rekognition labels by perceptual hash
+ * A lookup returns the labels of the closest indexed image within the configured Hamming distance.
+ * Uses multi-index hashing: the 64-bit hash is split into 4 chunks of 16 bits, and by the pigeonhole principle
+ * two hashes within distance d share at least one chunk within distance d / 4, so only the buckets
+ * of those chunk values have to be scanned. Once full, the oldest images are evicted first.
+ */
+@Component
+public class ImageLabelIndex {
+
+    private static final int CHUNKS = 4;
+    private static final int CHUNK_BITS = 16;
+    private static final int MAX_DISTANCE = 15;
+
+    private final int maxSize;
+    private final int maxDistance;
+    // every 16-bit mask with at most maxDistance / CHUNKS bits set, xor-ed with a chunk to probe its neighbours
+    private final int[] probeMasks;
+
+    private final LongBucket[][] tables = new LongBucket[CHUNKS][1 << CHUNK_BITS];
+    // insertion-ordered, so the eldest entry is the oldest image
+    private final LinkedHashMap<Long, List<Label>> labelsByHash = new LinkedHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public ImageLabelIndex(@Value("${ai.image.cache.max-size:100000}") int maxSize,
+                           @Value("${ai.image.cache.max-distance:6}") int maxDistance) {
+        if (maxDistance < 0 || maxDistance > MAX_DISTANCE) {
+            throw new IllegalArgumentException("ai.image.cache.max-distance must be between 0 and " + MAX_DISTANCE);
+        }
+        this.maxSize = maxSize;
+        this.maxDistance = maxDistance;
+        this.probeMasks = probeMasks(maxDistance / CHUNKS);
+    }
+
+    /**
+     * Finds the labels of the closest near-duplicate image
+     * @param hash the perceptual hash of the image
+     * @return the labels, or empty if no indexed image is within the max distance
+     */
+    public Optional<List<Label>> find(long hash) {
+        List<Label> labels;
+        lock.readLock().lock();
+        try {
+            labels = nearest(hash);
+        } finally {
+            lock.readLock().unlock();
+        }
+        (labels == null ? misses : hits).increment();
+        return Optional.ofNullable(labels);
+    }
+
+    /**
+     * Indexes the labels of an image
+     * @param hash the perceptual hash of the image
+     * @param labels the labels detected by Rekognition
+     */
+    public void put(long hash, List<Label> labels) {
+        lock.writeLock().lock();
+        try {
+            if (labelsByHash.put(hash, List.copyOf(labels)) == null) {
+                for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                    int value = chunk(hash, chunk);
+                    if (tables[chunk][value] == null) {
+                        tables[chunk][value] = new LongBucket();
+                    }
+                    tables[chunk][value].add(hash);
+                }
+            }
+            Iterator<Map.Entry<Long, List<Label>>> eldest = labelsByHash.entrySet().iterator();
+            while (labelsByHash.size() > maxSize && eldest.hasNext()) {
+                long evicted = eldest.next().getKey();
+                eldest.remove();
+                for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                    tables[chunk][chunk(evicted, chunk)].remove(evicted);
+                }
+                evictions.increment();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Stats stats() {
+        int size;
+        lock.readLock().lock();
+        try {
+            size = labelsByHash.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size, maxSize);
+    }
+
+    private List<Label> nearest(long hash) {
+        List<Label> exact = labelsByHash.get(hash);
+        if (exact != null) {
+            return exact;
+        }
+
+        long best = 0;
+        int bestDistance = maxDistance + 1;
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            int value = chunk(hash, chunk);
+            for (int mask : probeMasks) {
+                LongBucket bucket = tables[chunk][value ^ mask];
+                if (bucket == null) continue;
+                for (int i = 0; i < bucket.size; i++) {
+                    int distance = Long.bitCount(hash ^ bucket.values[i]);
+                    if (distance < bestDistance) {
+                        best = bucket.values[i];
+                        bestDistance = distance;
+                    }
+                }
+            }
+        }
+        return bestDistance <= maxDistance ? labelsByHash.get(best) : null;
+    }
+
+    private static int chunk(long hash, int chunk) {
+        return (int) (hash >>> (chunk * CHUNK_BITS)) & ((1 << CHUNK_BITS) - 1);
+    }
+
+    private static int[] probeMasks(int radius) {
+        return IntStream.range(0, 1 << CHUNK_BITS)
+                .filter(mask -> Integer.bitCount(mask) <= radius)
+                .toArray();
+    }
+
+    /**
+     * Growable array of hashes, avoids boxing every indexed hash in the chunk tables
+     */
+    private static final class LongBucket {
+        private long[] values = new long[2];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void remove(long value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    values[i] = values[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size, int maxSize) {
+    }
+}
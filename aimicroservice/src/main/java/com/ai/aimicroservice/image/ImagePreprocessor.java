@@ -0,0 +1,142 @@
+package com.ai.aimicroservice.image;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+/**
+ * Shrinks images before they are sent to Rekognition
+ * Large uploads are decoded with subsampling (so a 12 MP photo is never fully decoded), downscaled to
+ * ai.image.preprocess.max-dimension, and re-encoded as a baseline JPEG without metadata.
+ * Images that are already small, cannot be decoded, or would not get smaller are passed through unchanged.
+ */
+@Component
+public class ImagePreprocessor {
+
+    private static final Logger log = LoggerFactory.getLogger(ImagePreprocessor.class);
+
+    private final boolean enabled;
+    private final int maxDimension;
+    private final float jpegQuality;
+    private final int passThroughBytes;
+
+    public ImagePreprocessor(@Value("${ai.image.preprocess.enabled:true}") boolean enabled,
+                             @Value("${ai.image.preprocess.max-dimension:1600}") int maxDimension,
+                             @Value("${ai.image.preprocess.jpeg-quality:0.85}") float jpegQuality,
+                             @Value("${ai.image.preprocess.pass-through-bytes:524288}") int passThroughBytes) {
+        this.enabled = enabled;
+        this.maxDimension = maxDimension;
+        this.jpegQuality = jpegQuality;
+        this.passThroughBytes = passThroughBytes;
+    }
+
+    /**
+     * Prepares an image for Rekognition
+     * @param imageBuffer the encoded image, from its position to its limit
+     * @return the payload to send, and the decoded image when it had to be decoded
+     */
+    public PreparedImage prepare(ByteBuffer imageBuffer) {
+        if (!enabled) {
+            return new PreparedImage(imageBuffer, null);
+        }
+        try (ImageInputStream input = new ByteBufferImageInputStream(imageBuffer)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return new PreparedImage(imageBuffer, null);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (Math.max(width, height) <= maxDimension && imageBuffer.remaining() <= passThroughBytes) {
+                    return new PreparedImage(imageBuffer, null);
+                }
+
+                // subsample while decoding, keeping the longest side at or above maxDimension
+                int step = Math.max(1, Math.max(width, height) / maxDimension);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage resized = resize(reader.read(0, param));
+
+                ByteBuffer encoded = encodeJpeg(resized);
+                if (encoded.remaining() >= imageBuffer.remaining()) {
+                    return new PreparedImage(imageBuffer, resized);
+                }
+                log.info("Image preprocessed: {}x{} {} bytes -> {}x{} {} bytes", width, height, imageBuffer.remaining(),
+                        resized.getWidth(), resized.getHeight(), encoded.remaining());
+                return new PreparedImage(encoded, resized);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not preprocess the image, sending it unchanged", e);
+            return new PreparedImage(imageBuffer, null);
+        }
+    }
+
+    /**
+     * Scales the image so its longest side is at most maxDimension, flattening transparency on white
+     */
+    private BufferedImage resize(BufferedImage source) {
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Encodes the image as a JPEG, only the pixels are written so no EXIF/ICC metadata is carried over
+     */
+    private ByteBuffer encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(image.getWidth() * image.getHeight() / 4);
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    /**
+     * @param payload the encoded image to send to Rekognition
+     * @param decoded the decoded image, null if the image was passed through without decoding it
+     */
+    public record PreparedImage(ByteBuffer payload, BufferedImage decoded) {
+    }
+}
@@ -0,0 +1,159 @@
+package com.ai.aimicroservice.image;
+
+import software.amazon.awssdk.services.rekognition.model.Label;
+import software.amazon.awssdk.services.rekognition.model.Parent;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compiled image label policy
+ * Label names are interned into ids once, rule membership is a bitset lookup and thresholds a float array lookup,
+ * so evaluating a request does not allocate. Allow and deny rules keep their own thresholds, so a label can be
+ * allowed from one confidence and denied from another.
+ * <p>
+ * Rules file format, one rule per line: {@code allow|deny <label name> [min confidence]}
+ * <p>
+ * A rule on the label itself takes precedence over rules on its parent categories (e.g. deny "Cannabis" beats allow "Plant").
+ * At the same level deny wins. The image is rejected if any label is denied, and allowed if at least one label is allowed.
+ * A label has at most one allow and one deny rule.
+ */
+public final class LabelPolicy {
+
+    // ordered so that the minimum of two verdicts applies deny precedence
+    private static final int DENY = 0;
+    private static final int ALLOW = 1;
+    private static final int NO_RULE = 2;
+
+    private final Map<String, Integer> ids;
+    private final BitSet allowed;
+    private final BitSet denied;
+    private final float[] allowConfidence;
+    private final float[] denyConfidence;
+    private final int ruleCount;
+
+    private LabelPolicy(Map<String, Integer> ids, BitSet allowed, BitSet denied, float[] allowConfidence,
+                        float[] denyConfidence, int ruleCount) {
+        this.ids = ids;
+        this.allowed = allowed;
+        this.denied = denied;
+        this.allowConfidence = allowConfidence;
+        this.denyConfidence = denyConfidence;
+        this.ruleCount = ruleCount;
+    }
+
+    /**
+     * Compiles the rules of a policy file
+     * @param lines the lines of the file, blank lines and lines starting with '#' are ignored
+     * @return the compiled policy
+     * @throws IllegalArgumentException if a rule is malformed or a label has two rules of the same action
+     */
+    public static LabelPolicy compile(List<String> lines) {
+        Map<String, Integer> ids = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        BitSet allowed = new BitSet();
+        BitSet denied = new BitSet();
+        float[] allowConfidence = new float[16];
+        float[] denyConfidence = new float[16];
+        int ruleCount = 0;
+
+        for (String raw : lines) {
+            String line = raw.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] parts = line.split("\\s+");
+            if (parts.length < 2) {
+                throw new IllegalArgumentException("Malformed label rule: " + line);
+            }
+            String action = parts[0].toLowerCase(Locale.ROOT);
+            // label names may contain spaces, e.g. "Potted Plant"
+            boolean hasThreshold = parts.length > 2 && isNumber(parts[parts.length - 1]);
+            String name = String.join(" ", Arrays.copyOfRange(parts, 1, hasThreshold ? parts.length - 1 : parts.length));
+            float threshold = hasThreshold ? Float.parseFloat(parts[parts.length - 1]) : 0F;
+
+            int id = ids.computeIfAbsent(name, n -> ids.size());
+            if (id >= allowConfidence.length) {
+                allowConfidence = Arrays.copyOf(allowConfidence, allowConfidence.length * 2);
+                denyConfidence = Arrays.copyOf(denyConfidence, denyConfidence.length * 2);
+            }
+            switch (action) {
+                case "allow" -> {
+                    if (allowed.get(id)) throw new IllegalArgumentException("Duplicate label rule: " + line);
+                    allowed.set(id);
+                    allowConfidence[id] = threshold;
+                }
+                case "deny" -> {
+                    if (denied.get(id)) throw new IllegalArgumentException("Duplicate label rule: " + line);
+                    denied.set(id);
+                    denyConfidence[id] = threshold;
+                }
+                default -> throw new IllegalArgumentException("Unknown label rule action: " + line);
+            }
+            ruleCount++;
+        }
+        return new LabelPolicy(ids, allowed, denied, allowConfidence, denyConfidence, ruleCount);
+    }
+
+    /**
+     * @return the number of rules of the policy
+     */
+    public int size() {
+        return ruleCount;
+    }
+
+    /**
+     * Evaluates the labels of an image
+     * @param labels the labels detected by Rekognition
+     * @return the decision, with the rule that made it
+     */
+    public Decision evaluate(List<Label> labels) {
+        Label allowedBy = null;
+        for (Label label : labels) {
+            float confidence = label.confidence() == null ? 0F : label.confidence();
+
+            // the rule on the label itself decides, its parent categories are only used without one
+            int verdict = verdict(label.name(), confidence);
+            if (verdict == NO_RULE && label.parents() != null) {
+                for (Parent parent : label.parents()) {
+                    int parentVerdict = verdict(parent.name(), confidence);
+                    if (parentVerdict != NO_RULE) verdict = Math.min(verdict, parentVerdict);
+                    if (verdict == DENY) break;
+                }
+            }
+
+            if (verdict == DENY) {
+                return new Decision(false, "denied label " + label.name());
+            }
+            if (verdict == ALLOW && allowedBy == null) {
+                allowedBy = label;
+            }
+        }
+        return allowedBy != null
+                ? new Decision(true, "allowed label " + allowedBy.name())
+                : new Decision(false, "no allowed label");
+    }
+
+    private int verdict(String name, float confidence) {
+        if (name == null) return NO_RULE;
+        Integer id = ids.get(name);
+        if (id == null) return NO_RULE;
+        if (denied.get(id) && confidence >= denyConfidence[id]) return DENY;
+        if (allowed.get(id) && confidence >= allowConfidence[id]) return ALLOW;
+        return NO_RULE;
+    }
+
+    private static boolean isNumber(String value) {
+        try {
+            Float.parseFloat(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    public record Decision(boolean allowed, String reason) {
+    }
+}
@@ -0,0 +1,75 @@
+package com.ai.aimicroservice.image;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.rekognition.model.Label;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Holds the current {@link LabelPolicy}
+ * The rules are compiled at startup and recompiled whenever the file changes, the policy is swapped atomically
+ * so a request always sees either the old or the new rules
+ */
+@Component
+public class LabelPolicyEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(LabelPolicyEngine.class);
+
+    private final Resource rules;
+    private volatile LabelPolicy policy = LabelPolicy.compile(List.of());
+    private volatile long lastModified = -1;
+
+    public LabelPolicyEngine(ResourceLoader resourceLoader,
+                             @Value("${ai.image.policy.location:classpath:assets/label-policy.txt}") String location) {
+        this.rules = resourceLoader.getResource(location);
+        reload();
+    }
+
+    /**
+     * Evaluates the labels of an image against the current policy
+     * @param labels the labels detected by Rekognition
+     * @return the decision
+     */
+    public LabelPolicy.Decision evaluate(List<Label> labels) {
+        return policy.evaluate(labels);
+    }
+
+    /**
+     * Reloads the rules if the file changed since the last load
+     * Only rules on the file system can change at runtime, classpath rules are loaded once
+     */
+    @Scheduled(fixedDelayString = "${ai.image.policy.reload-interval-ms:30000}")
+    public void reloadIfChanged() {
+        try {
+            if (rules.isFile() && rules.lastModified() != lastModified) {
+                reload();
+            }
+        } catch (IOException e) {
+            log.error("Failed to check label policy {}", rules, e);
+        }
+    }
+
+    /**
+     * Compiles the rules, keeping the current policy if the file cannot be read or is malformed
+     */
+    public synchronized void reload() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(rules.getInputStream(), StandardCharsets.UTF_8))) {
+            long modified = rules.isFile() ? rules.lastModified() : 0;
+            policy = LabelPolicy.compile(reader.lines().toList());
+            lastModified = modified;
+            log.info("Loaded {} label rules from {}", policy.size(), rules);
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Failed to load label policy {}", rules, e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.ai.aimicroservice.image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * 64-bit DCT perceptual hash (pHash) of an image
+ * Two hashes at a small Hamming distance come from visually similar images,
+ * even after re-encoding or resizing
+ */
+public final class PerceptualHash {
+
+    private static final int SIZE = 32;
+    private static final int LOW_FREQUENCIES = 8;
+    // images are decoded with subsampling down to roughly this size, so big uploads do not have to be fully decoded
+    private static final int DECODE_SIZE = 128;
+    private static final double[][] COSINES = new double[SIZE][SIZE];
+
+    static {
+        for (int u = 0; u < SIZE; u++) {
+            for (int x = 0; x < SIZE; x++) {
+                COSINES[u][x] = Math.cos((2 * x + 1) * u * Math.PI / (2.0 * SIZE));
+            }
+        }
+    }
+
+    private PerceptualHash() {
+    }
+
+    /**
+     * Computes the perceptual hash of an encoded image
+     * @param imageBytes the encoded image (any format supported by ImageIO)
+     * @return the 64-bit hash
+     * @throws IOException if the image cannot be decoded
+     */
+    public static long compute(byte[] imageBytes) throws IOException {
+        return compute(ByteBuffer.wrap(imageBytes));
+    }
+
+    /**
+     * Computes the perceptual hash of an encoded image, read in place from a buffer
+     * @param imageBuffer the encoded image (any format supported by ImageIO)
+     * @return the 64-bit hash
+     * @throws IOException if the image cannot be decoded
+     */
+    public static long compute(ByteBuffer imageBuffer) throws IOException {
+        return compute(decode(imageBuffer));
+    }
+
+    /**
+     * Computes the perceptual hash of a decoded image
+     * @param image the image
+     * @return the 64-bit hash
+     */
+    public static long compute(BufferedImage image) {
+        double[][] pixels = grayscale(image);
+
+        // the low frequencies of the DCT capture the structure of the image
+        double[] coefficients = new double[LOW_FREQUENCIES * LOW_FREQUENCIES];
+        for (int u = 0; u < LOW_FREQUENCIES; u++) {
+            for (int v = 0; v < LOW_FREQUENCIES; v++) {
+                double sum = 0;
+                for (int x = 0; x < SIZE; x++) {
+                    for (int y = 0; y < SIZE; y++) {
+                        sum += COSINES[u][x] * COSINES[v][y] * pixels[x][y];
+                    }
+                }
+                coefficients[u * LOW_FREQUENCIES + v] = sum;
+            }
+        }
+
+        // the DC coefficient is skipped for the median, it only carries the average brightness
+        double[] sorted = Arrays.copyOfRange(coefficients, 1, coefficients.length);
+        Arrays.sort(sorted);
+        double median = sorted[sorted.length / 2];
+
+        long hash = 0;
+        for (int i = 0; i < coefficients.length; i++) {
+            if (coefficients[i] > median) {
+                hash |= 1L << i;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return the number of differing bits between two hashes
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static BufferedImage decode(ByteBuffer imageBuffer) throws IOException {
+        try (ImageInputStream input = new ByteBufferImageInputStream(imageBuffer)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int step = Math.max(1, Math.min(reader.getWidth(0), reader.getHeight(0)) / DECODE_SIZE);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Area-averages the image down to SIZE x SIZE luminance values
+     */
+    private static double[][] grayscale(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] rgb = image.getRGB(0, 0, width, height, null, 0, width);
+
+        double[][] sums = new double[SIZE][SIZE];
+        int[][] counts = new int[SIZE][SIZE];
+        for (int y = 0; y < height; y++) {
+            int cellY = y * SIZE / height;
+            for (int x = 0; x < width; x++) {
+                int cellX = x * SIZE / width;
+                int pixel = rgb[y * width + x];
+                int r = (pixel >> 16) & 0xFF;
+                int g = (pixel >> 8) & 0xFF;
+                int b = pixel & 0xFF;
+                sums[cellX][cellY] += 0.299 * r + 0.587 * g + 0.114 * b;
+                counts[cellX][cellY]++;
+            }
+        }
+
+        double[][] pixels = new double[SIZE][SIZE];
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                // images smaller than SIZE leave some cells empty, borrow the cell of the nearest source pixel
+                int sourceX = counts[x][y] == 0 ? (x * width / SIZE) * SIZE / width : x;
+                int sourceY = counts[x][y] == 0 ? (y * height / SIZE) * SIZE / height : y;
+                pixels[x][y] = sums[sourceX][sourceY] / counts[sourceX][sourceY];
+            }
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,87 @@
+package com.ai.aimicroservice.image;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.rekognition.model.S3Object;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+
+import java.util.Optional;
+
+/**
+ * Resolves the image of a post to an S3 object Rekognition can read by itself
+ * With a reference, Rekognition fetches the image from S3 and the image bytes never go through this service.
+ * An image is either a name, the object prefix + name in the configured bucket, or an s3://bucket/key URI.
+ * Only objects of the configured bucket that exist and fit the Rekognition limit for S3 images get a reference,
+ * the others are analyzed from their bytes. The bucket must be in the region of the Rekognition client.
+ */
+@Component
+public class S3ImageLocator {
+
+    private static final Logger log = LoggerFactory.getLogger(S3ImageLocator.class);
+
+    private static final String SCHEME = "s3://";
+    /** Largest image Rekognition accepts from S3, the limit for image bytes is 5 MB */
+    static final long MAX_OBJECT_SIZE = 15L * 1024 * 1024;
+
+    private final S3AsyncClient s3AsyncClient;
+    private final boolean enabled;
+    private final String bucket;
+    private final String prefix;
+
+    public S3ImageLocator(S3AsyncClient s3AsyncClient,
+                          @Value("${ai.image.s3-reference.enabled:false}") boolean enabled,
+                          @Value("${ai.image.s3-reference.bucket:rekognitor-bucket}") String bucket,
+                          @Value("${ai.image.s3-reference.prefix:analyze/}") String prefix) {
+        this.s3AsyncClient = s3AsyncClient;
+        this.enabled = enabled;
+        this.bucket = bucket;
+        this.prefix = prefix;
+    }
+
+    /**
+     * @param image the image of a post
+     * @return a Mono emitting the S3 object of the image, empty if the image has to be sent as bytes
+     */
+    public Mono<S3Object> locate(String image) {
+        if (!enabled) return Mono.empty();
+        Optional<String> key = key(image);
+        if (key.isEmpty()) {
+            log.info("Image {} is not in bucket {}, sending its bytes", image, bucket);
+            return Mono.empty();
+        }
+        return Mono.fromFuture(() -> s3AsyncClient.headObject(HeadObjectRequest.builder().bucket(bucket).key(key.get()).build()))
+                .flatMap(head -> {
+                    Long size = head.contentLength();
+                    if (size != null && size > MAX_OBJECT_SIZE) {
+                        log.info("Image {} is too large for an S3 reference ({} bytes), sending its bytes", image, size);
+                        return Mono.empty();
+                    }
+                    return Mono.just(S3Object.builder().bucket(bucket).name(key.get()).build());
+                })
+                // a missing object or a denied access only costs the reference, the bytes path still works
+                .onErrorResume(e -> {
+                    log.warn("Could not check image {} in bucket {}, sending its bytes", image, bucket, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * @param image the image of a post
+     * @return the key of the image in the configured bucket, empty if the image is in another bucket
+     */
+    Optional<String> key(String image) {
+        if (image == null || image.isBlank()) return Optional.empty();
+        if (!image.startsWith(SCHEME)) {
+            return Optional.of(prefix + image);
+        }
+        int slash = image.indexOf('/', SCHEME.length());
+        if (slash < 0 || slash == image.length() - 1 || !image.substring(SCHEME.length(), slash).equals(bucket)) {
+            return Optional.empty();
+        }
+        return Optional.of(image.substring(slash + 1));
+    }
+}
@@ -0,0 +1,169 @@
+package com.ai.aimicroservice.lexicon;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton matching every lexicon term in a single pass over the text
+ * A term matches a whole word by default; a leading or trailing '*' lets it match inside a longer word,
+ * e.g. "fuck*" matches "fucking" and "*fuck*" matches "motherfucker"
+ */
+public final class AhoCorasick {
+
+    private final Term[] terms;
+    // per-node sorted transition keys and targets, searched with binary search
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    // indices of the terms ending at each node, including those reachable through failure links
+    private final int[][] outputs;
+
+    public AhoCorasick(List<String> entries) {
+        List<Term> parsed = new ArrayList<>();
+        for (String entry : entries) {
+            Term term = Term.parse(entry);
+            if (term != null) parsed.add(term);
+        }
+        this.terms = parsed.toArray(new Term[0]);
+
+        List<char[]> nodeKeys = new ArrayList<>();
+        List<int[]> nodeTargets = new ArrayList<>();
+        List<int[]> nodeOutputs = new ArrayList<>();
+        nodeKeys.add(new char[0]);
+        nodeTargets.add(new int[0]);
+        nodeOutputs.add(new int[0]);
+
+        for (int t = 0; t < terms.length; t++) {
+            int node = 0;
+            for (char c : terms[t].text().toCharArray()) {
+                int next = find(nodeKeys.get(node), nodeTargets.get(node), c);
+                if (next < 0) {
+                    next = nodeKeys.size();
+                    nodeKeys.add(new char[0]);
+                    nodeTargets.add(new int[0]);
+                    nodeOutputs.add(new int[0]);
+                    insert(nodeKeys, nodeTargets, node, c, next);
+                }
+                node = next;
+            }
+            nodeOutputs.set(node, append(nodeOutputs.get(node), t));
+        }
+
+        this.keys = nodeKeys.toArray(new char[0][]);
+        this.targets = nodeTargets.toArray(new int[0][]);
+        this.outputs = nodeOutputs.toArray(new int[0][]);
+        this.fail = new int[keys.length];
+
+        // breadth-first, so the failure target of a node is always resolved before the node itself
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int i = 0; i < keys[node].length; i++) {
+                char c = keys[node][i];
+                int child = targets[node][i];
+                int state = fail[node];
+                while (state != 0 && find(keys[state], targets[state], c) < 0) {
+                    state = fail[state];
+                }
+                int target = find(keys[state], targets[state], c);
+                fail[child] = target >= 0 && target != child ? target : 0;
+                outputs[child] = concat(outputs[child], outputs[fail[child]]);
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * @return the number of terms in the automaton
+     */
+    public int size() {
+        return terms.length;
+    }
+
+    /**
+     * Finds the first term occurring in a normalized text
+     * @param text the normalized text
+     * @return the matched term, without its wildcards
+     */
+    public Optional<String> findFirst(String text) {
+        int state = 0;
+        for (int end = 0; end < text.length(); end++) {
+            char c = text.charAt(end);
+            int next;
+            while ((next = find(keys[state], targets[state], c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = Math.max(next, 0);
+            for (int t : outputs[state]) {
+                Term term = terms[t];
+                int start = end + 1 - term.text().length();
+                if ((term.prefix() || isBoundary(text, start - 1)) && (term.suffix() || isBoundary(text, end + 1))) {
+                    return Optional.of(term.text());
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static boolean isBoundary(String text, int index) {
+        return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+
+    private static int find(char[] keys, int[] targets, char c) {
+        int i = Arrays.binarySearch(keys, c);
+        return i >= 0 ? targets[i] : -1;
+    }
+
+    private static void insert(List<char[]> nodeKeys, List<int[]> nodeTargets, int node, char c, int target) {
+        char[] keys = nodeKeys.get(node);
+        int[] targets = nodeTargets.get(node);
+        int at = -Arrays.binarySearch(keys, c) - 1;
+
+        char[] newKeys = new char[keys.length + 1];
+        int[] newTargets = new int[targets.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, at);
+        System.arraycopy(targets, 0, newTargets, 0, at);
+        newKeys[at] = c;
+        newTargets[at] = target;
+        System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+        System.arraycopy(targets, at, newTargets, at + 1, targets.length - at);
+
+        nodeKeys.set(node, newKeys);
+        nodeTargets.set(node, newTargets);
+    }
+
+    private static int[] append(int[] values, int value) {
+        int[] result = Arrays.copyOf(values, values.length + 1);
+        result[values.length] = value;
+        return result;
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        if (b.length == 0) return a;
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * @param text the normalized term
+     * @param prefix true if the term may be preceded by other letters
+     * @param suffix true if the term may be followed by other letters
+     */
+    private record Term(String text, boolean prefix, boolean suffix) {
+
+        static Term parse(String entry) {
+            boolean prefix = entry.startsWith("*");
+            boolean suffix = entry.endsWith("*") && entry.length() > 1;
+            String text = entry.substring(prefix ? 1 : 0, entry.length() - (suffix ? 1 : 0));
+            return text.isEmpty() ? null : new Term(text, prefix, suffix);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.ai.aimicroservice.lexicon;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Local profanity lexicon checked before the LLM
+ * The lexicon is loaded at startup, the automaton is swapped atomically on reload. Only a lexicon on the file system
+ * (ai.lexicon.location=file:...) is reloaded when it changes, the bundled classpath lexicon is loaded once.
+ */
+@Component
+public class LexiconFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(LexiconFilter.class);
+
+    private final Resource lexicon;
+    private final boolean enabled;
+    private volatile AhoCorasick automaton = new AhoCorasick(List.of());
+    private volatile long lastModified = -1;
+
+    public LexiconFilter(ResourceLoader resourceLoader,
+                         @Value("${ai.lexicon.location:classpath:assets/lexicon.txt}") String location,
+                         @Value("${ai.lexicon.enabled:true}") boolean enabled) {
+        this.lexicon = resourceLoader.getResource(location);
+        this.enabled = enabled;
+        if (enabled) {
+            reload();
+        }
+    }
+
+    /**
+     * Looks for a lexicon term in a text
+     * @param text the text to check
+     * @return the matched term if any
+     */
+    public Optional<String> match(String text) {
+        if (!enabled || text == null) return Optional.empty();
+        return automaton.findFirst(normalize(text));
+    }
+
+    /**
+     * Reloads the lexicon if the file changed since the last load
+     * Only lexicons on the file system can change at runtime, classpath lexicons are loaded once
+     */
+    @Scheduled(fixedDelayString = "${ai.lexicon.reload-interval-ms:30000}")
+    public void reloadIfChanged() {
+        if (!enabled) return;
+        try {
+            if (lexicon.isFile() && lexicon.lastModified() != lastModified) {
+                reload();
+            }
+        } catch (IOException e) {
+            log.error("Failed to check lexicon {}", lexicon, e);
+        }
+    }
+
+    /**
+     * Loads the lexicon, keeping the current automaton if the file cannot be read
+     */
+    public synchronized void reload() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(lexicon.getInputStream(), StandardCharsets.UTF_8))) {
+            long modified = lexicon.isFile() ? lexicon.lastModified() : 0;
+            List<String> entries = reader.lines()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .map(LexiconFilter::normalize)
+                    .toList();
+            automaton = new AhoCorasick(entries);
+            lastModified = modified;
+            log.info("Loaded {} lexicon terms from {}", automaton.size(), lexicon);
+        } catch (IOException e) {
+            log.error("Failed to load lexicon {}", lexicon, e);
+        }
+    }
+
+    /**
+     * Normalizes a text so that obfuscated spellings match the lexicon
+     * Strips accents, lower-cases, folds leetspeak digits/symbols to letters and squeezes runs of identical letters, so "fuuuck" matches "fuck"
+     * @param text the text to normalize
+     * @return the normalized text
+     */
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD).toLowerCase(Locale.ROOT);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            // symbols are only leetspeak inside a word, "seeds!" must keep its word boundary
+            boolean inWord = i + 1 < decomposed.length() && Character.isLetterOrDigit(decomposed.charAt(i + 1));
+            c = Character.isLetterOrDigit(c) || inWord ? fold(c) : c;
+            // terms are squeezed too, so "jackass" is stored as "jackas"
+            int length = normalized.length();
+            if (length > 0 && normalized.charAt(length - 1) == c && Character.isLetter(c)) {
+                continue;
+            }
+            normalized.append(c);
+        }
+        return normalized.toString();
+    }
+
+    private static char fold(char c) {
+        return switch (c) {
+            case '0' -> 'o';
+            case '1', '!', '|' -> 'i';
+            case '3' -> 'e';
+            case '4', '@' -> 'a';
+            case '5', '$' -> 's';
+            case '7', '+' -> 't';
+            case '8' -> 'b';
+            default -> c;
+        };
+    }
+}
@@ -0,0 +1,17 @@
+package com.ai.aimicroservice.llm;
+
+import java.util.List;
+
+/**
+ * An LLM able to analyse several texts in a single request
+ */
+public interface BatchLLM extends LLM {
+
+    /**
+     * Analyse several texts for compliance in a single request
+     * @param texts the texts to analyse
+     * @return the raw response, a JSON array with one {"id", "verdict", "reasoning"} object per text, the id being
+     * the position of the text in the list
+     */
+    String generateBatchTextAnalysis(List<String> texts);
+}
@@ -0,0 +1,219 @@
+package com.ai.aimicroservice.llm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups concurrent analyses into multi-item requests to a {@link BatchLLM}
+ * Texts are collected until the batch is full or the oldest one has waited for the window, then sent in one prompt.
+ * The JSON answer is split back to the waiting callers, items missing from it or a response that cannot be parsed
+ * fall back to single requests, so a caller always gets a verdict-last response.
+ */
+public class BatchingLLM implements LLM, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchingLLM.class);
+
+    private final BatchLLM delegate;
+    private final ObjectMapper objectMapper;
+    private final int maxBatchSize;
+    private final Duration window;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("llm-batch-timer").daemon().factory());
+    // model calls are blocking, one virtual thread per batch
+    private final ExecutorService sender = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("llm-batch-", 0).factory());
+
+    private final Object lock = new Object();
+    private List<Pending> batch = new ArrayList<>();
+    private ScheduledFuture<?> flush;
+
+    public BatchingLLM(BatchLLM delegate, ObjectMapper objectMapper, int maxBatchSize, Duration window) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.delegate = delegate;
+        this.objectMapper = objectMapper;
+        this.maxBatchSize = maxBatchSize;
+        this.window = window;
+    }
+
+    @Override
+    public String generateTextAnalysis(String text) {
+        try {
+            return submit(text).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Text analysis was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public Mono<String> generateTextAnalysisAsync(String text) {
+        return Mono.fromFuture(() -> submit(text));
+    }
+
+    @Override
+    public String version() {
+        return delegate.version();
+    }
+
+    /**
+     * Adds a text to the current batch, the batch is sent when full or when its window elapses
+     * @param text the text to analyse
+     * @return a future completing with the response of the analysis with TRUE or FALSE at the end
+     */
+    CompletableFuture<String> submit(String text) {
+        Pending pending = new Pending(text, new CompletableFuture<>());
+        List<Pending> full = null;
+        synchronized (lock) {
+            batch.add(pending);
+            if (batch.size() >= maxBatchSize) {
+                full = takeBatch();
+            } else if (batch.size() == 1) {
+                flush = timer.schedule(this::flushWindow, window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return pending.response();
+    }
+
+    private void flushWindow() {
+        List<Pending> expired;
+        synchronized (lock) {
+            if (batch.isEmpty()) return;
+            expired = takeBatch();
+        }
+        dispatch(expired);
+    }
+
+    private List<Pending> takeBatch() {
+        List<Pending> taken = batch;
+        batch = new ArrayList<>(maxBatchSize);
+        if (flush != null) {
+            flush.cancel(false);
+            flush = null;
+        }
+        return taken;
+    }
+
+    private void dispatch(List<Pending> items) {
+        sender.execute(() -> send(items));
+    }
+
+    private void send(List<Pending> items) {
+        if (items.size() == 1) {
+            sendSingle(items.get(0));
+            return;
+        }
+
+        String[] responses;
+        try {
+            responses = split(delegate.generateBatchTextAnalysis(items.stream().map(Pending::text).toList()), items.size());
+        } catch (RuntimeException e) {
+            log.warn("Batch analysis of {} texts failed, falling back to single requests", items.size(), e);
+            responses = new String[items.size()];
+        }
+
+        int missing = 0;
+        for (int i = 0; i < items.size(); i++) {
+            Pending pending = items.get(i);
+            if (responses[i] != null) {
+                pending.response().complete(responses[i]);
+            } else {
+                missing++;
+                sender.execute(() -> sendSingle(pending));
+            }
+        }
+        if (missing > 0) {
+            log.info("{} of {} texts missing from the batch response, sent as single requests", missing, items.size());
+        }
+    }
+
+    private void sendSingle(Pending pending) {
+        try {
+            pending.response().complete(delegate.generateTextAnalysis(pending.text()));
+        } catch (RuntimeException e) {
+            pending.response().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Splits a batch response into verdict-last responses, in the order of the texts
+     * Models tend to wrap JSON in markdown fences, only the outermost array is read
+     * @param raw the response of the model
+     * @param size the number of texts in the batch
+     * @return the response of each text, null for the texts without a usable verdict
+     */
+    String[] split(String raw, int size) {
+        String[] responses = new String[size];
+        if (raw == null) return responses;
+        int start = raw.indexOf('[');
+        int end = raw.lastIndexOf(']');
+        if (start < 0 || end < start) {
+            log.warn("Batch response is not a JSON array: {}", raw);
+            return responses;
+        }
+
+        JsonNode items;
+        try {
+            items = objectMapper.readTree(raw.substring(start, end + 1));
+        } catch (Exception e) {
+            log.warn("Batch response is not valid JSON: {}", raw, e);
+            return responses;
+        }
+
+        for (JsonNode item : items) {
+            JsonNode id = item.path("id");
+            if (!id.canConvertToInt() || id.asInt() < 0 || id.asInt() >= size) continue;
+            Boolean allowed = verdict(item.path("verdict"));
+            if (allowed == null) continue;
+            String reasoning = item.path("reasoning").asText("").strip();
+            responses[id.asInt()] = reasoning + "\n" + (allowed ? "TRUE" : "FALSE");
+        }
+        return responses;
+    }
+
+    private static Boolean verdict(JsonNode node) {
+        if (node.isBoolean()) return node.booleanValue();
+        if (node.isTextual()) {
+            String text = node.textValue().strip();
+            if (text.equalsIgnoreCase("true")) return true;
+            if (text.equalsIgnoreCase("false")) return false;
+        }
+        return null;
+    }
+
+    /**
+     * Sends what is left in the current batch and stops the threads once it is answered
+     */
+    @Override
+    public void close() {
+        flushWindow();
+        timer.shutdownNow();
+        sender.close();
+    }
+
+    private record Pending(String text, CompletableFuture<String> response) {
+    }
+}
@@ -0,0 +1,81 @@
+package com.ai.aimicroservice.llm;
+
+import com.ai.aimicroservice.verdict.TextVerdict;
+import reactor.core.publisher.Mono;
+
+/**
+ * Puts a {@link VerdictCache} in front of any LLM
+ */
+public class CachingLLM implements LLM {
+
+    private final LLM delegate;
+    private final VerdictCache cache;
+
+    public CachingLLM(LLM delegate, VerdictCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public String generateTextAnalysis(String text) {
+        String key = cache.key(version(), text);
+        String cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        String response = delegate.generateTextAnalysis(text);
+        if (cacheable(response)) {
+            cache.put(key, response);
+        }
+        return response;
+    }
+
+    @Override
+    public Mono<String> generateTextAnalysisAsync(String text) {
+        return Mono.defer(() -> {
+            String key = cache.key(version(), text);
+            String cached = cache.get(key);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            return delegate.generateTextAnalysisAsync(text)
+                    .doOnNext(response -> {
+                        if (cacheable(response)) {
+                            cache.put(key, response);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Streamed verdicts share the cache with full responses, they are stored in the verdict-last format
+     */
+    @Override
+    public Mono<TextVerdict> streamTextAnalysis(String text) {
+        return Mono.defer(() -> {
+            String key = cache.key(version(), text);
+            String cached = cache.get(key);
+            if (cached != null) {
+                return Mono.just(TextVerdict.parse(cached));
+            }
+            return delegate.streamTextAnalysis(text)
+                    .doOnNext(verdict -> {
+                        if (verdict.wellFormed()) {
+                            cache.put(key, verdict.reasoning() + "\n" + (verdict.allowed() ? "TRUE" : "FALSE"));
+                        }
+                    });
+        });
+    }
+
+    /**
+     * A malformed response is rejected by the caller, caching it would repeat that rejection until it expires
+     */
+    private static boolean cacheable(String response) {
+        return TextVerdict.parse(response).wellFormed();
+    }
+
+    @Override
+    public String version() {
+        return delegate.version();
+    }
+}
@@ -0,0 +1,175 @@
+package com.ai.aimicroservice.llm;
+
+import com.ai.aimicroservice.verdict.TextVerdict;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Routes each text through a cascade of models, from the fastest and cheapest to the largest
+ * A text only goes to the next model when the {@link CascadePolicy} does not trust the answer, so most texts get
+ * the latency and cost of the first model. The last model always has the final say.
+ */
+public class CascadeLLM implements LLM {
+
+    private static final Logger log = LoggerFactory.getLogger(CascadeLLM.class);
+
+    private final List<Tier> tiers;
+    private final CascadePolicy policy;
+
+    /**
+     * @param models the models, in escalation order
+     * @param policy decides when to escalate
+     * @param meterRegistry where the per-model latency and escalations are published
+     */
+    public CascadeLLM(List<Model> models, CascadePolicy policy, MeterRegistry meterRegistry) {
+        if (models.isEmpty()) {
+            throw new IllegalArgumentException("A cascade needs at least one model");
+        }
+        this.tiers = models.stream().map(model -> new Tier(model, meterRegistry)).toList();
+        this.policy = policy;
+    }
+
+    @Override
+    public String generateTextAnalysis(String text) {
+        String response = null;
+        for (int i = 0; i < tiers.size(); i++) {
+            Tier tier = tiers.get(i);
+            long start = System.nanoTime();
+            response = tier.model().llm().generateTextAnalysis(text);
+            tier.latency(System.nanoTime() - start);
+            if (!escalate(i, TextVerdict.parse(response))) {
+                break;
+            }
+        }
+        return response;
+    }
+
+    @Override
+    public Mono<String> generateTextAnalysisAsync(String text) {
+        return cascade(0, tier -> tier.model().llm().generateTextAnalysisAsync(text), TextVerdict::parse);
+    }
+
+    /**
+     * A text allowed by the verdict-first stream of a model comes without reasoning, so only malformed answers and
+     * rejections can be escalated
+     */
+    @Override
+    public Mono<TextVerdict> streamTextAnalysis(String text) {
+        return cascade(0, tier -> tier.model().llm().streamTextAnalysis(text), Function.identity());
+    }
+
+    private <T> Mono<T> cascade(int index, Function<Tier, Mono<T>> call, Function<T, TextVerdict> verdict) {
+        Tier tier = tiers.get(index);
+        return Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    return call.apply(tier).doOnNext(response -> tier.latency(System.nanoTime() - start));
+                })
+                .flatMap(response -> escalate(index, verdict.apply(response))
+                        ? cascade(index + 1, call, verdict)
+                        : Mono.just(response));
+    }
+
+    /**
+     * @return whether the verdict of the model at the given index goes to the next model
+     */
+    private boolean escalate(int index, TextVerdict verdict) {
+        if (index == tiers.size() - 1) {
+            return false;
+        }
+        String reason = policy.escalationReason(verdict);
+        if (reason == null) {
+            return false;
+        }
+        Tier tier = tiers.get(index);
+        tier.escalated(reason);
+        log.info("Escalating from {} to {}, answer {}", tier.model().name(), tiers.get(index + 1).model().name(), reason);
+        return true;
+    }
+
+    /**
+     * The answer depends on every model of the cascade and on the policy
+     */
+    @Override
+    public String version() {
+        return tiers.stream().map(tier -> tier.model().llm().version())
+                .collect(Collectors.joining(">", "cascade(", ")[" + policy.describe() + "]"));
+    }
+
+    /**
+     * @return the calls, escalations and mean latency of each model
+     */
+    public List<Stats> stats() {
+        List<Stats> stats = new ArrayList<>(tiers.size());
+        tiers.forEach(tier -> stats.add(tier.stats()));
+        return stats;
+    }
+
+    /**
+     * @param name the name of the model, used in logs and metrics
+     * @param llm the model
+     */
+    public record Model(String name, LLM llm) {
+    }
+
+    public record Stats(String model, long calls, long escalations, double escalationRate, double meanLatencyMillis) {
+    }
+
+    private static final class Tier {
+
+        private final Model model;
+        private final MeterRegistry meterRegistry;
+        private final Timer timer;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder escalations = new LongAdder();
+        private final LongAdder latencyNanos = new LongAdder();
+
+        Tier(Model model, MeterRegistry meterRegistry) {
+            this.model = model;
+            this.meterRegistry = meterRegistry;
+            this.timer = Timer.builder("llm.cascade.latency")
+                    .description("Latency of each model of the LLM cascade")
+                    .tag("model", model.name())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        Model model() {
+            return model;
+        }
+
+        void latency(long nanos) {
+            calls.increment();
+            latencyNanos.add(nanos);
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        void escalated(String reason) {
+            escalations.increment();
+            Counter.builder("llm.cascade.escalations")
+                    .description("Answers of a model of the LLM cascade sent to the next model")
+                    .tag("model", model.name())
+                    .tag("reason", reason)
+                    .register(meterRegistry)
+                    .increment();
+        }
+
+        Stats stats() {
+            long callCount = calls.sum();
+            long escalationCount = escalations.sum();
+            return new Stats(model.name(), callCount, escalationCount,
+                    callCount == 0 ? 0 : (double) escalationCount / callCount,
+                    callCount == 0 ? 0 : latencyNanos.sum() / 1_000_000d / callCount);
+        }
+    }
+}
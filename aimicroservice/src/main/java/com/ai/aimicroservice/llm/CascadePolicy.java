@@ -0,0 +1,60 @@
+package com.ai.aimicroservice.llm;
+
+import com.ai.aimicroservice.verdict.TextVerdict;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Decides when the answer of a model is not good enough and the text goes to the next, larger model
+ * A malformed answer, without a clean TRUE/FALSE line, is always escalated. An answer whose reasoning hedges
+ * ("unclear", "might be"...) is considered low-confidence and escalated too, and so are rejections when
+ * escalateOnReject is set, since a wrong rejection ends up as a report.
+ */
+public class CascadePolicy {
+
+    public static final String MALFORMED = "malformed";
+    public static final String UNCERTAIN = "uncertain";
+    public static final String REJECTED = "rejected";
+
+    private final boolean escalateOnReject;
+    private final Pattern uncertainty;
+
+    /**
+     * @param escalateOnReject whether every rejection is checked by the next model
+     * @param uncertaintyMarkers words or phrases of a reasoning that signal a low-confidence answer
+     */
+    public CascadePolicy(boolean escalateOnReject, List<String> uncertaintyMarkers) {
+        this.escalateOnReject = escalateOnReject;
+        List<String> markers = uncertaintyMarkers.stream().map(String::strip).filter(m -> !m.isEmpty()).toList();
+        this.uncertainty = markers.isEmpty() ? null : Pattern.compile(markers.stream()
+                .map(marker -> Pattern.quote(marker.toLowerCase(Locale.ROOT)))
+                .collect(Collectors.joining("|", "\\b(?:", ")\\b")));
+    }
+
+    /**
+     * @param verdict the verdict of a model
+     * @return why the verdict has to be checked by the next model, or null if it can be trusted
+     */
+    public String escalationReason(TextVerdict verdict) {
+        if (!verdict.wellFormed()) {
+            return MALFORMED;
+        }
+        if (uncertainty != null && uncertainty.matcher(verdict.reasoning().toLowerCase(Locale.ROOT)).find()) {
+            return UNCERTAIN;
+        }
+        if (escalateOnReject && !verdict.allowed()) {
+            return REJECTED;
+        }
+        return null;
+    }
+
+    /**
+     * @return a short description of the policy, part of the cache version of the cascade
+     */
+    String describe() {
+        return (escalateOnReject ? "reject," : "") + (uncertainty == null ? "" : Integer.toHexString(uncertainty.pattern().hashCode()));
+    }
+}
@@ -0,0 +1,160 @@
+package com.ai.aimicroservice.llm;
+
+import com.ai.aimicroservice.classifier.TextClassifier;
+import com.ai.aimicroservice.classifier.VerdictHistory;
+import com.ai.aimicroservice.verdict.TextVerdict;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Puts the embedded {@link TextClassifier} in front of an LLM
+ * Descriptions the classifier is confident about are decided locally, in microseconds, the others go to the LLM,
+ * whose verdicts are recorded to the {@link VerdictHistory} the classifier is trained from.
+ * Local rejections are off by default: a rejection is reported, so it should come with the reasoning of the LLM.
+ * Local verdicts returned by {@link #generateTextVerdict(String)} and its variants have the
+ * {@link TextVerdict.Source#CLASSIFIER} source, they are neither cached nor reused as verdicts of the LLM,
+ * whose version the classifier reports.
+ */
+public class ClassifierLLM implements LLM {
+
+    private final Supplier<Optional<TextClassifier>> classifier;
+    private final LLM fallback;
+    private final VerdictHistory history;
+    private final double threshold;
+    private final boolean localRejections;
+    private final Counter allowed;
+    private final Counter rejected;
+    private final Counter deferred;
+
+    /**
+     * @param classifier the current classifier, empty when none was trained
+     * @param fallback the LLM deciding the descriptions the classifier is not confident about
+     * @param history where the verdicts of the fallback are recorded
+     * @param threshold the probability of its prediction above which the classifier decides alone
+     * @param localRejections whether the classifier may reject descriptions alone
+     * @param meterRegistry the registry of the decision counters
+     */
+    public ClassifierLLM(Supplier<Optional<TextClassifier>> classifier, LLM fallback, VerdictHistory history,
+                         double threshold, boolean localRejections, MeterRegistry meterRegistry) {
+        if (threshold <= 0.5 || threshold > 1) {
+            throw new IllegalArgumentException("threshold must be in (0.5, 1]");
+        }
+        this.classifier = classifier;
+        this.fallback = fallback;
+        this.history = history;
+        this.threshold = threshold;
+        this.localRejections = localRejections;
+        this.allowed = decisions(meterRegistry, "allowed");
+        this.rejected = decisions(meterRegistry, "rejected");
+        this.deferred = decisions(meterRegistry, "deferred");
+    }
+
+    private static Counter decisions(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("llm.classifier.decisions")
+                .description("Descriptions decided by the embedded classifier, or deferred to the LLM")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String generateTextAnalysis(String text) {
+        TextVerdict local = decide(text);
+        if (local != null) {
+            return response(local);
+        }
+        String response = fallback.generateTextAnalysis(text);
+        record(text, TextVerdict.parse(response));
+        return response;
+    }
+
+    @Override
+    public Mono<String> generateTextAnalysisAsync(String text) {
+        return Mono.defer(() -> {
+            TextVerdict local = decide(text);
+            if (local != null) {
+                return Mono.just(response(local));
+            }
+            return fallback.generateTextAnalysisAsync(text)
+                    .doOnNext(response -> record(text, TextVerdict.parse(response)));
+        });
+    }
+
+    @Override
+    public TextVerdict generateTextVerdict(String text) {
+        TextVerdict local = decide(text);
+        if (local != null) {
+            return local;
+        }
+        TextVerdict verdict = fallback.generateTextVerdict(text);
+        record(text, verdict);
+        return verdict;
+    }
+
+    @Override
+    public Mono<TextVerdict> generateTextVerdictAsync(String text) {
+        return verdict(text, fallback::generateTextVerdictAsync);
+    }
+
+    @Override
+    public Mono<TextVerdict> streamTextAnalysis(String text) {
+        return verdict(text, fallback::streamTextAnalysis);
+    }
+
+    private Mono<TextVerdict> verdict(String text, Function<String, Mono<TextVerdict>> fallbackCall) {
+        return Mono.defer(() -> {
+            TextVerdict local = decide(text);
+            if (local != null) {
+                return Mono.just(local);
+            }
+            return fallbackCall.apply(text)
+                    .doOnNext(verdict -> record(text, verdict));
+        });
+    }
+
+    @Override
+    public String version() {
+        return fallback.version();
+    }
+
+    /**
+     * @return the verdict of the classifier, or null if the description goes to the LLM
+     */
+    TextVerdict decide(String text) {
+        Optional<TextClassifier> current = classifier.get();
+        if (current.isPresent() && text != null) {
+            double p = current.get().probabilityAllowed(text);
+            if (p >= threshold) {
+                allowed.increment();
+                return local(p, true);
+            }
+            if (localRejections && 1 - p >= threshold) {
+                rejected.increment();
+                return local(1 - p, false);
+            }
+        }
+        deferred.increment();
+        return null;
+    }
+
+    private static TextVerdict local(double confidence, boolean allowed) {
+        String reasoning = String.format(Locale.ROOT, "Decided by the embedded classifier (confidence %.3f).", confidence);
+        return new TextVerdict(allowed, reasoning, true, TextVerdict.Source.CLASSIFIER);
+    }
+
+    // the verdict-last format of the LLM responses
+    private static String response(TextVerdict verdict) {
+        return verdict.reasoning() + "\n" + (verdict.allowed() ? "TRUE" : "FALSE");
+    }
+
+    private void record(String text, TextVerdict verdict) {
+        if (history != null) {
+            history.record(text, verdict, fallback.version());
+        }
+    }
+}
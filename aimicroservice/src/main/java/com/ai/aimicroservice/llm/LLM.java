@@ -1,5 +1,9 @@
 package com.ai.aimicroservice.llm;
 
+import com.ai.aimicroservice.verdict.TextVerdict;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
 public interface LLM {
 
     /**
@@ -9,4 +13,56 @@ public interface LLM {
      * @return the response of the analysis with TRUE or FALSE at the end
      */
     String generateTextAnalysis(String text);
+
+    /**
+     * Non-blocking variant of {@link #generateTextAnalysis(String)}
+     * Models without a native async API run the blocking call on the bounded elastic scheduler
+     * @param text the text to analyse
+     * @return a Mono emitting the response of the analysis with TRUE or FALSE at the end
+     */
+    default Mono<String> generateTextAnalysisAsync(String text) {
+        return Mono.fromCallable(() -> generateTextAnalysis(text))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Typed variant of {@link #generateTextAnalysis(String)}
+     * Models that decide some texts without a response, like the embedded classifier, give those verdicts their own
+     * {@link TextVerdict.Source}, the others parse the response of the LLM
+     * @param text the text to analyse
+     * @return the verdict
+     */
+    default TextVerdict generateTextVerdict(String text) {
+        return TextVerdict.parse(generateTextAnalysis(text));
+    }
+
+    /**
+     * Non-blocking variant of {@link #generateTextVerdict(String)}
+     * @param text the text to analyse
+     * @return a Mono emitting the verdict
+     */
+    default Mono<TextVerdict> generateTextVerdictAsync(String text) {
+        return generateTextAnalysisAsync(text).map(TextVerdict::parse);
+    }
+
+    /**
+     * Verdict-first variant of {@link #generateTextVerdictAsync(String)}
+     * Models that can stream are asked for the verdict before the reasoning: an allowed text completes as soon as
+     * TRUE is received and the rest of the generation is cancelled, a rejected text waits for the reasoning,
+     * which goes into the report. Models without streaming parse the full response.
+     * @param text the text to analyse
+     * @return a Mono emitting the verdict
+     */
+    default Mono<TextVerdict> streamTextAnalysis(String text) {
+        return generateTextVerdictAsync(text);
+    }
+
+    /**
+     * Identifies the model and prompt producing the analysis
+     * Must change whenever the model or the prompt changes, so cached verdicts are not reused
+     * @return the version of the model and prompt
+     */
+    default String version() {
+        return getClass().getSimpleName();
+    }
 }
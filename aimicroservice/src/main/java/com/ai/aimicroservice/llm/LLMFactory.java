@@ -1,25 +1,130 @@
 package com.ai.aimicroservice.llm;
 
+import com.ai.aimicroservice.classifier.ClassifierModel;
+import com.ai.aimicroservice.classifier.VerdictHistory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 @Component
 public class LLMFactory {
 
     private final Mistral mistral;
+    private final VerdictCache verdictCache;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean cacheEnabled;
+    private final boolean batchEnabled;
+    private final int batchMaxSize;
+    private final Duration batchWindow;
+    private final List<String> cascadeModels;
+    private final CascadePolicy cascadePolicy;
+    private final ClassifierModel classifierModel;
+    private final VerdictHistory verdictHistory;
+    private final String classifierFallback;
+    private final double classifierThreshold;
+    private final boolean classifierLocalRejections;
+    private final Map<String, LLM> models = new ConcurrentHashMap<>();
+    private final List<BatchingLLM> batchers = new CopyOnWriteArrayList<>();
+    private volatile CascadeLLM cascade;
 
-    public LLMFactory(Mistral mistral) {
+    public LLMFactory(Mistral mistral, VerdictCache verdictCache, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                      ClassifierModel classifierModel, VerdictHistory verdictHistory,
+                      @Value("${ai.llm.cache.enabled:true}") boolean cacheEnabled,
+                      @Value("${ai.llm.batch.enabled:false}") boolean batchEnabled,
+                      @Value("${ai.llm.batch.max-size:16}") int batchMaxSize,
+                      @Value("${ai.llm.batch.window:20ms}") Duration batchWindow,
+                      @Value("${ai.llm.cascade.models:mistral-small-latest,mistral-large-latest}") List<String> cascadeModels,
+                      @Value("${ai.llm.cascade.escalate-on-reject:false}") boolean escalateOnReject,
+                      @Value("${ai.llm.cascade.uncertainty-markers:not sure,unclear,ambiguous,uncertain,cannot determine,might,possibly}") List<String> uncertaintyMarkers,
+                      @Value("${ai.classifier.fallback:mistral}") String classifierFallback,
+                      @Value("${ai.classifier.threshold:0.98}") double classifierThreshold,
+                      @Value("${ai.classifier.local-rejections:false}") boolean classifierLocalRejections) {
         this.mistral = mistral;
+        this.verdictCache = verdictCache;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.cacheEnabled = cacheEnabled;
+        this.batchEnabled = batchEnabled;
+        this.batchMaxSize = batchMaxSize;
+        this.batchWindow = batchWindow;
+        this.cascadeModels = cascadeModels;
+        this.cascadePolicy = new CascadePolicy(escalateOnReject, uncertaintyMarkers);
+        this.classifierModel = classifierModel;
+        this.verdictHistory = verdictHistory;
+        this.classifierFallback = classifierFallback;
+        this.classifierThreshold = classifierThreshold;
+        this.classifierLocalRejections = classifierLocalRejections;
     }
 
     /**
      * Creates an LLM
+     * "mistral" is the default Mistral model, "cascade" routes each text through ai.llm.cascade.models,
+     * from the first (fastest, cheapest) to the last, see {@link CascadeLLM}, "classifier" decides confident cases
+     * with the embedded classifier and sends the others to ai.classifier.fallback, see {@link ClassifierLLM}
      * @param model the name of the model
-     * @return the model
+     * @return the model, behind the verdict cache and the micro-batcher when enabled
      */
     public LLM getLLM(String model) {
-        if ("mistral".equalsIgnoreCase(model)) {
-            return mistral;
+        String name = model.toLowerCase(Locale.ROOT);
+        if (name.equals("classifier")) {
+            if (classifierFallback.equalsIgnoreCase("classifier")) {
+                throw new IllegalArgumentException("The classifier cannot be its own fallback");
+            }
+            // resolved first, computeIfAbsent cannot be nested; local verdicts are not cached, only the fallback's
+            LLM fallback = getLLM(classifierFallback);
+            return models.computeIfAbsent(name, n -> new ClassifierLLM(classifierModel::current, fallback, verdictHistory,
+                    classifierThreshold, classifierLocalRejections, meterRegistry));
+        }
+        if (!name.equals("mistral") && !name.equals("cascade")) {
+            throw new IllegalArgumentException("Unsupported LLM model: " + model);
         }
-        throw new IllegalArgumentException("Unsupported LLM model: " + model);
+        return models.computeIfAbsent(name, n -> cached(n.equals("cascade") ? createCascade() : batched(mistral)));
+    }
+
+    /**
+     * @return the per-model stats of the cascade, empty if it is not in use
+     */
+    public Optional<List<CascadeLLM.Stats>> cascadeStats() {
+        return Optional.ofNullable(cascade).map(CascadeLLM::stats);
+    }
+
+    private LLM createCascade() {
+        List<CascadeLLM.Model> tiers = cascadeModels.stream()
+                .map(String::strip)
+                .filter(name -> !name.isEmpty())
+                .map(name -> new CascadeLLM.Model(name, batched(mistral.withModel(name))))
+                .toList();
+        cascade = new CascadeLLM(tiers, cascadePolicy, meterRegistry);
+        return cascade;
+    }
+
+    // the cache sits in front of the batcher, so cache hits do not wait for the batch window
+    private LLM cached(LLM model) {
+        return cacheEnabled ? new CachingLLM(model, verdictCache) : model;
+    }
+
+    private LLM batched(BatchLLM model) {
+        if (!batchEnabled) {
+            return model;
+        }
+        BatchingLLM batching = new BatchingLLM(model, objectMapper, batchMaxSize, batchWindow);
+        batchers.add(batching);
+        return batching;
+    }
+
+    @PreDestroy
+    void close() {
+        batchers.forEach(BatchingLLM::close);
     }
-}
\ No newline at end of file
+}
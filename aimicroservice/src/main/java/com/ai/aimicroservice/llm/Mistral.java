@@ -1,45 +1,224 @@
 package com.ai.aimicroservice.llm;
 
+import com.ai.aimicroservice.admission.ProviderGate;
+import com.ai.aimicroservice.admission.ProviderGates;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.metadata.Usage;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.mistralai.MistralAiChatModel;
+import org.springframework.ai.mistralai.MistralAiChatOptions;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import com.ai.aimicroservice.verdict.TextVerdict;
+import com.ai.aimicroservice.verdict.VerdictFirstParser;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Component
-public class Mistral implements LLM {
+public class Mistral implements BatchLLM {
 
     private static final Logger log = LoggerFactory.getLogger(Mistral.class);
 
+    // bump whenever the prompt changes
+    private static final String PROMPT_VERSION = "1";
+
+    // rough token counts used to reserve the token quota, settled with the real usage when Mistral reports it
+    private static final int RULES_TOKENS = 300;
+    private static final int ANSWER_TOKENS = 100;
+    private static final int CHARS_PER_TOKEN = 4;
+
     private final MistralAiChatModel chatModel;
+    private final ProviderGate gate;
+    // null for the model of the chat model options
+    private final String model;
 
-    public Mistral(MistralAiChatModel chatModel) {
+    @Autowired
+    public Mistral(MistralAiChatModel chatModel, ProviderGates providerGates) {
+        this(chatModel, providerGates.create("mistral", Mistral::isThrottled), null);
+    }
+
+    private Mistral(MistralAiChatModel chatModel, ProviderGate gate, String model) {
         this.chatModel = chatModel;
+        this.gate = gate;
+        this.model = model;
+    }
+
+    /**
+     * The same prompts sent to another Mistral model, sharing the quotas of the account
+     * @param model the name of the model, e.g. mistral-small-latest
+     * @return a client of the model
+     */
+    public Mistral withModel(String model) {
+        return new Mistral(chatModel, gate, model);
     }
 
     @Override
     public String generateTextAnalysis(String text) {
-        ChatResponse response = chatModel.call(
-                new Prompt(
-                        """
-                        You are a strict compliance assistant for a marketplace that only allows legal seed selling.
-                        
-                        Task: Determine if a text is **directly about selling or describing legal seeds, vegetables, fruits, nuts, or flowers**, and check for any inappropriate language anywhere in the text.
-                    
-                        Rules:
-                        1. If the text contains any inappropriate words or profanity, the verdict is FALSE, regardless of the main topic.
-                        2. If the text is off-topic (electronics, hobbies, etc.), the verdict is FALSE.
-                        3. First provide a short reasoning (1–2 sentences).
-                        4. On the **next line**, output exactly TRUE or FALSE (uppercase) with no punctuation.
-                    
-                        Text: %s
-                        """.formatted(text)
-                )
-        );
+        ChatResponse response = call(prompt(text), estimateTokens(text.length(), 1));
 
         String content = response.getResult().getOutput().getText();
         log.info("Mistral result: {}", content);
         return content;
     }
+
+    /**
+     * Streams the answer of the model instead of waiting on a blocking call
+     * The chunks are joined back into the full response
+     */
+    @Override
+    public Mono<String> generateTextAnalysisAsync(String text) {
+        return stream(prompt(text), estimateTokens(text.length(), 1))
+                .map(Mistral::chunkText)
+                .collect(Collectors.joining())
+                .doOnNext(content -> log.info("Mistral result: {}", content));
+    }
+
+    /**
+     * Asks for the verdict first and stops streaming as soon as the text is known to be allowed
+     */
+    @Override
+    public Mono<TextVerdict> streamTextAnalysis(String text) {
+        return Mono.defer(() -> {
+            VerdictFirstParser parser = new VerdictFirstParser();
+            return stream(verdictFirstPrompt(text), estimateTokens(text.length(), 1))
+                    .map(Mistral::chunkText)
+                    .doOnNext(parser::append)
+                    // cancelling the stream closes the connection, Mistral stops generating the reasoning
+                    .takeUntil(chunk -> parser.allowed())
+                    .then(Mono.fromCallable(parser::result))
+                    .doOnNext(verdict -> log.info("Mistral streamed verdict: {}", verdict));
+        });
+    }
+
+    /**
+     * Sends all the texts in one prompt, the rules are only sent once
+     */
+    @Override
+    public String generateBatchTextAnalysis(List<String> texts) {
+        int chars = texts.stream().mapToInt(String::length).sum();
+        ChatResponse response = call(batchPrompt(texts), estimateTokens(chars, texts.size()));
+
+        String content = response.getResult().getOutput().getText();
+        log.info("Mistral batch result for {} texts: {}", texts.size(), content);
+        return content;
+    }
+
+    @Override
+    public String version() {
+        String name = model != null ? model : chatModel.getDefaultOptions() == null ? null : chatModel.getDefaultOptions().getModel();
+        return "mistral:" + name + ":" + PROMPT_VERSION;
+    }
+
+    /**
+     * Calls the model once admitted by the gate, the reserved tokens are settled with the usage of the response
+     */
+    private ChatResponse call(Prompt prompt, long estimatedTokens) {
+        ChatResponse response = gate.call(estimatedTokens, () -> chatModel.call(prompt));
+        Usage usage = response.getMetadata() == null ? null : response.getMetadata().getUsage();
+        if (usage != null && usage.getTotalTokens() != null) {
+            gate.settleTokens(estimatedTokens, usage.getTotalTokens());
+        }
+        return response;
+    }
+
+    private Flux<ChatResponse> stream(Prompt prompt, long estimatedTokens) {
+        return gate.wrapMany(estimatedTokens, Flux.defer(() -> chatModel.stream(prompt)));
+    }
+
+    private static long estimateTokens(int chars, int answers) {
+        return RULES_TOKENS + chars / CHARS_PER_TOKEN + (long) ANSWER_TOKENS * answers;
+    }
+
+    /**
+     * Mistral answers 429 when a quota is exceeded, the blocking client reports it as "429 - {body}"
+     */
+    private static boolean isThrottled(Throwable e) {
+        if (e instanceof WebClientResponseException response) {
+            return response.getStatusCode().value() == 429;
+        }
+        return (e instanceof NonTransientAiException || e instanceof TransientAiException)
+                && e.getMessage() != null && e.getMessage().startsWith("429");
+    }
+
+    private Prompt newPrompt(String content) {
+        return model == null ? new Prompt(content) : new Prompt(content, MistralAiChatOptions.builder().model(model).build());
+    }
+
+    private static String chunkText(ChatResponse chunk) {
+        if (chunk.getResult() == null || chunk.getResult().getOutput() == null) return "";
+        String text = chunk.getResult().getOutput().getText();
+        return text == null ? "" : text;
+    }
+
+    private Prompt verdictFirstPrompt(String text) {
+        return newPrompt(
+                """
+                You are a strict compliance assistant for a marketplace that only allows legal seed selling.
+                
+                Task: Determine if a text is **directly about selling or describing legal seeds, vegetables, fruits, nuts, or flowers**, and check for any inappropriate language anywhere in the text.
+            
+                Rules:
+                1. If the text contains any inappropriate words or profanity, the verdict is FALSE, regardless of the main topic.
+                2. If the text is off-topic (electronics, hobbies, etc.), the verdict is FALSE.
+                3. On the **first line**, output exactly TRUE or FALSE (uppercase) with no punctuation.
+                4. On the next line, provide a short reasoning (1–2 sentences).
+            
+                Text: %s
+                """.formatted(text)
+        );
+    }
+
+    private Prompt batchPrompt(List<String> texts) {
+        StringBuilder items = new StringBuilder("[");
+        for (int i = 0; i < texts.size(); i++) {
+            if (i > 0) items.append(",\n");
+            items.append("{\"id\": ").append(i).append(", \"text\": \"")
+                    .append(JsonStringEncoder.getInstance().quoteAsString(texts.get(i))).append("\"}");
+        }
+        items.append(']');
+
+        return newPrompt(
+                """
+                You are a strict compliance assistant for a marketplace that only allows legal seed selling.
+                
+                Task: For each text below, determine if it is **directly about selling or describing legal seeds, vegetables, fruits, nuts, or flowers**, and check for any inappropriate language anywhere in the text.
+                Each text is judged on its own, independently of the others.
+            
+                Rules:
+                1. If a text contains any inappropriate words or profanity, its verdict is false, regardless of the main topic.
+                2. If a text is off-topic (electronics, hobbies, etc.), its verdict is false.
+                3. Answer with a JSON array only, no markdown, with exactly one object per text:
+                   {"id": <the id of the text>, "verdict": true or false, "reasoning": "<short reasoning, 1–2 sentences>"}
+            
+                Texts (JSON): %s
+                """.formatted(items)
+        );
+    }
+
+    private Prompt prompt(String text) {
+        return newPrompt(
+                """
+                You are a strict compliance assistant for a marketplace that only allows legal seed selling.
+                
+                Task: Determine if a text is **directly about selling or describing legal seeds, vegetables, fruits, nuts, or flowers**, and check for any inappropriate language anywhere in the text.
+            
+                Rules:
+                1. If the text contains any inappropriate words or profanity, the verdict is FALSE, regardless of the main topic.
+                2. If the text is off-topic (electronics, hobbies, etc.), the verdict is FALSE.
+                3. First provide a short reasoning (1–2 sentences).
+                4. On the **next line**, output exactly TRUE or FALSE (uppercase) with no punctuation.
+            
+                Text: %s
+                """.formatted(text)
+        );
+    }
 }
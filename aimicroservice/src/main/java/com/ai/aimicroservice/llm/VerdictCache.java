@@ -0,0 +1,128 @@
+package com.ai.aimicroservice.llm;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded in-memory cache of LLM text analysis responses
+ * Entries are keyed by the model/prompt version and a hash of the normalized description,
+ * evicted in LRU order once the cache is full and expired after the TTL
+ */
+@Component
+public class VerdictCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+
+    // access-ordered, so the eldest entry is the least recently used one
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    @Autowired
+    public VerdictCache(@Value("${ai.llm.cache.max-size:10000}") int maxSize,
+                        @Value("${ai.llm.cache.ttl:1h}") Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    VerdictCache(int maxSize, Duration ttl, LongSupplier nanoClock) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Builds the cache key of a description for a given model
+     * @param version the model/prompt version, a new version never matches older entries
+     * @param text the description to analyse
+     * @return the cache key
+     */
+    public String key(String version, String text) {
+        return keyOfHash(version, hash(text));
+    }
+
+    /**
+     * @param version the model/prompt version
+     * @param textHash the hash of the description, see {@link #hash(String)}
+     * @return the cache key
+     */
+    public String keyOfHash(String version, String textHash) {
+        return version + ":" + textHash;
+    }
+
+    /**
+     * @param text a description
+     * @return the hex SHA-256 of the normalized description, equal for descriptions differing only in case or spacing
+     */
+    public static String hash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalize(text).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * @param key the cache key
+     * @return the cached response, or null if absent or expired
+     */
+    public synchronized String get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (nanoClock.getAsLong() - entry.createdAt() > ttlNanos) {
+            entries.remove(key);
+            evictions++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.response();
+    }
+
+    public synchronized void put(String key, String response) {
+        entries.put(key, new Entry(response, nanoClock.getAsLong()));
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, entries.size(), maxSize);
+    }
+
+    static String normalize(String text) {
+        if (text == null) return "";
+        return Normalizer.normalize(text, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    private record Entry(String response, long createdAt) {
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size, int maxSize) {
+    }
+}
@@ -0,0 +1,129 @@
+package com.ai.aimicroservice.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the moderation pipeline, published through the Actuator Prometheus endpoint
+ * moderation.stage: latency of each stage (post lookup, media fetch, Rekognition, LLM, report, ...), tagged with
+ * the stage and its outcome, with percentile histograms.
+ * moderation.verdicts: number of posts passed or rejected, and by which branch.
+ * moderation.media.size / moderation.rekognition.payload.size: size of the fetched images and of what is sent to Rekognition.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String POST_LOOKUP = "post_lookup";
+    public static final String TEXT = "text";
+    public static final String IMAGE = "image";
+    public static final String LLM = "llm";
+    public static final String MEDIA_FETCH = "media_fetch";
+    public static final String PREPROCESS = "preprocess";
+    public static final String REKOGNITION = "rekognition";
+    public static final String REPORT = "report";
+    public static final String TOTAL = "total";
+
+    public static final String PASS = "pass";
+    public static final String TEXT_REJECT = "text_reject";
+    public static final String IMAGE_REJECT = "image_reject";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> verdicts = new ConcurrentHashMap<>();
+    private final DistributionSummary mediaSize;
+    private final DistributionSummary rekognitionPayloadSize;
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.mediaSize = DistributionSummary.builder("moderation.media.size")
+                .description("Size of the images fetched from the media service")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.rekognitionPayloadSize = DistributionSummary.builder("moderation.rekognition.payload.size")
+                .description("Size of the images sent to Rekognition, after preprocessing")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * @return metrics backed by an in-memory registry, for components created outside of Spring
+     */
+    public static PipelineMetrics noop() {
+        return new PipelineMetrics(new SimpleMeterRegistry());
+    }
+
+    /**
+     * Times a blocking stage
+     * @param stage the stage name
+     * @param call the stage
+     * @return the result of the stage
+     */
+    public <T> T time(String stage, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(timer(stage, outcome));
+        }
+    }
+
+    /**
+     * Times a reactive stage, from subscription to completion, error or cancellation
+     * @param stage the stage name
+     * @param call the stage
+     * @return the timed stage
+     */
+    public <T> Mono<T> time(String stage, Mono<T> call) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return call.doFinally(signal -> sample.stop(timer(stage, switch (signal) {
+                case ON_COMPLETE -> "success";
+                case CANCEL -> "cancelled";
+                default -> "error";
+            })));
+        });
+    }
+
+    /**
+     * Counts a moderation outcome: {@link #PASS}, {@link #TEXT_REJECT} or {@link #IMAGE_REJECT}
+     */
+    public void verdict(String outcome) {
+        verdicts.computeIfAbsent(outcome, o -> Counter.builder("moderation.verdicts")
+                .description("Moderation outcomes")
+                .tag("outcome", o)
+                .register(registry)).increment();
+    }
+
+    public void mediaSize(long bytes) {
+        mediaSize.record(bytes);
+    }
+
+    public void rekognitionPayloadSize(long bytes) {
+        rekognitionPayloadSize.record(bytes);
+    }
+
+    private Timer timer(String stage, String outcome) {
+        return timers.computeIfAbsent(stage + ":" + outcome, key -> Timer.builder("moderation.stage")
+                .description("Latency of each stage of the moderation pipeline")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(Duration.ofMinutes(1))
+                .register(registry));
+    }
+}
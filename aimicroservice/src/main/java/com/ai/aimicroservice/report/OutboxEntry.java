@@ -0,0 +1,12 @@
+package com.ai.aimicroservice.report;
+
+import com.ai.aimicroservice.entity.Report;
+
+/**
+ * A report waiting in the outbox to be sent to the report service
+ * @param seq the position of the entry in the journal, entries are sent in this order
+ * @param postId the id of the reported post
+ * @param report the report to send
+ */
+public record OutboxEntry(long seq, String postId, Report report) {
+}
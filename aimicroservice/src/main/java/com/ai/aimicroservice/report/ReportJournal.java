@@ -0,0 +1,280 @@
+package com.ai.aimicroservice.report;
+
+import com.ai.aimicroservice.entity.Report;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segmented journal of the reports waiting to be sent
+ * Each entry is written as a frame [length][crc32][json], a batch of entries is made durable with a single fsync.
+ * The sequence number of the last entry delivered to the report service is kept in a checkpoint file,
+ * segments whose entries are all delivered are deleted. After a crash a torn frame at the end of the last
+ * segment is truncated, everything after the checkpoint is replayed. A failed append is cut back right away
+ * so that the entries journaled after it survive the recovery.
+ */
+public class ReportJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportJournal.class);
+
+    private static final String SEGMENT_PREFIX = "reports-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT = "checkpoint";
+    private static final int HEADER_SIZE = 8;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final ObjectMapper objectMapper;
+    // first sequence number of the segment -> segment file
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+
+    private FileChannel active;
+    private long nextSeq = 1;
+    private long ackedSeq;
+
+    /**
+     * @param directory the directory holding the segments and the checkpoint, created if missing
+     * @param segmentSize the size after which a new segment is started
+     * @param objectMapper the mapper used to serialize the entries
+     */
+    public ReportJournal(Path directory, long segmentSize, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Opens the journal, recovering it after a crash if needed
+     * @return the entries that were journaled but not delivered yet, in order
+     * @throws IOException if the journal cannot be read
+     */
+    public synchronized List<OutboxEntry> open() throws IOException {
+        Files.createDirectories(directory);
+        Path checkpoint = directory.resolve(CHECKPOINT);
+        if (Files.exists(checkpoint)) {
+            ackedSeq = Long.parseLong(Files.readString(checkpoint).trim());
+        }
+        nextSeq = ackedSeq + 1;
+
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(ReportJournal::isSegment)
+                    .forEach(segment -> segments.put(firstSeq(segment), segment));
+        }
+
+        List<OutboxEntry> unacked = new ArrayList<>();
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            boolean last = segment.getKey().equals(segments.lastKey());
+            for (OutboxEntry entry : read(segment.getValue(), last)) {
+                nextSeq = Math.max(nextSeq, entry.seq() + 1);
+                if (entry.seq() > ackedSeq) {
+                    unacked.add(entry);
+                }
+            }
+        }
+
+        if (segments.isEmpty()) {
+            startSegment();
+        } else {
+            active = FileChannel.open(segments.lastEntry().getValue(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        log.info("Report journal opened in {}, {} report(s) to replay", directory, unacked.size());
+        return unacked;
+    }
+
+    /**
+     * Appends reports to the journal and fsyncs them once for the whole batch
+     * @param reports the reports to append, as post id and report
+     * @return the journaled entries, in order
+     * @throws IOException if the entries could not be made durable
+     */
+    public synchronized List<OutboxEntry> append(List<Map.Entry<String, Report>> reports) throws IOException {
+        if (active.size() >= segmentSize) {
+            active.close();
+            startSegment();
+        }
+
+        List<OutboxEntry> entries = new ArrayList<>(reports.size());
+        ByteBuffer[] frames = new ByteBuffer[reports.size()];
+        for (int i = 0; i < reports.size(); i++) {
+            OutboxEntry entry = new OutboxEntry(nextSeq + i, reports.get(i).getKey(), reports.get(i).getValue());
+            entries.add(entry);
+            frames[i] = frame(objectMapper.writeValueAsBytes(entry));
+        }
+
+        long start = active.size();
+        try {
+            long remaining = 0;
+            for (ByteBuffer frame : frames) remaining += frame.remaining();
+            while (remaining > 0) {
+                remaining -= write(active, frames);
+            }
+            active.force(false);
+        } catch (IOException e) {
+            discard(start);
+            throw e;
+        }
+        nextSeq += reports.size();
+        return entries;
+    }
+
+    /**
+     * Removes what a failed append may have written, later appends would otherwise land after a torn frame
+     * and be lost on recovery. If the segment cannot be cut back the journal rolls to a new segment.
+     */
+    private void discard(long start) {
+        try {
+            active.truncate(start);
+            active.force(false);
+        } catch (IOException e) {
+            Map.Entry<Long, Path> torn = segments.lastEntry();
+            log.warn("Could not truncate {} after a failed append, starting a new segment", torn.getValue(), e);
+            try {
+                active.close();
+            } catch (IOException closeError) {
+                e.addSuppressed(closeError);
+            }
+            try {
+                // the new segment would get the same name if the torn one holds no entry yet
+                if (torn.getKey() == nextSeq) {
+                    Files.deleteIfExists(torn.getValue());
+                    segments.remove(torn.getKey());
+                }
+                startSegment();
+            } catch (IOException startError) {
+                log.error("Could not start a new segment in {}", directory, startError);
+            }
+        }
+    }
+
+    /**
+     * Writes frames to the active segment, a seam for tests that need a failing disk
+     */
+    long write(FileChannel channel, ByteBuffer[] frames) throws IOException {
+        return channel.write(frames);
+    }
+
+    /**
+     * Records that every entry up to seq was delivered, and deletes the segments that are no longer needed
+     * @param seq the sequence number of the last delivered entry
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public synchronized void ack(long seq) throws IOException {
+        if (seq <= ackedSeq) return;
+        ackedSeq = seq;
+
+        Path tmp = directory.resolve(CHECKPOINT + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(Long.toString(seq).getBytes(StandardCharsets.US_ASCII)));
+            channel.force(false);
+        }
+        Files.move(tmp, directory.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // a segment ends right before the first entry of the next one
+        while (segments.size() > 1) {
+            Map.Entry<Long, Path> oldest = segments.firstEntry();
+            Long next = segments.higherKey(oldest.getKey());
+            if (next - 1 > ackedSeq) break;
+            Files.deleteIfExists(oldest.getValue());
+            segments.remove(oldest.getKey());
+        }
+    }
+
+    /**
+     * @return the number of segment files currently on disk
+     */
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (active != null) {
+            active.close();
+        }
+    }
+
+    private void startSegment() throws IOException {
+        Path segment = directory.resolve(SEGMENT_PREFIX + String.format("%020d", nextSeq) + SEGMENT_SUFFIX);
+        active = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segments.put(nextSeq, segment);
+    }
+
+    /**
+     * Reads the valid frames of a segment, a torn or corrupted frame ends the segment
+     * @param truncate whether to cut the segment at the first invalid frame, only done on the last segment
+     */
+    private List<OutboxEntry> read(Path segment, boolean truncate) throws IOException {
+        List<OutboxEntry> entries = new ArrayList<>();
+        long size = Files.size(segment);
+        long valid = 0;
+        try (InputStream file = Files.newInputStream(segment);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            while (true) {
+                int length = in.readInt();
+                int crc = in.readInt();
+                if (length <= 0 || valid + HEADER_SIZE + length > size) break;
+                byte[] payload = in.readNBytes(length);
+                if (payload.length < length || crc != crc(payload)) break;
+                entries.add(objectMapper.readValue(payload, OutboxEntry.class));
+                valid += HEADER_SIZE + length;
+            }
+        } catch (EOFException e) {
+            // end of the segment
+        }
+
+        if (valid < size) {
+            if (truncate) {
+                log.warn("Truncating torn entry at offset {} of {}", valid, segment);
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                    channel.force(false);
+                }
+            } else {
+                log.warn("Ignoring corrupted data after offset {} of {}", valid, segment);
+            }
+        }
+        return entries;
+    }
+
+    private static ByteBuffer frame(byte[] payload) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        frame.putInt(payload.length).putInt(crc(payload)).put(payload).flip();
+        return frame;
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long firstSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
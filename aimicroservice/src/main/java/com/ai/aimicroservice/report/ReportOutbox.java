@@ -0,0 +1,223 @@
+package com.ai.aimicroservice.report;
+
+import com.ai.aimicroservice.client.ReportServiceClient;
+import com.ai.aimicroservice.entity.Report;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Durable outbox between the moderation pipeline and the report service
+ * A report is considered submitted as soon as it is fsynced to the {@link ReportJournal}, the moderation
+ * request does not wait on the report service. Concurrent submissions are group committed: the writer
+ * thread journals everything queued since its last fsync with a single fsync.
+ * A background sender delivers the journaled reports in order, in batches, and backs off exponentially
+ * while the report service fails. Delivery is at least once: a batch cut short by a failure, or a crash
+ * before the checkpoint is written, is sent again.
+ */
+@Component
+public class ReportOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportOutbox.class);
+
+    private final ReportServiceClient reportServiceClient;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int sendConcurrency;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private final ReportJournal journal;
+    private final BlockingQueue<Submission> submissions = new LinkedBlockingQueue<>();
+    private final ConcurrentLinkedDeque<OutboxEntry> pending = new ConcurrentLinkedDeque<>();
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private final LongAdder journaled = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final Thread writer;
+
+    private volatile boolean running = true;
+    private volatile long nextAttempt;
+    private volatile Duration backoff;
+
+    public ReportOutbox(ReportServiceClient reportServiceClient, ObjectMapper objectMapper,
+                        @Value("${ai.report.outbox.enabled:true}") boolean enabled,
+                        @Value("${ai.report.outbox.dir:data/report-outbox}") Path directory,
+                        @Value("${ai.report.outbox.segment-size:16777216}") long segmentSize,
+                        @Value("${ai.report.outbox.batch-size:50}") int batchSize,
+                        @Value("${ai.report.outbox.send-concurrency:4}") int sendConcurrency,
+                        @Value("${ai.report.outbox.initial-backoff:500ms}") Duration initialBackoff,
+                        @Value("${ai.report.outbox.max-backoff:1m}") Duration maxBackoff) throws IOException {
+        this(reportServiceClient, new ReportJournal(directory, segmentSize, objectMapper), enabled, batchSize,
+                sendConcurrency, initialBackoff, maxBackoff);
+    }
+
+    ReportOutbox(ReportServiceClient reportServiceClient, ReportJournal journal, boolean enabled, int batchSize,
+                 int sendConcurrency, Duration initialBackoff, Duration maxBackoff) throws IOException {
+        this.reportServiceClient = reportServiceClient;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.sendConcurrency = sendConcurrency;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.backoff = initialBackoff;
+        this.nextAttempt = System.nanoTime();
+
+        this.journal = journal;
+        if (enabled) {
+            // reports journaled before a crash or a restart are sent again
+            pending.addAll(journal.open());
+            this.writer = Thread.ofVirtual().name("report-outbox-writer").start(this::writeLoop);
+        } else {
+            this.writer = null;
+        }
+    }
+
+    /**
+     * Submits a report for delivery
+     * @param postId the id of the reported post
+     * @param report the report
+     * @return a future completing once the report is durably journaled, or sent when the outbox is disabled
+     */
+    public CompletableFuture<Void> submit(String postId, Report report) {
+        if (!enabled) {
+            return reportServiceClient.postReportAsync(report, postId).toFuture();
+        }
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Report outbox is closed"));
+        }
+        Submission submission = new Submission(postId, report, new CompletableFuture<>());
+        submissions.add(submission);
+        // closed meanwhile: whoever takes the submission out of the queue completes it, the writer, close() or here
+        if (!running && submissions.remove(submission)) {
+            submission.journaled().completeExceptionally(new IllegalStateException("Report outbox is closed"));
+        }
+        return submission.journaled();
+    }
+
+    private void writeLoop() {
+        List<Submission> batch = new ArrayList<>();
+        while (running || !submissions.isEmpty()) {
+            try {
+                Submission first = submissions.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            submissions.drainTo(batch);
+
+            try {
+                List<OutboxEntry> entries = journal.append(batch.stream()
+                        .map(submission -> Map.entry(submission.postId(), submission.report()))
+                        .toList());
+                pending.addAll(entries);
+                journaled.add(entries.size());
+                batch.forEach(submission -> submission.journaled().complete(null));
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to journal {} report(s)", batch.size(), e);
+                batch.forEach(submission -> submission.journaled().completeExceptionally(e));
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Sends the next batch of journaled reports, unless a batch is already in flight or the sender is backing off
+     */
+    @Scheduled(fixedDelayString = "${ai.report.outbox.send-interval-ms:200}")
+    public void drain() {
+        if (!enabled || pending.isEmpty() || System.nanoTime() - nextAttempt < 0 || !sending.compareAndSet(false, true)) {
+            return;
+        }
+        List<OutboxEntry> batch = pending.stream().limit(batchSize).toList();
+
+        // entries are acknowledged in order, so only the prefix sent before the first failure counts
+        Flux.fromIterable(batch)
+                .flatMapSequential(entry -> reportServiceClient.postReportAsync(entry.report(), entry.postId())
+                        .thenReturn(true)
+                        .onErrorResume(e -> {
+                            log.warn("Failed to send the report of post {}", entry.postId(), e);
+                            return Mono.just(false);
+                        }), sendConcurrency)
+                .takeWhile(Boolean::booleanValue)
+                .count()
+                .doFinally(signal -> sending.set(false))
+                .subscribe(count -> onSent(batch, count.intValue()),
+                        e -> log.error("Report outbox sender failed", e));
+    }
+
+    private void onSent(List<OutboxEntry> batch, int count) {
+        if (count > 0) {
+            for (int i = 0; i < count; i++) {
+                pending.pollFirst();
+            }
+            sent.add(count);
+            try {
+                journal.ack(batch.get(count - 1).seq());
+            } catch (IOException e) {
+                // the reports will be sent again after a restart
+                log.error("Failed to checkpoint the report journal", e);
+            }
+        }
+
+        if (count < batch.size()) {
+            failures.increment();
+            nextAttempt = System.nanoTime() + backoff.toNanos();
+            log.warn("Report service unavailable, {} report(s) pending, retrying in {}", pending.size(), backoff);
+            backoff = backoff.multipliedBy(2).compareTo(maxBackoff) > 0 ? maxBackoff : backoff.multipliedBy(2);
+        } else {
+            backoff = initialBackoff;
+        }
+    }
+
+    @PreDestroy
+    void close() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            // not interrupted: an interrupt during a write would close the journal channel
+            writer.join();
+            Submission late;
+            while ((late = submissions.poll()) != null) {
+                late.journaled().completeExceptionally(new IllegalStateException("Report outbox is closed"));
+            }
+            try {
+                journal.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(journaled.sum(), sent.sum(), failures.sum(), pending.size());
+    }
+
+    public record Stats(long journaled, long sent, long failures, int pending) {
+    }
+
+    private record Submission(String postId, Report report, CompletableFuture<Void> journaled) {
+    }
+}
@@ -1,14 +1,40 @@
 package com.ai.aimicroservice.service;
 
 import com.ai.aimicroservice.client.PostServiceClient;
-import com.ai.aimicroservice.client.ReportServiceClient;
+import com.ai.aimicroservice.deadline.Deadline;
 import com.ai.aimicroservice.entity.Post;
 import com.ai.aimicroservice.entity.Report;
+import com.ai.aimicroservice.llm.VerdictCache;
+import com.ai.aimicroservice.metrics.PipelineMetrics;
+import com.ai.aimicroservice.report.ReportOutbox;
+import com.ai.aimicroservice.store.VerdictRecord;
+import com.ai.aimicroservice.store.VerdictStore;
+import com.ai.aimicroservice.verdict.ImageVerdict;
+import com.ai.aimicroservice.verdict.TextVerdict;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 @Service
 public class AIAnalysisService {
@@ -16,55 +42,255 @@ public class AIAnalysisService {
     private static final Logger log = LoggerFactory.getLogger(AIAnalysisService.class);
 
     private final PostServiceClient postServiceClient;
-    private final ReportServiceClient reportServiceClient;
+    private final ReportOutbox reportOutbox;
     private final TextAnalysisService textAnalysisService;
     private final ImageAnalysisService imageAnalysisService;
+    private final ExecutorService analysisExecutor;
+    private final PipelineMetrics metrics;
+    private final VerdictStore verdictStore;
+    private final Duration textTimeout;
+    private final Duration imageTimeout;
 
-    public AIAnalysisService(PostServiceClient postServiceClient, ReportServiceClient reportServiceClient, TextAnalysisService textAnalysisService, ImageAnalysisService imageAnalysisService) {
+    public AIAnalysisService(PostServiceClient postServiceClient, ReportOutbox reportOutbox, TextAnalysisService textAnalysisService, ImageAnalysisService imageAnalysisService,
+                             @Qualifier("analysisExecutor") ExecutorService analysisExecutor, PipelineMetrics metrics, VerdictStore verdictStore,
+                             @Value("${ai.analysis.text-timeout:30s}") Duration textTimeout,
+                             @Value("${ai.analysis.image-timeout:30s}") Duration imageTimeout) {
         this.postServiceClient = postServiceClient;
-        this.reportServiceClient = reportServiceClient;
+        this.reportOutbox = reportOutbox;
         this.textAnalysisService = textAnalysisService;
         this.imageAnalysisService = imageAnalysisService;
+        this.analysisExecutor = analysisExecutor;
+        this.metrics = metrics;
+        this.verdictStore = verdictStore;
+        this.textTimeout = textTimeout;
+        this.imageTimeout = imageTimeout;
     }
 
     /**
      * Analyze a post description and image
+     * The text and image analysis run concurrently, as soon as one of them rejects the post the other one is cancelled
+     * A post whose content was already moderated by the same model gets its recorded verdict, see {@link #historyVerdict}
      * @param postId the id of a post
+     * @param deadline the deadline of the request, every step only gets the time left
      * @return true if the post passes the check, false otherwise
      */
-    public boolean analyze(String postId) {
-        Post post = postServiceClient.getPost(postId);
+    public boolean analyze(String postId, Deadline deadline) {
+        return metrics.time(PipelineMetrics.TOTAL, () -> analyzePost(postId, deadline));
+    }
 
-        // text analysis
-        String textAnalysis = textAnalysisService.analyzeText(post.getDescription());
-        String textAnalysisReasoning = textAnalysisService.extractReasoning(textAnalysis);
-        boolean textVerdict = textAnalysisService.extractVerdictText(textAnalysis);
+    private boolean analyzePost(String postId, Deadline deadline) {
+        Post post = metrics.time(PipelineMetrics.POST_LOOKUP, () -> postServiceClient.getPost(postId, deadline));
+        Optional<Boolean> history = historyVerdict(postId, post);
+        if (history.isPresent()) {
+            return history.get();
+        }
 
-        // image analysis
-        String imageAnalysisResult = imageAnalysisService.analyzeImage(post.getImageName());
-        String imageAnalysisLabels = imageAnalysisService.extractLabels(imageAnalysisResult);
-        boolean imageVerdict = imageAnalysisService.extractVerdictImage(imageAnalysisResult);
+        CompletionService<BranchResult> completionService = new ExecutorCompletionService<>(analysisExecutor);
+        List<Branch> pending = new ArrayList<>(List.of(
+                submit(completionService, "text", deadline.cap(textTimeout),
+                        () -> metrics.time(PipelineMetrics.TEXT, () -> analyzeTextBranch(post.getDescription()))),
+                submit(completionService, "image", deadline.cap(imageTimeout),
+                        () -> metrics.time(PipelineMetrics.IMAGE, () -> analyzeImageBranch(post.getImageName(), deadline)))
+        ));
+        List<BranchResult> results = new ArrayList<>(pending.size());
 
-        // split the result
-        boolean analysisResult = true;
+        try {
+            while (!pending.isEmpty()) {
+                Branch next = pending.stream().min(Comparator.comparingLong(Branch::deadline)).orElseThrow();
+                Future<BranchResult> done = completionService.poll(next.deadline() - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    throw new TimeoutException(next.name() + " analysis timed out after " + next.timeout());
+                }
+                pending.removeIf(branch -> branch.future() == done);
 
-        if (textVerdict || imageVerdict) {
-            analysisResult = false;
-            report(postId, textAnalysisReasoning + " " + imageAnalysisLabels);
+                BranchResult result = done.get();
+                results.add(result);
+                if (!result.allowed()) {
+                    // the remaining branch can no longer change the outcome
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Analysis of post " + postId + " was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to analyze post " + postId, e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Failed to analyze post " + postId, e);
+        } finally {
+            pending.forEach(branch -> branch.future().cancel(true));
+        }
+
+        boolean analysisResult = results.stream().allMatch(BranchResult::allowed);
+        recordVerdict(results);
+        store(postId, post, results);
+
+        if (!analysisResult) {
+            if (!pending.isEmpty()) {
+                log.info("Post {} rejected early, cancelled {} analysis", postId, pending.get(0).name());
+            }
+            report(postId, results.stream().map(BranchResult::details).collect(Collectors.joining(" ")));
         }
 
         return analysisResult;
     }
 
+    /**
+     * Non-blocking variant of {@link #analyze(String, Deadline)}
+     * Every downstream call is asynchronous, so no thread is held while waiting on the post service, Mistral or Rekognition
+     * @param postId the id of a post
+     * @param deadline the deadline of the request, every step only gets the time left
+     * @return a Mono emitting true if the post passes the check, false otherwise
+     */
+    public Mono<Boolean> analyzeReactive(String postId, Deadline deadline) {
+        Mono<Boolean> analysis = metrics.time(PipelineMetrics.POST_LOOKUP, postServiceClient.getPostAsync(postId, deadline))
+                .flatMap(post -> {
+                    Optional<Boolean> history = historyVerdict(postId, post);
+                    if (history.isPresent()) {
+                        return Mono.just(history.get());
+                    }
+                    return analyzePostReactive(postId, post, deadline);
+                })
+                .onErrorMap(e -> new RuntimeException("Failed to analyze post " + postId, e));
+        return metrics.time(PipelineMetrics.TOTAL, analysis);
+    }
+
+    private Mono<Boolean> analyzePostReactive(String postId, Post post, Deadline deadline) {
+        Mono<BranchResult> text = metrics.time(PipelineMetrics.TEXT, textAnalysisService.analyzeTextAsync(post.getDescription()))
+                .map(this::textBranchResult)
+                .timeout(deadline.cap(textTimeout));
+        Mono<BranchResult> image = metrics.time(PipelineMetrics.IMAGE, imageAnalysisService.analyzeImageAsync(post.getImageName(), deadline))
+                .map(this::imageBranchResult)
+                .timeout(deadline.cap(imageTimeout));
+
+        // takeUntil cancels the remaining branch as soon as one rejects the post
+        return Flux.merge(text, image)
+                .takeUntil(result -> !result.allowed())
+                .collectList()
+                .flatMap(results -> {
+                    recordVerdict(results);
+                    store(postId, post, results);
+                    if (results.stream().allMatch(BranchResult::allowed)) {
+                        return Mono.just(true);
+                    }
+                    String description = results.stream().map(BranchResult::details).collect(Collectors.joining(" "));
+                    return metrics.time(PipelineMetrics.REPORT, Mono.fromFuture(() -> reportOutbox.submit(postId, buildReport(description))))
+                            .thenReturn(false);
+                });
+    }
+
+    private BranchResult analyzeTextBranch(String description) {
+        return textBranchResult(textAnalysisService.analyzeText(description));
+    }
+
+    private BranchResult analyzeImageBranch(String imageName, Deadline deadline) {
+        return imageBranchResult(imageAnalysisService.analyzeImage(imageName, deadline));
+    }
+
+    private BranchResult textBranchResult(TextVerdict verdict) {
+        return new BranchResult(verdict.allowed(), verdict.reasoning(), PipelineMetrics.TEXT_REJECT, verdict, null);
+    }
+
+    private BranchResult imageBranchResult(ImageVerdict verdict) {
+        return new BranchResult(verdict.allowed(), verdict.describeLabels(), PipelineMetrics.IMAGE_REJECT, null, verdict);
+    }
+
+    /**
+     * Looks up the verdict recorded for the post, usable if its description, image and model did not change since
+     * A rejection of the text recorded from the LLM stands, the recorded labels are checked against the current label policy,
+     * which may have changed. The post was reported when it was first rejected, it is not reported again.
+     * @return the verdict of the post, empty if it has to be analyzed
+     */
+    private Optional<Boolean> historyVerdict(String postId, Post post) {
+        Optional<VerdictRecord> found = verdictStore.find(postId);
+        if (found.isEmpty()) return Optional.empty();
+        VerdictRecord record = found.get();
+        if (!record.textHash().equals(VerdictCache.hash(post.getDescription()))
+                || !Objects.equals(record.imageName(), post.getImageName())
+                || !record.modelVersion().equals(textAnalysisService.version())) {
+            return Optional.empty();
+        }
+
+        Boolean verdict = null;
+        if (record.hasLlmTextVerdict() && !record.textAllowed()) {
+            metrics.verdict(PipelineMetrics.TEXT_REJECT);
+            verdict = false;
+        } else if (record.labels() != null && !imageAnalysisService.filterLabels(record.rekognitionLabels())) {
+            metrics.verdict(PipelineMetrics.IMAGE_REJECT);
+            verdict = false;
+        } else if (record.hasLlmTextVerdict() && record.labels() != null) {
+            metrics.verdict(PipelineMetrics.PASS);
+            verdict = true;
+        }
+        if (verdict != null) {
+            log.info("Post {} already moderated, reusing its recorded verdict: {}", postId, verdict);
+        }
+        return Optional.ofNullable(verdict);
+    }
+
+    /**
+     * Records the verdicts of the analysis, a branch cancelled by an early rejection is recorded as unknown
+     * Malformed LLM answers and empty label lists, usually failures, are not recorded
+     */
+    private void store(String postId, Post post, List<BranchResult> results) {
+        TextVerdict text = null;
+        ImageVerdict image = null;
+        for (BranchResult result : results) {
+            if (result.text() != null && result.text().wellFormed()) text = result.text();
+            if (result.image() != null && !result.image().labels().isEmpty()) image = result.image();
+        }
+        if (text == null && image == null) return;
+        verdictStore.put(new VerdictRecord(postId, post.getImageName(), VerdictCache.hash(post.getDescription()),
+                image == null ? null : image.perceptualHash(),
+                text == null ? null : text.allowed(), text == null ? null : text.reasoning(), text == null ? null : text.source(),
+                image == null ? null : VerdictRecord.storedLabels(image.labels()),
+                textAnalysisService.version(), System.currentTimeMillis()));
+    }
+
+    /**
+     * Counts the outcome of a moderation, a post rejected by both branches counts as a rejection for each of them
+     */
+    private void recordVerdict(List<BranchResult> results) {
+        boolean passed = true;
+        for (BranchResult result : results) {
+            if (!result.allowed()) {
+                metrics.verdict(result.rejectOutcome());
+                passed = false;
+            }
+        }
+        if (passed) {
+            metrics.verdict(PipelineMetrics.PASS);
+        }
+    }
+
+    private Branch submit(CompletionService<BranchResult> completionService, String name, Duration timeout, Callable<BranchResult> task) {
+        return new Branch(name, timeout, System.nanoTime() + timeout.toNanos(), completionService.submit(task));
+    }
+
     /**
      * Report a post due to inappropriate content
+     * Returns once the report is journaled in the outbox, it is sent to the report service in the background
      * @param postId the id of the post to report
      */
     private void report(String postId, String description) {
+        metrics.time(PipelineMetrics.REPORT, () -> reportOutbox.submit(postId, buildReport(description)).join());
+    }
+
+    private Report buildReport(String description) {
         Report report = new Report();
         report.setDescription(description);
         report.setType("ai");
         report.setDate(new Date());
-        reportServiceClient.postReport(report, postId);
+        return report;
+    }
+
+    private record Branch(String name, Duration timeout, long deadline, Future<BranchResult> future) {
+    }
+
+    /**
+     * @param text the verdict of the text branch, null for the image branch
+     * @param image the verdict of the image branch, null for the text branch
+     */
+    private record BranchResult(boolean allowed, String details, String rejectOutcome, TextVerdict text, ImageVerdict image) {
     }
 }
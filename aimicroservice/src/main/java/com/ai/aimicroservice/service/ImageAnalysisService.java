@@ -1,16 +1,38 @@
 package com.ai.aimicroservice.service;
 
+import com.ai.aimicroservice.admission.ProviderGate;
+import com.ai.aimicroservice.admission.ProviderGates;
+import com.ai.aimicroservice.archive.MediaArchiver;
+import com.ai.aimicroservice.client.MediaBuffer;
 import com.ai.aimicroservice.client.MediaServiceClient;
+import com.ai.aimicroservice.deadline.Deadline;
+import com.ai.aimicroservice.deadline.DeadlineExceededException;
+import com.ai.aimicroservice.image.ImageLabelIndex;
+import com.ai.aimicroservice.image.ImagePreprocessor;
+import com.ai.aimicroservice.image.LabelPolicy;
+import com.ai.aimicroservice.image.LabelPolicyEngine;
+import com.ai.aimicroservice.image.PerceptualHash;
+import com.ai.aimicroservice.image.S3ImageLocator;
+import com.ai.aimicroservice.metrics.PipelineMetrics;
+import com.ai.aimicroservice.verdict.ImageVerdict;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClient;
 import software.amazon.awssdk.services.rekognition.RekognitionClient;
 import software.amazon.awssdk.services.rekognition.model.*;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.Optional;
 
 @Service
 public class ImageAnalysisService {
@@ -18,132 +40,330 @@ public class ImageAnalysisService {
     private static final Logger log = LoggerFactory.getLogger(ImageAnalysisService.class);
 
     private final MediaServiceClient mediaServiceClient;
+    private final MediaArchiver mediaArchiver;
     private final RekognitionClient rekognitionClient;
+    private final RekognitionAsyncClient rekognitionAsyncClient;
+    private final ImageLabelIndex imageLabelIndex;
+    private final LabelPolicyEngine labelPolicyEngine;
+    private final ImagePreprocessor imagePreprocessor;
+    private final S3ImageLocator s3ImageLocator;
+    private final PipelineMetrics metrics;
+    private final ProviderGate rekognitionGate;
+    private final boolean cacheEnabled;
 
-    public ImageAnalysisService(MediaServiceClient mediaServiceClient, RekognitionClient rekognitionClient) {
+    public ImageAnalysisService(MediaServiceClient mediaServiceClient, MediaArchiver mediaArchiver, RekognitionClient rekognitionClient, RekognitionAsyncClient rekognitionAsyncClient,
+                                ImageLabelIndex imageLabelIndex, LabelPolicyEngine labelPolicyEngine, ImagePreprocessor imagePreprocessor,
+                                S3ImageLocator s3ImageLocator, PipelineMetrics metrics, ProviderGates providerGates,
+                                @Value("${ai.image.cache.enabled:true}") boolean cacheEnabled) {
         this.mediaServiceClient = mediaServiceClient;
+        this.mediaArchiver = mediaArchiver;
         this.rekognitionClient = rekognitionClient;
+        this.rekognitionAsyncClient = rekognitionAsyncClient;
+        this.imageLabelIndex = imageLabelIndex;
+        this.labelPolicyEngine = labelPolicyEngine;
+        this.imagePreprocessor = imagePreprocessor;
+        this.s3ImageLocator = s3ImageLocator;
+        this.metrics = metrics;
+        this.rekognitionGate = providerGates.create("rekognition", ImageAnalysisService::isThrottled);
+        this.cacheEnabled = cacheEnabled;
     }
 
     /**
      * Analyze an image to check if the context is respected
      * Also check for inappropriate content
+     * Images Rekognition can read from S3 are sent as a reference, see {@link S3ImageLocator}, the others are fetched
+     * from the media service and sent as bytes
      * @param image the image to analyze
-     * @return the response from the LLM
+     * @param deadline the deadline of the request, bounding the fetch and the Rekognition call
+     * @return the verdict
      */
-    String analyzeImage(String image) {
+    ImageVerdict analyzeImage(String image, Deadline deadline) {
         try {
-            byte[] bytes = mediaServiceClient.getS3ObjectBytes(image).get(); // blocks until result
-            mediaServiceClient.moveObjectToArchive(image); // file was processed
-            List<String> labels = detectLabels(bytes);
-            log.info("labels: {}", labels);
-            boolean result = filterLabels(labels);
-            log.info("result: {}", result);
-            return "Labels: " + labels + " | Allowed: " + result;
+            S3Object reference = deadline.await(s3ImageLocator.locate(image));
+            Optional<Detection> detection = reference == null ? Optional.empty() : detect(reference, deadline);
+            if (detection.isPresent()) {
+                mediaArchiver.archive(image); // moved once Rekognition has read it
+                return verdict(detection.get());
+            }
+            try (MediaBuffer media = deadline.await(fetch(image, deadline))) { // blocks until result or deadline
+                mediaArchiver.archive(image); // file was processed, moved in the background
+                return verdict(detect(media.buffer(), deadline));
+            }
         } catch (Exception e) {
             throw new RuntimeException("Failed to analyze image", e);
         }
     }
 
+    /**
+     * Non-blocking variant of {@link #analyzeImage(String, Deadline)}
+     * Uses the reactive media client and the async Rekognition client, no thread waits on I/O
+     * @param image the image to analyze
+     * @param deadline the deadline of the request, bounding the fetch and the Rekognition call
+     * @return a Mono emitting the verdict
+     */
+    Mono<ImageVerdict> analyzeImageAsync(String image, Deadline deadline) {
+        return s3ImageLocator.locate(image)
+                .flatMap(reference -> detectAsync(reference, deadline))
+                .doOnNext(detection -> mediaArchiver.archive(image)) // moved once Rekognition has read it
+                // the pooled buffer is given back once Rekognition is done with it, whatever the outcome
+                .switchIfEmpty(Mono.defer(() -> Mono.usingWhen(
+                        fetch(image, deadline),
+                        media -> {
+                            mediaArchiver.archive(image); // file was processed, moved in the background
+                            return detectAsync(media.buffer(), deadline);
+                        },
+                        media -> Mono.fromRunnable(media::close))))
+                .map(this::verdict)
+                .onErrorMap(e -> new RuntimeException("Failed to analyze image", e));
+    }
+
+    private ImageVerdict verdict(Detection detection) {
+        LabelPolicy.Decision decision = labelPolicyEngine.evaluate(detection.labels());
+        log.info("Label policy decision: {}", decision.reason());
+        return new ImageVerdict(decision.allowed(), detection.labels(), decision.reason(), detection.hash());
+    }
+
     /**
      * Detect labels of an image (from bytes) using AWS Rekognition
      * @param imageBytes
-     * @return a List<String> of identified labels
+     * @return the identified labels
      */
-    protected List<String> detectLabels(byte[] imageBytes) {
-        List<String> labelsList = new ArrayList<>();
+    protected List<Label> detectLabels(byte[] imageBytes) {
+        return detectLabels(ByteBuffer.wrap(imageBytes));
+    }
 
-        try {
-            SdkBytes bytes = SdkBytes.fromByteArray(imageBytes);
+    /**
+     * Detect labels of an image held in a buffer using AWS Rekognition
+     * Large images are downscaled first, small ones are handed to the SDK as is, without copying them to a byte array
+     * @param imageBuffer the encoded image, from its position to its limit
+     * @return the identified labels
+     */
+    protected List<Label> detectLabels(ByteBuffer imageBuffer) {
+        return detectLabels(imageBuffer, Deadline.unbounded());
+    }
 
-            Image image = Image.builder()
-                    .bytes(bytes)
-                    .build();
+    private List<Label> detectLabels(ByteBuffer imageBuffer, Deadline deadline) {
+        return detect(imageBuffer, deadline).labels();
+    }
 
-            DetectLabelsRequest request = DetectLabelsRequest.builder()
-                    .image(image)
-                    .maxLabels(10)
-                    .minConfidence(75F)
-                    .build();
+    private Detection detect(ByteBuffer imageBuffer, Deadline deadline) {
+        ImagePreprocessor.PreparedImage prepared = prepare(imageBuffer);
+        Long hash = perceptualHash(prepared);
+        Optional<List<Label>> cached = findNearDuplicate(hash);
+        if (cached.isPresent()) {
+            return new Detection(cached.get(), hash);
+        }
 
-            DetectLabelsResponse result = rekognitionClient.detectLabels(request);
-            for (Label label : result.labels()) {
-                labelsList.add(label.name() + " : " + label.confidence());
-            }
+        List<Label> labelsList = new ArrayList<>();
 
-        } catch (RekognitionException e) {
-            log.error("Rekognition error", e);
+        try {
+            metrics.rekognitionPayloadSize(prepared.payload().remaining());
+            DetectLabelsResponse result = metrics.time(PipelineMetrics.REKOGNITION,
+                    () -> rekognitionGate.call(() -> rekognitionClient.detectLabels(detectLabelsRequest(bytesImage(prepared.payload()), deadline))));
+            labelsList = result.labels();
+            index(hash, labelsList);
+        } catch (InvalidImageFormatException | ImageTooLargeException e) {
+            log.error("Rekognition cannot analyze the image", e);
         }
 
-        log.info("Detected labels: {}", labelsList);
+        log.info("Detected labels: {}", describe(labelsList));
 
-        return labelsList;
+        return new Detection(labelsList, hash);
     }
 
     /**
-     * Filters the labels from Rekognition to check if the picture is allowed
-     * @param labelsList the list of labels returned by Rekognition
-     * @return true if allowed, else false
+     * Detect labels of an image (from bytes) using the async AWS Rekognition client
+     * The image is prepared and hashed on the parallel scheduler: the media body is delivered on an event loop thread,
+     * which decoding, resizing and re-encoding would stall for every other connection it serves
+     * @param imageBuffer the encoded image, from its position to its limit
+     * @param deadline the deadline of the request
+     * @return a Mono emitting the detection
      */
-    protected boolean filterLabels(List<String> labelsList) {
+    private Mono<Detection> detectAsync(ByteBuffer imageBuffer, Deadline deadline) {
+        return Mono.fromCallable(() -> {
+                    ImagePreprocessor.PreparedImage prepared = prepare(imageBuffer);
+                    return new HashedImage(prepared, perceptualHash(prepared));
+                })
+                .subscribeOn(Schedulers.parallel())
+                .flatMap(image -> detectAsync(image, deadline));
+    }
+
+    private Mono<Detection> detectAsync(HashedImage image, Deadline deadline) {
+        Long hash = image.hash();
+        Optional<List<Label>> cached = findNearDuplicate(hash);
+        if (cached.isPresent()) {
+            return Mono.just(new Detection(cached.get(), hash));
+        }
 
-        List<String> adjustedLabelsList = new ArrayList<>();
+        ByteBuffer payload = image.prepared().payload();
+        metrics.rekognitionPayloadSize(payload.remaining());
+        return metrics.time(PipelineMetrics.REKOGNITION,
+                        rekognitionGate.wrap(Mono.fromFuture(() -> rekognitionAsyncClient.detectLabels(detectLabelsRequest(bytesImage(payload), deadline)))))
+                .map(DetectLabelsResponse::labels)
+                .doOnNext(labelsList -> index(hash, labelsList))
+                .onErrorResume(ImageAnalysisService::isImageError, e -> {
+                    log.error("Rekognition cannot analyze the image", e);
+                    return Mono.just(List.of());
+                })
+                .doOnNext(labelsList -> log.info("Detected labels: {}", describe(labelsList)))
+                .map(labelsList -> new Detection(labelsList, hash));
+    }
 
-        for (String label : labelsList) {
-            String cleanLabel = label.split(":")[0].trim(); // take only "Seed"
-            adjustedLabelsList.add(cleanLabel);
+    /**
+     * Detect labels of an image stored in S3, Rekognition reads the object itself
+     * The label cache is not used, it is keyed by a hash of the image content
+     * @return the detection, empty if Rekognition cannot read the object and the image has to be sent as bytes
+     */
+    private Optional<Detection> detect(S3Object reference, Deadline deadline) {
+        List<Label> labelsList = new ArrayList<>();
+        try {
+            DetectLabelsResponse result = metrics.time(PipelineMetrics.REKOGNITION,
+                    () -> rekognitionGate.call(() -> rekognitionClient.detectLabels(detectLabelsRequest(referenceImage(reference), deadline))));
+            labelsList = result.labels();
+        } catch (InvalidS3ObjectException e) {
+            log.warn("Rekognition cannot read s3://{}/{}, sending the image bytes", reference.bucket(), reference.name(), e);
+            return Optional.empty();
+        } catch (InvalidImageFormatException | ImageTooLargeException e) {
+            log.error("Rekognition cannot analyze the image", e);
         }
 
-        Set<String> allowedSeedLabels = Set.of(
-                "Seed", "Grain", "Plant", "Produce", "Vegetable",
-                "Fruit", "Nut", "Bean", "Sprout", "Flower", "Crop"
-        );
+        log.info("Detected labels: {}", describe(labelsList));
+        return Optional.of(new Detection(labelsList, null));
+    }
+
+    /**
+     * Non-blocking variant of {@link #detect(S3Object, Deadline)}
+     * @return a Mono emitting the detection, empty if the image has to be sent as bytes
+     */
+    private Mono<Detection> detectAsync(S3Object reference, Deadline deadline) {
+        return metrics.time(PipelineMetrics.REKOGNITION,
+                        rekognitionGate.wrap(Mono.fromFuture(() -> rekognitionAsyncClient.detectLabels(detectLabelsRequest(referenceImage(reference), deadline)))))
+                .map(DetectLabelsResponse::labels)
+                .onErrorResume(InvalidS3ObjectException.class, e -> {
+                    log.warn("Rekognition cannot read s3://{}/{}, sending the image bytes", reference.bucket(), reference.name(), e);
+                    return Mono.empty();
+                })
+                .onErrorResume(ImageAnalysisService::isImageError, e -> {
+                    log.error("Rekognition cannot analyze the image", e);
+                    return Mono.just(List.of());
+                })
+                .doOnNext(labelsList -> log.info("Detected labels: {}", describe(labelsList)))
+                .map(labelsList -> new Detection(labelsList, null));
+    }
+
+    private Mono<MediaBuffer> fetch(String image, Deadline deadline) {
+        return metrics.time(PipelineMetrics.MEDIA_FETCH, mediaServiceClient.getS3ObjectBuffer(image, deadline))
+                .doOnNext(media -> metrics.mediaSize(media.size()));
+    }
+
+    private ImagePreprocessor.PreparedImage prepare(ByteBuffer imageBuffer) {
+        return metrics.time(PipelineMetrics.PREPROCESS, () -> imagePreprocessor.prepare(imageBuffer));
+    }
 
-        Set<String> bannedLabels = Set.of("Marijuana", "Cannabis", "Weed", "Hemp");
+    /**
+     * Reuses the image decoded by the preprocessor when there is one, so the image is only decoded once
+     * @return the perceptual hash of the image, or null if the cache is disabled or the image cannot be decoded
+     */
+    private Long perceptualHash(ImagePreprocessor.PreparedImage prepared) {
+        if (!cacheEnabled) return null;
+        try {
+            return prepared.decoded() != null
+                    ? PerceptualHash.compute(prepared.decoded())
+                    : PerceptualHash.compute(prepared.payload());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not compute the perceptual hash of the image, skipping the label cache", e);
+            return null;
+        }
+    }
 
-        // First check if it contains any banned label
-        boolean hasBanned = adjustedLabelsList.stream()
-                .anyMatch(bannedLabels::contains);
+    private Optional<List<Label>> findNearDuplicate(Long hash) {
+        if (hash == null) return Optional.empty();
+        Optional<List<Label>> labels = imageLabelIndex.find(hash);
+        labels.ifPresent(l -> log.info("Near-duplicate image found, reusing labels: {}", describe(l)));
+        return labels;
+    }
 
-        if (hasBanned) {
-            log.info("Image contains a banned label");
-            return false;
+    private void index(Long hash, List<Label> labelsList) {
+        // an empty list usually means Rekognition failed, do not pin it to the image
+        if (hash != null && !labelsList.isEmpty()) {
+            imageLabelIndex.put(hash, labelsList);
         }
+    }
 
-        // Then check if it has at least one allowed label
+    /**
+     * Errors about the image itself, the same image would fail again: it is analyzed as an image without labels,
+     * which the label policy rejects. Throttling and other service errors fail the analysis, so it can be retried
+     * instead of reporting the post.
+     */
+    private static boolean isImageError(Throwable e) {
+        return e instanceof InvalidImageFormatException || e instanceof ImageTooLargeException;
+    }
 
-        return adjustedLabelsList.stream()
-                .anyMatch(allowedSeedLabels::contains);
+    /**
+     * Rekognition reports quota errors as ThrottlingException or ProvisionedThroughputExceededException
+     */
+    private static boolean isThrottled(Throwable e) {
+        return e instanceof AwsServiceException serviceException && serviceException.isThrottlingException();
     }
 
     /**
-     * Extracts the labels part from the LLM image analysis response.
-     * Example input: "Labels: [Seed, Plant] | Allowed: true"
-     * Output: "[Seed, Plant]"
+     * The SDK call, retries included, is given what is left of the deadline
      */
-    String extractLabels(String analysisResponse) {
-        if (analysisResponse == null) return "";
+    private DetectLabelsRequest detectLabelsRequest(Image image, Deadline deadline) {
+        DetectLabelsRequest.Builder request = DetectLabelsRequest.builder()
+                .image(image)
+                .maxLabels(10)
+                .minConfidence(75F);
+        if (deadline.isBounded()) {
+            Duration remaining = deadline.remaining();
+            if (remaining.isZero()) {
+                throw new DeadlineExceededException();
+            }
+            request.overrideConfiguration(c -> c.apiCallTimeout(remaining));
+        }
+        return request.build();
+    }
 
-        int start = analysisResponse.indexOf("Labels:");
-        int end = analysisResponse.indexOf("| Allowed");
+    private static Image bytesImage(ByteBuffer imageBuffer) {
+        return Image.builder()
+                .bytes(SdkBytes.fromByteBufferUnsafe(imageBuffer.duplicate()))
+                .build();
+    }
 
-        if (start == -1 || end == -1 || start >= end) return "";
+    private static Image referenceImage(S3Object reference) {
+        return Image.builder()
+                .s3Object(reference)
+                .build();
+    }
 
-        return analysisResponse.substring(start + "Labels:".length(), end).trim();
+    /**
+     * Filters the labels from Rekognition to check if the picture is allowed
+     * @param labelsList the list of labels returned by Rekognition
+     * @return true if allowed, else false
+     */
+    protected boolean filterLabels(List<Label> labelsList) {
+        LabelPolicy.Decision decision = labelPolicyEngine.evaluate(labelsList);
+        log.info("Label policy decision: {}", decision.reason());
+        return decision.allowed();
     }
 
     /**
-     * Extracts the verdict (Allowed true/false) from the LLM image analysis response.
-     * Example input: "Labels: [Seed, Plant] | Allowed: true"
-     * Output: true
+     * Formats labels as "Name : confidence" for the logs
      */
-    boolean extractVerdictImage(String analysisResponse) {
-        if (analysisResponse == null) return false;
+    static List<String> describe(List<Label> labelsList) {
+        List<String> described = new ArrayList<>(labelsList.size());
+        for (Label label : labelsList) {
+            described.add(label.name() + " : " + label.confidence());
+        }
+        return described;
+    }
 
-        int idx = analysisResponse.indexOf("| Allowed:");
-        if (idx == -1) return false;
+    /**
+     * @param hash the perceptual hash of the image, null if it was not computed
+     */
+    private record Detection(List<Label> labels, Long hash) {
+    }
 
-        String verdictStr = analysisResponse.substring(idx + "| Allowed:".length()).trim();
-        return "true".equalsIgnoreCase(verdictStr);
+    private record HashedImage(ImagePreprocessor.PreparedImage prepared, Long hash) {
     }
 }
@@ -1,29 +1,151 @@
 package com.ai.aimicroservice.service;
 
-import com.ai.aimicroservice.llm.Mistral;
+import com.ai.aimicroservice.lexicon.LexiconFilter;
+import com.ai.aimicroservice.llm.LLM;
+import com.ai.aimicroservice.llm.LLMFactory;
+import com.ai.aimicroservice.metrics.PipelineMetrics;
+import com.ai.aimicroservice.text.NearDuplicateIndex;
+import com.ai.aimicroservice.verdict.TextVerdict;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
 
 @Service
 public class TextAnalysisService {
 
     private static final Logger log = LoggerFactory.getLogger(TextAnalysisService.class);
 
-    private final Mistral mistral;
+    private final LLM llm;
+    private final LexiconFilter lexiconFilter;
+    private final PipelineMetrics metrics;
+    private final boolean streaming;
+    private final NearDuplicateIndex nearDuplicateIndex;
+
+    @Autowired
+    public TextAnalysisService(LLMFactory llmFactory, LexiconFilter lexiconFilter, PipelineMetrics metrics,
+                               NearDuplicateIndex nearDuplicateIndex,
+                               @Value("${ai.llm.model:mistral}") String model,
+                               @Value("${ai.llm.streaming:false}") boolean streaming,
+                               @Value("${ai.text.cache.enabled:true}") boolean cacheEnabled) {
+        this(llmFactory.getLLM(model), lexiconFilter, metrics, streaming, cacheEnabled ? nearDuplicateIndex : null);
+    }
 
-    public TextAnalysisService(Mistral mistral) {
-        this.mistral = mistral;
+    /**
+     * @param lexiconFilter rejects texts containing a profanity term without calling the LLM, null to skip it
+     * @param streaming whether to use the verdict-first streaming mode of the LLM, see {@link LLM#streamTextAnalysis(String)}
+     * @param nearDuplicateIndex reuses the verdicts of near-duplicate descriptions, null to always call the LLM
+     */
+    public TextAnalysisService(LLM llm, LexiconFilter lexiconFilter, PipelineMetrics metrics, boolean streaming,
+                               NearDuplicateIndex nearDuplicateIndex) {
+        this.llm = llm;
+        this.lexiconFilter = lexiconFilter;
+        this.metrics = metrics;
+        this.streaming = streaming;
+        this.nearDuplicateIndex = nearDuplicateIndex;
+    }
+
+    /**
+     * @return the version of the model and prompt producing the verdicts, see {@link LLM#version()}
+     */
+    public String version() {
+        return llm.version();
     }
 
     /**
      * Analyze a text to check if the context is respected
      * Also check for inappropriate language and illegal seeds/plants
+     * Texts matching the profanity lexicon are rejected right away, without calling the LLM, near-duplicates
+     * of a rejected text get its verdict, and a text already allowed as is gets the approval
      * @param description the text to analyze
-     * @return the response from the LLM
+     * @return the verdict
      */
-    protected String analyzeText(String description) {
-        return mistral.generateTextAnalysis(description);
+    protected TextVerdict analyzeText(String description) {
+        Optional<TextVerdict> lexiconVerdict = lexiconVerdict(description);
+        if (lexiconVerdict.isPresent()) {
+            return lexiconVerdict.get();
+        }
+        NearDuplicateIndex.Signature signature = signature(description);
+        Optional<TextVerdict> duplicateVerdict = duplicateVerdict(signature);
+        if (duplicateVerdict.isPresent()) {
+            return duplicateVerdict.get();
+        }
+        TextVerdict verdict = streaming
+                ? checked(metrics.time(PipelineMetrics.LLM, () -> llm.streamTextAnalysis(description).block()))
+                : checked(metrics.time(PipelineMetrics.LLM, () -> llm.generateTextVerdict(description)));
+        index(signature, verdict);
+        return verdict;
+    }
+
+    /**
+     * Non-blocking variant of {@link #analyzeText(String)}
+     * @param description the text to analyze
+     * @return a Mono emitting the verdict
+     */
+    protected Mono<TextVerdict> analyzeTextAsync(String description) {
+        Optional<TextVerdict> lexiconVerdict = lexiconVerdict(description);
+        if (lexiconVerdict.isPresent()) {
+            return Mono.just(lexiconVerdict.get());
+        }
+        NearDuplicateIndex.Signature signature = signature(description);
+        Optional<TextVerdict> duplicateVerdict = duplicateVerdict(signature);
+        if (duplicateVerdict.isPresent()) {
+            return Mono.just(duplicateVerdict.get());
+        }
+        Mono<TextVerdict> verdict = streaming
+                ? metrics.time(PipelineMetrics.LLM, llm.streamTextAnalysis(description)).map(this::checked)
+                : metrics.time(PipelineMetrics.LLM, llm.generateTextVerdictAsync(description)).map(this::checked);
+        return verdict.doOnNext(v -> index(signature, v));
+    }
+
+    /**
+     * Rejects the text without calling the LLM when it contains a lexicon term
+     * @param description the text to analyze
+     * @return the verdict, or empty if the text has to go to the LLM
+     */
+    private Optional<TextVerdict> lexiconVerdict(String description) {
+        if (lexiconFilter == null) return Optional.empty();
+        return lexiconFilter.match(description).map(term -> {
+            log.info("Description rejected by the lexicon, matched term: {}", term);
+            return TextVerdict.of(false, "The text contains inappropriate language (\"" + term + "\").")
+                    .withSource(TextVerdict.Source.LEXICON);
+        });
+    }
+
+    private NearDuplicateIndex.Signature signature(String description) {
+        return nearDuplicateIndex == null ? null : nearDuplicateIndex.signature(description);
+    }
+
+    /**
+     * Reuses the rejection of a near-duplicate of the text, reposted spam differs by a price or an emoji
+     * Approvals are only reused for the same text, see {@link NearDuplicateIndex}
+     * @param signature the signature of the text, null if the index is disabled
+     * @return the verdict, or empty if the text has to go to the LLM
+     */
+    private Optional<TextVerdict> duplicateVerdict(NearDuplicateIndex.Signature signature) {
+        if (signature == null) return Optional.empty();
+        return nearDuplicateIndex.find(signature).map(match -> {
+            log.info("Near-duplicate description found (similarity {}), reusing its verdict", match.similarity());
+            return match.verdict().withSource(TextVerdict.Source.NEAR_DUPLICATE);
+        });
+    }
+
+    // malformed responses are rejections by default, not verdicts to hand down to other descriptions
+    private void index(NearDuplicateIndex.Signature signature, TextVerdict verdict) {
+        if (signature != null && verdict.wellFormed()) {
+            nearDuplicateIndex.put(signature, verdict);
+        }
+    }
+
+    private TextVerdict checked(TextVerdict verdict) {
+        if (!verdict.wellFormed()) {
+            log.warn("LLM response has no TRUE/FALSE verdict line, rejecting the description: {}", verdict.reasoning());
+        }
+        return verdict;
     }
 
     /**
@@ -32,13 +154,7 @@ public class TextAnalysisService {
      * @return the reasoning part of the response
      */
     String extractReasoning(String llmResponse) {
-        if (llmResponse == null) return "";
-
-        String[] lines = llmResponse.split("\\r?\\n"); // split by line
-        if (lines.length == 0) return "";
-
-        // everything except the last line
-        return String.join(" ", java.util.Arrays.copyOf(lines, lines.length - 1)).trim();
+        return TextVerdict.parse(llmResponse).reasoning();
     }
 
     /**
@@ -47,12 +163,6 @@ public class TextAnalysisService {
      * @return true if verdict is TRUE, false if FALSE
      */
     boolean extractVerdictText(String llmResponse) {
-        if (llmResponse == null) return false;
-
-        String[] lines = llmResponse.split("\\r?\\n");
-        if (lines.length == 0) return false;
-
-        String verdictLine = lines[lines.length - 1].trim();
-        return "TRUE".equalsIgnoreCase(verdictLine);
+        return TextVerdict.parse(llmResponse).allowed();
     }
 }
@@ -0,0 +1,76 @@
+package com.ai.aimicroservice.store;
+
+import com.ai.aimicroservice.image.ImageLabelIndex;
+import com.ai.aimicroservice.llm.VerdictCache;
+import com.ai.aimicroservice.service.TextAnalysisService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Fills the in-memory caches from the verdict store at startup, so a fresh instance does not pay the LLM and
+ * Rekognition again for recently moderated content
+ * Text verdicts given by the current model version go to the verdict cache, labels to the image label index. The
+ * near-duplicate description index is not warmed, the store keeps hashes of the descriptions, not the descriptions.
+ */
+@Component
+public class CacheWarmer {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private final VerdictStore verdictStore;
+    private final VerdictCache verdictCache;
+    private final ImageLabelIndex imageLabelIndex;
+    private final TextAnalysisService textAnalysisService;
+    private final boolean enabled;
+    private final boolean verdictCacheEnabled;
+    private final boolean imageCacheEnabled;
+    private final int maxRecords;
+
+    public CacheWarmer(VerdictStore verdictStore, VerdictCache verdictCache, ImageLabelIndex imageLabelIndex,
+                       TextAnalysisService textAnalysisService,
+                       @Value("${ai.verdict-store.warm-up.enabled:true}") boolean enabled,
+                       @Value("${ai.llm.cache.enabled:true}") boolean verdictCacheEnabled,
+                       @Value("${ai.image.cache.enabled:true}") boolean imageCacheEnabled,
+                       @Value("${ai.llm.cache.max-size:10000}") int verdictCacheSize,
+                       @Value("${ai.image.cache.max-size:100000}") int imageCacheSize) {
+        this.verdictStore = verdictStore;
+        this.verdictCache = verdictCache;
+        this.imageLabelIndex = imageLabelIndex;
+        this.textAnalysisService = textAnalysisService;
+        this.enabled = enabled;
+        this.verdictCacheEnabled = verdictCacheEnabled;
+        this.imageCacheEnabled = imageCacheEnabled;
+        this.maxRecords = Math.max(verdictCacheEnabled ? verdictCacheSize : 0, imageCacheEnabled ? imageCacheSize : 0);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled || maxRecords == 0) return;
+        long started = System.nanoTime();
+        // oldest first, so the most recent records end up the most recently used entries of the caches
+        List<VerdictRecord> records = verdictStore.recent(maxRecords);
+        String version = textAnalysisService.version();
+        int texts = 0;
+        int images = 0;
+        for (VerdictRecord record : records) {
+            if (verdictCacheEnabled && record.hasLlmTextVerdict() && version.equals(record.modelVersion())) {
+                String response = (record.textReasoning() == null ? "" : record.textReasoning())
+                        + "\n" + (record.textAllowed() ? "TRUE" : "FALSE");
+                verdictCache.put(verdictCache.keyOfHash(version, record.textHash()), response);
+                texts++;
+            }
+            if (imageCacheEnabled && record.imageHash() != null && record.labels() != null && !record.labels().isEmpty()) {
+                imageLabelIndex.put(record.imageHash(), record.rekognitionLabels());
+                images++;
+            }
+        }
+        log.info("Warmed the caches from {} stored verdict(s) in {} ms: {} text verdict(s), {} image label set(s)",
+                records.size(), (System.nanoTime() - started) / 1_000_000, texts, images);
+    }
+}
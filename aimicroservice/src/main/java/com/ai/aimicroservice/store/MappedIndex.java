@@ -0,0 +1,206 @@
+package com.ai.aimicroservice.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory-mapped open-addressing hash table from a 64-bit key to an offset in the verdict log
+ * The file is a header followed by capacity slots of [key][offset], probed linearly, key 0 marks an empty slot.
+ * The header records the id and length of the log the offsets point into, a mismatch with the log on disk
+ * means the index is stale and has to be rebuilt.
+ */
+final class MappedIndex implements Closeable {
+
+    private static final int MAGIC = 0x56494458; // "VIDX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 16;
+    private static final double MAX_LOAD = 0.7;
+    // slots are addressed with int positions in the mapping
+    static final int MAX_CAPACITY = 1 << 26;
+
+    // header layout
+    private static final int CAPACITY = 8;
+    private static final int SIZE = 12;
+    private static final int LOG_ID = 16;
+    private static final int LOG_LENGTH = 24;
+    private static final int LIVE_BYTES = 32;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int mask;
+
+    private MappedIndex(Path path, MappedByteBuffer buffer, int capacity) {
+        this.path = path;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Creates an empty index, replacing the file if it exists
+     * @param path the index file
+     * @param capacity the number of slots, rounded up to a power of two
+     * @param logId the id of the log the index points into
+     */
+    static MappedIndex create(Path path, int capacity, long logId) throws IOException {
+        int slots = Math.min(MAX_CAPACITY, Integer.highestOneBit(Math.max(16, capacity - 1)) << 1);
+        Files.deleteIfExists(path);
+        MappedIndex index = new MappedIndex(path, map(path, HEADER_SIZE + (long) slots * SLOT_SIZE), slots);
+        index.buffer.putInt(0, MAGIC);
+        index.buffer.putInt(4, VERSION);
+        index.buffer.putInt(CAPACITY, slots);
+        index.buffer.putLong(LOG_ID, logId);
+        return index;
+    }
+
+    /**
+     * @param path the index file
+     * @return the index, or null if the file is missing or not a valid index
+     */
+    static MappedIndex open(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER_SIZE) return null;
+        long size = Files.size(path);
+        MappedByteBuffer buffer = map(path, size);
+        int capacity = buffer.getInt(CAPACITY);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || Integer.bitCount(capacity) != 1
+                || size != HEADER_SIZE + (long) capacity * SLOT_SIZE) {
+            return null;
+        }
+        return new MappedIndex(path, buffer, capacity);
+    }
+
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid once the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * @param key the key, see {@link #key(String)}
+     * @return the offset of the record, or -1 if the key is not indexed
+     */
+    long get(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long stored = buffer.getLong(position(slot));
+            if (stored == key) return buffer.getLong(position(slot) + 8);
+            if (stored == 0) return -1;
+        }
+    }
+
+    /**
+     * Indexes a record, replacing the previous offset of the key
+     * @return the previous offset, or -1 if the key was not indexed
+     */
+    long put(long key, long offset) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long stored = buffer.getLong(position(slot));
+            if (stored == key) {
+                long previous = buffer.getLong(position(slot) + 8);
+                buffer.putLong(position(slot) + 8, offset);
+                return previous;
+            }
+            if (stored == 0) {
+                // one slot always stays empty, it ends the probes of missing keys
+                if (size() + 1 >= capacity) throw new IllegalStateException("Verdict index is full");
+                buffer.putLong(position(slot) + 8, offset);
+                buffer.putLong(position(slot), key);
+                buffer.putInt(SIZE, size() + 1);
+                return -1;
+            }
+        }
+    }
+
+    boolean isFull() {
+        return capacity < MAX_CAPACITY && size() + 1 > capacity * MAX_LOAD;
+    }
+
+    /**
+     * @return the offsets of all indexed records, in log order
+     */
+    long[] offsets() {
+        long[] offsets = new long[size()];
+        int count = 0;
+        for (int slot = 0; slot < capacity && count < offsets.length; slot++) {
+            if (buffer.getLong(position(slot)) != 0) {
+                offsets[count++] = buffer.getLong(position(slot) + 8);
+            }
+        }
+        long[] found = Arrays.copyOf(offsets, count);
+        Arrays.sort(found);
+        return found;
+    }
+
+    int size() {
+        return buffer.getInt(SIZE);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long logId() {
+        return buffer.getLong(LOG_ID);
+    }
+
+    long logLength() {
+        return buffer.getLong(LOG_LENGTH);
+    }
+
+    long liveBytes() {
+        return buffer.getLong(LIVE_BYTES);
+    }
+
+    /**
+     * Records the state of the log the index is consistent with
+     */
+    void logState(long logLength, long liveBytes) {
+        buffer.putLong(LOG_LENGTH, logLength);
+        buffer.putLong(LIVE_BYTES, liveBytes);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    /**
+     * @param postId the id of a post
+     * @return a 64-bit hash of the id, never 0
+     */
+    static long key(String postId) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < postId.length(); i++) {
+            h ^= postId.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return h == 0 ? 1 : h;
+    }
+
+    private int slot(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private static int position(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+}
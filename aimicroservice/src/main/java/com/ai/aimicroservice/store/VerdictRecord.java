@@ -0,0 +1,63 @@
+package com.ai.aimicroservice.store;
+
+import com.ai.aimicroservice.verdict.TextVerdict;
+import software.amazon.awssdk.services.rekognition.model.Label;
+import software.amazon.awssdk.services.rekognition.model.Parent;
+
+import java.util.List;
+
+/**
+ * The outcome of the moderation of a post, as kept by the {@link VerdictStore}
+ * A branch cancelled by an early rejection, or whose result is not worth keeping, is left null.
+ * @param postId the id of the post
+ * @param imageName the name of the image object of the post
+ * @param textHash the hash of the normalized description, as used by the verdict cache
+ * @param imageHash the perceptual hash of the image, null if it could not be computed
+ * @param textAllowed the text verdict, null if the text was not analyzed to the end
+ * @param textReasoning the reasoning of the text verdict
+ * @param textSource what gave the text verdict, null for records written before it was recorded
+ * @param labels the Rekognition labels of the image, null if the image was not analyzed to the end
+ * @param modelVersion the version of the LLM that gave the text verdict
+ * @param moderatedAt when the post was moderated, in epoch milliseconds
+ */
+public record VerdictRecord(String postId, String imageName, String textHash, Long imageHash,
+                            Boolean textAllowed, String textReasoning, TextVerdict.Source textSource, List<StoredLabel> labels,
+                            String modelVersion, long moderatedAt) {
+
+    /**
+     * @return true if the text verdict was given by the LLM for this very description, the only one worth reusing
+     * A lexicon verdict follows the current lexicon, a near-duplicate verdict was given to another description and a
+     * classifier verdict to the model of the day.
+     */
+    public boolean hasLlmTextVerdict() {
+        return textAllowed != null && textSource == TextVerdict.Source.LLM;
+    }
+
+    /**
+     * @return the labels as Rekognition labels, null if the image was not analyzed to the end
+     */
+    public List<Label> rekognitionLabels() {
+        if (labels == null) return null;
+        return labels.stream()
+                .map(label -> Label.builder()
+                        .name(label.name())
+                        .confidence(label.confidence())
+                        .parents(label.parents().stream().map(p -> Parent.builder().name(p).build()).toList())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * @param labels Rekognition labels
+     * @return the labels in the stored form, only the fields used by the label policy
+     */
+    public static List<StoredLabel> storedLabels(List<Label> labels) {
+        return labels.stream()
+                .map(label -> new StoredLabel(label.name(), label.confidence() == null ? 0 : label.confidence(),
+                        label.parents() == null ? List.of() : label.parents().stream().map(Parent::name).toList()))
+                .toList();
+    }
+
+    public record StoredLabel(String name, float confidence, List<String> parents) {
+    }
+}
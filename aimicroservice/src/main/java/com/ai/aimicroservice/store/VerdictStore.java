@@ -0,0 +1,459 @@
+package com.ai.aimicroservice.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent store of the last moderation verdict of each post
+ * Records are appended to a log as frames [length][crc32][json] after a header identifying the log, a
+ * {@link MappedIndex} maps each post to the offset of its last record, so a lookup is one probe in memory and one
+ * read. The log is not fsynced on each append, a verdict lost in a crash is only a cache miss; a torn frame at the
+ * end of the log is truncated and an index that does not match the log is rebuilt from it.
+ * Records replaced by a newer verdict of the same post are garbage, the log is compacted once they make up
+ * ai.verdict-store.compaction.min-garbage-ratio of it.
+ */
+@Component
+public class VerdictStore {
+
+    private static final Logger log = LoggerFactory.getLogger(VerdictStore.class);
+
+    private static final String LOG = "verdicts.log";
+    private static final String INDEX = "verdicts.idx";
+    private static final String COMPACTING = ".compacting";
+    private static final String REHASHING = ".rehashing";
+    private static final int LOG_MAGIC = 0x564C4F47; // "VLOG"
+    private static final int LOG_HEADER_SIZE = 16;
+    private static final int FRAME_HEADER_SIZE = 8;
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Path directory;
+    private final int initialCapacity;
+    private final double minGarbageRatio;
+    private final long minCompactionSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // one compaction at a time, the log channel is only replaced while holding it
+    private final ReentrantLock compaction = new ReentrantLock();
+    private FileChannel logChannel;
+    private MappedIndex index;
+    private long logLength;
+    private long liveBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+
+    public VerdictStore(ObjectMapper objectMapper,
+                        @Value("${ai.verdict-store.enabled:true}") boolean enabled,
+                        @Value("${ai.verdict-store.dir:data/verdict-store}") Path directory,
+                        @Value("${ai.verdict-store.initial-capacity:65536}") int initialCapacity,
+                        @Value("${ai.verdict-store.compaction.min-garbage-ratio:0.5}") double minGarbageRatio,
+                        @Value("${ai.verdict-store.compaction.min-size:16777216}") long minCompactionSize) throws IOException {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.directory = directory;
+        this.initialCapacity = initialCapacity;
+        this.minGarbageRatio = minGarbageRatio;
+        this.minCompactionSize = minCompactionSize;
+        if (enabled) {
+            open();
+        }
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        Path logPath = directory.resolve(LOG);
+        logChannel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long logId = readLogId();
+        if (logId == 0) {
+            logId = ThreadLocalRandom.current().nextLong() | 1;
+            logChannel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE).putInt(LOG_MAGIC).putInt(0).putLong(logId).flip();
+            writeFully(logChannel, header, 0);
+            logChannel.force(false);
+        }
+
+        index = MappedIndex.open(directory.resolve(INDEX));
+        if (index != null && index.logId() == logId && index.logLength() == logChannel.size()) {
+            logLength = index.logLength();
+            liveBytes = index.liveBytes();
+            log.info("Verdict store opened in {}, {} post(s)", directory, index.size());
+        } else {
+            long started = System.nanoTime();
+            rebuildIndex(logId);
+            log.info("Verdict store index rebuilt in {} ms, {} post(s)", (System.nanoTime() - started) / 1_000_000, index.size());
+        }
+    }
+
+    /**
+     * @return the id of the log, 0 if the log is empty or has no valid header
+     */
+    private long readLogId() throws IOException {
+        if (logChannel.size() < LOG_HEADER_SIZE) return 0;
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        readFully(logChannel, header, 0);
+        return header.getInt(0) == LOG_MAGIC ? header.getLong(8) : 0;
+    }
+
+    /**
+     * Scans the log, indexing the last record of each post, and truncates a torn frame at its end
+     */
+    private void rebuildIndex(long logId) throws IOException {
+        if (index != null) index.close();
+        index = MappedIndex.create(directory.resolve(INDEX), initialCapacity, logId);
+        long size = logChannel.size();
+        long offset = LOG_HEADER_SIZE;
+        liveBytes = 0;
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        while (offset + FRAME_HEADER_SIZE <= size) {
+            header.clear();
+            readFully(logChannel, header, offset);
+            int length = header.getInt(0);
+            if (length <= 0 || offset + FRAME_HEADER_SIZE + length > size) break;
+            byte[] payload = readPayload(logChannel, offset, length);
+            if (header.getInt(4) != crc(payload)) break;
+            String postId = objectMapper.readValue(payload, VerdictRecord.class).postId();
+            index(postId, offset, FRAME_HEADER_SIZE + length);
+            offset += FRAME_HEADER_SIZE + length;
+        }
+        if (offset < size) {
+            log.warn("Truncating torn verdict record at offset {} of the verdict log", offset);
+            logChannel.truncate(offset);
+        }
+        logLength = offset;
+        index.logState(logLength, liveBytes);
+    }
+
+    /**
+     * @param postId the id of the post
+     * @return the last verdict recorded for the post
+     */
+    public Optional<VerdictRecord> find(String postId) {
+        if (!enabled) return Optional.empty();
+        VerdictRecord record = null;
+        lock.readLock().lock();
+        try {
+            long offset = index.get(MappedIndex.key(postId));
+            if (offset >= 0) {
+                record = read(offset);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read the verdict of post {}", postId, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        // two posts can share a key, the record tells which one it belongs to
+        if (record != null && !record.postId().equals(postId)) record = null;
+        (record == null ? misses : hits).increment();
+        return Optional.ofNullable(record);
+    }
+
+    /**
+     * Records the verdict of a post, replacing the previous one
+     * Failures are logged, the store never fails a moderation
+     * @param record the verdict
+     */
+    public void put(VerdictRecord record) {
+        if (!enabled) return;
+        lock.writeLock().lock();
+        try {
+            byte[] payload = objectMapper.writeValueAsBytes(record);
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.length);
+            frame.putInt(payload.length).putInt(crc(payload)).put(payload).flip();
+            writeFully(logChannel, frame, logLength);
+            index(record.postId(), logLength, frame.capacity());
+            logLength += frame.capacity();
+            index.logState(logLength, liveBytes);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to record the verdict of post {}", record.postId(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(String postId, long offset, int frameSize) throws IOException {
+        if (index.isFull()) {
+            grow();
+        }
+        long previous = index.put(MappedIndex.key(postId), offset);
+        if (previous >= 0) {
+            liveBytes -= frameSize(previous);
+        }
+        liveBytes += frameSize;
+    }
+
+    /**
+     * Rehashes the index into one twice as large
+     */
+    private void grow() throws IOException {
+        index.logState(logLength, liveBytes);
+        index = rehash(index, logChannel, directory.resolve(INDEX));
+        log.info("Verdict store index grown to {} slots", index.capacity());
+    }
+
+    /**
+     * @param from the index to rehash, closed once replaced
+     * @param channel the log the index points into
+     * @param target the file of the index, replaced atomically
+     * @return an index twice as large, with the same records
+     */
+    private MappedIndex rehash(MappedIndex from, FileChannel channel, Path target) throws IOException {
+        Path rehashing = target.resolveSibling(target.getFileName() + REHASHING);
+        MappedIndex larger = MappedIndex.create(rehashing, from.capacity() * 2, from.logId());
+        for (long offset : from.offsets()) {
+            larger.put(MappedIndex.key(read(channel, offset).postId()), offset);
+        }
+        larger.logState(from.logLength(), from.liveBytes());
+        larger.force();
+        Files.move(rehashing, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        from.close();
+        return larger;
+    }
+
+    /**
+     * @param max the maximum number of records
+     * @return the most recently recorded verdicts, oldest first
+     */
+    public List<VerdictRecord> recent(int max) {
+        if (!enabled || max <= 0) return List.of();
+        lock.readLock().lock();
+        try {
+            long[] offsets = index.offsets();
+            long[] newest = Arrays.copyOfRange(offsets, Math.max(0, offsets.length - max), offsets.length);
+            List<VerdictRecord> records = new ArrayList<>(newest.length);
+            for (long offset : newest) {
+                records.add(read(offset));
+            }
+            return records;
+        } catch (IOException e) {
+            log.warn("Failed to read the recent verdicts", e);
+            return List.of();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Compacts the log if enough of it is garbage
+     */
+    @Scheduled(fixedDelayString = "${ai.verdict-store.compaction.interval-ms:600000}")
+    public void compactIfNeeded() {
+        if (!enabled) return;
+        long garbage;
+        lock.readLock().lock();
+        try {
+            garbage = logLength - LOG_HEADER_SIZE - liveBytes;
+            if (logLength < minCompactionSize || garbage < logLength * minGarbageRatio) return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            log.error("Failed to compact the verdict store", e);
+        }
+    }
+
+    /**
+     * Copies the last record of each post to a new log and index, then swaps them in
+     * The records indexed when the compaction starts are copied without holding the lock, lookups and writes go on
+     * against the old log meanwhile. Only the records appended during the copy are copied under the write lock,
+     * followed by the swap.
+     */
+    public void compact() throws IOException {
+        if (!enabled) return;
+        compaction.lock();
+        try {
+            long started = System.nanoTime();
+            long[] offsets;
+            long copied;
+            lock.readLock().lock();
+            try {
+                offsets = index.offsets();
+                copied = logLength;
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            long logId = ThreadLocalRandom.current().nextLong() | 1;
+            Path compactedLog = directory.resolve(LOG + COMPACTING);
+            Path compactedIndex = directory.resolve(INDEX + COMPACTING);
+            MappedIndex newIndex = MappedIndex.create(compactedIndex,
+                    Math.max(initialCapacity, (int) Math.min(MappedIndex.MAX_CAPACITY, offsets.length * 2L)), logId);
+            try (FileChannel out = FileChannel.open(compactedLog, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(out, ByteBuffer.allocate(LOG_HEADER_SIZE).putInt(LOG_MAGIC).putInt(0).putLong(logId).flip(), 0);
+                // frames below the copied length never change, reading them needs no lock
+                long length = LOG_HEADER_SIZE;
+                for (long offset : offsets) {
+                    int frameSize = frameSize(logChannel, offset);
+                    copyFrame(logChannel, offset, frameSize, out, length, newIndex);
+                    length += frameSize;
+                }
+                long live = length - LOG_HEADER_SIZE;
+
+                lock.writeLock().lock();
+                try {
+                    long before = logLength;
+                    for (long offset = copied; offset < logLength; ) {
+                        if (newIndex.isFull()) {
+                            newIndex.logState(length, live);
+                            newIndex = rehash(newIndex, out, compactedIndex);
+                        }
+                        int frameSize = frameSize(logChannel, offset);
+                        long previous = copyFrame(logChannel, offset, frameSize, out, length, newIndex);
+                        if (previous >= 0) {
+                            live -= frameSize(out, previous);
+                        }
+                        live += frameSize;
+                        offset += frameSize;
+                        length += frameSize;
+                    }
+                    out.force(false);
+                    newIndex.logState(length, live);
+                    newIndex.force();
+
+                    // the log is swapped first: until the index follows, the stale index is detected by its log id
+                    Files.move(compactedLog, directory.resolve(LOG), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    Files.move(compactedIndex, directory.resolve(INDEX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    logChannel.close();
+                    logChannel = FileChannel.open(directory.resolve(LOG), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    index.close();
+                    index = newIndex;
+                    logLength = length;
+                    liveBytes = live;
+                    compactions.increment();
+                    log.info("Verdict store compacted from {} to {} bytes in {} ms, {} bytes appended during the copy",
+                            before, length, (System.nanoTime() - started) / 1_000_000, before - copied);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } catch (IOException | RuntimeException e) {
+                if (newIndex != index) newIndex.close();
+                throw e;
+            }
+        } finally {
+            compaction.unlock();
+        }
+    }
+
+    /**
+     * Appends a frame of a log to another log and indexes it there
+     * @return the offset previously indexed for the post, or -1
+     */
+    private long copyFrame(FileChannel from, long offset, int frameSize, FileChannel to, long position, MappedIndex toIndex) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(frameSize);
+        readFully(from, frame, offset);
+        frame.flip();
+        String postId = objectMapper.readValue(frame.array(), FRAME_HEADER_SIZE, frameSize - FRAME_HEADER_SIZE, VerdictRecord.class).postId();
+        writeFully(to, frame, position);
+        return toIndex.put(MappedIndex.key(postId), position);
+    }
+
+    public Stats stats() {
+        if (!enabled) return new Stats(false, 0, 0, 0, hits.sum(), misses.sum(), compactions.sum());
+        lock.readLock().lock();
+        try {
+            return new Stats(true, index.size(), logLength, liveBytes, hits.sum(), misses.sum(), compactions.sum());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param posts the posts with a recorded verdict
+     * @param logBytes the size of the log
+     * @param liveBytes the part of the log holding the last verdict of each post, the rest is garbage
+     */
+    public record Stats(boolean enabled, int posts, long logBytes, long liveBytes, long hits, long misses, long compactions) {
+    }
+
+    @PreDestroy
+    void close() {
+        if (!enabled) return;
+        compaction.lock();
+        lock.writeLock().lock();
+        try {
+            logChannel.force(false);
+            index.logState(logLength, liveBytes);
+            index.close();
+            logChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+            compaction.unlock();
+        }
+    }
+
+    private VerdictRecord read(long offset) throws IOException {
+        return read(logChannel, offset);
+    }
+
+    private VerdictRecord read(FileChannel channel, long offset) throws IOException {
+        int length = frameSize(channel, offset) - FRAME_HEADER_SIZE;
+        byte[] payload = readPayload(channel, offset, length);
+        return objectMapper.readValue(payload, VerdictRecord.class);
+    }
+
+    private int frameSize(long offset) throws IOException {
+        return frameSize(logChannel, offset);
+    }
+
+    private static int frameSize(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        readFully(channel, header, offset);
+        return FRAME_HEADER_SIZE + header.getInt(0);
+    }
+
+    private static byte[] readPayload(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, offset + FRAME_HEADER_SIZE);
+        return payload.array();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new IOException("Unexpected end of the verdict log at " + (position + buffer.position()));
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
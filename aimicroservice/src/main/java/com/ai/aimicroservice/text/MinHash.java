@@ -0,0 +1,104 @@
+package com.ai.aimicroservice.text;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * MinHash signatures of descriptions over character shingles
+ * The share of equal minima between two signatures estimates the Jaccard similarity of the shingle sets.
+ * Texts are normalized first so the usual edits of reposted spam do not change the shingles: case and accents are
+ * dropped, every number becomes "0" (prices, seed counts) and punctuation, symbols and emojis become spaces.
+ */
+public final class MinHash {
+
+    static final int SHINGLE = 5;
+
+    // h_i(x) = a_i * x + b_i over the mixed shingle hash, one multiply-add per function instead of a full hash
+    private final long[] multipliers;
+    private final long[] addends;
+
+    /**
+     * @param hashes the number of hash functions, the length of the signatures
+     * @param seed the seed of the hash functions, signatures are only comparable with the same seed
+     */
+    public MinHash(int hashes, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        this.multipliers = new long[hashes];
+        this.addends = new long[hashes];
+        for (int i = 0; i < hashes; i++) {
+            multipliers[i] = random.nextLong() | 1;
+            addends[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * @param text the description
+     * @return the minimum hash of the shingles for each hash function, or null if the text has no letter or digit
+     */
+    public long[] signature(String text) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) return null;
+
+        long[] minima = new long[multipliers.length];
+        Arrays.fill(minima, Long.MAX_VALUE);
+        int shingles = Math.max(1, normalized.length() - SHINGLE + 1);
+        for (int start = 0; start < shingles; start++) {
+            long shingle = mix(hash(normalized, start, Math.min(normalized.length(), start + SHINGLE)));
+            for (int i = 0; i < minima.length; i++) {
+                long h = multipliers[i] * shingle + addends[i];
+                if (h < minima[i]) minima[i] = h;
+            }
+        }
+        return minima;
+    }
+
+    /**
+     * @param text the description
+     * @return the text in lower case, without accents, with numbers folded to "0" and single spaces between words
+     */
+    static String normalize(String text) {
+        if (text == null) return "";
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD).toLowerCase(Locale.ROOT);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        char previous = ' ';
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            if (Character.isDigit(c)) {
+                c = '0';
+            } else if (!Character.isLetter(c)) {
+                c = ' ';
+            }
+            // "10.50" and "1 000" are one number, runs of spaces are one space
+            if ((c == '0' || c == ' ') && previous == c) continue;
+            if (c == ' ' && previous == '0' && i + 1 < decomposed.length() && Character.isDigit(decomposed.charAt(i + 1))) continue;
+            normalized.append(c);
+            previous = c;
+        }
+        int end = normalized.length();
+        while (end > 0 && normalized.charAt(end - 1) == ' ') end--;
+        int start = 0;
+        while (start < end && normalized.charAt(start) == ' ') start++;
+        return normalized.substring(start, end);
+    }
+
+    private static long hash(CharSequence text, int start, int end) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = start; i < end; i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return h;
+    }
+
+    /**
+     * The finalizer of SplittableRandom, a cheap hash of good quality on 64 bits
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
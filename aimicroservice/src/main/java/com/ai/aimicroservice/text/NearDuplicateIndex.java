@@ -0,0 +1,273 @@
+package com.ai.aimicroservice.text;
+
+import com.ai.aimicroservice.verdict.TextVerdict;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded index of text verdicts by MinHash signature, finding descriptions that are near-duplicates of moderated ones
+ * Locality-sensitive hashing: the 64 minima of a signature are split into 16 bands of 4, and two descriptions are
+ * compared only if they share a band. A pair with Jaccard similarity 0.8 shares one with probability 0.9998, a pair
+ * at 0.3 with probability 0.12. Candidates are then checked against the similarity threshold with 8-bit
+ * fingerprints of the minima, so an entry costs about 300 bytes in preallocated primitive arrays, plus its verdict.
+ * Entries live in a ring: once full, the oldest description is evicted first, and entries older than the max age
+ * are not returned.
+ * Only rejections are handed down to near-duplicates: a few inserted words ("not", a banned plant) keep the
+ * similarity above the threshold, so an approval is only reused for the same text, up to case and spacing.
+ */
+@Component
+public class NearDuplicateIndex {
+
+    static final int BANDS = 16;
+    static final int ROWS = 4;
+    static final int HASHES = BANDS * ROWS;
+    private static final long SEED = 0x5EED5EEDL;
+
+    private final int maxSize;
+    private final long maxAgeNanos;
+    private final double minSimilarity;
+    private final LongSupplier nanoClock;
+    private final MinHash minHash = new MinHash(HASHES, SEED);
+
+    // slot-indexed: fingerprints[slot * HASHES + i], bandKeys[slot * BANDS + band], next[slot * BANDS + band]
+    private final byte[] fingerprints;
+    private final int[] bandKeys;
+    // chains of the slots sharing a band bucket, -1 terminated
+    private final int[] next;
+    private final int[][] heads;
+    private final int bucketMask;
+    private final long[] insertedAt;
+    private final long[] textHashes;
+    private final TextVerdict[] verdicts;
+    private int cursor;
+    private int size;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public NearDuplicateIndex(@Value("${ai.text.cache.max-size:100000}") int maxSize,
+                              @Value("${ai.text.cache.max-age:24h}") Duration maxAge,
+                              @Value("${ai.text.cache.min-similarity:0.9}") double minSimilarity) {
+        this(maxSize, maxAge, minSimilarity, System::nanoTime);
+    }
+
+    NearDuplicateIndex(int maxSize, Duration maxAge, double minSimilarity, LongSupplier nanoClock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("ai.text.cache.max-size must be at least 1");
+        }
+        if (minSimilarity <= 0 || minSimilarity > 1) {
+            throw new IllegalArgumentException("ai.text.cache.min-similarity must be in (0, 1]");
+        }
+        this.maxSize = maxSize;
+        this.maxAgeNanos = maxAge.toNanos();
+        this.minSimilarity = minSimilarity;
+        this.nanoClock = nanoClock;
+        this.fingerprints = new byte[maxSize * HASHES];
+        this.bandKeys = new int[maxSize * BANDS];
+        this.next = new int[maxSize * BANDS];
+        int buckets = Integer.highestOneBit(Math.max(1, maxSize - 1)) << 1;
+        this.bucketMask = buckets - 1;
+        this.heads = new int[BANDS][buckets];
+        for (int[] head : heads) {
+            Arrays.fill(head, -1);
+        }
+        this.insertedAt = new long[maxSize];
+        this.textHashes = new long[maxSize];
+        this.verdicts = new TextVerdict[maxSize];
+    }
+
+    /**
+     * Computes the signature of a description once, for a lookup followed by an insertion
+     * @param text the description
+     * @return the signature, or null if the text has nothing to compare
+     */
+    public Signature signature(String text) {
+        long[] minima = minHash.signature(text);
+        if (minima == null) return null;
+        byte[] fingerprint = new byte[HASHES];
+        for (int i = 0; i < HASHES; i++) {
+            fingerprint[i] = (byte) minima[i];
+        }
+        int[] keys = new int[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long h = band;
+            for (int row = 0; row < ROWS; row++) {
+                h = MinHash.mix(h * 31 + minima[band * ROWS + row]);
+            }
+            keys[band] = (int) (h ^ (h >>> 32));
+        }
+        return new Signature(fingerprint, keys, textHash(text));
+    }
+
+    /**
+     * Finds the verdict of the most similar moderated description
+     * A rejected description matches its near-duplicates, an allowed one only matches the same text
+     * @param signature the signature of the description, see {@link #signature(String)}
+     * @return the verdict, or empty if no description of the index is similar enough
+     */
+    public Optional<Match> find(Signature signature) {
+        Match match = null;
+        if (signature != null) {
+            lock.readLock().lock();
+            try {
+                match = nearest(signature);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        (match == null ? misses : hits).increment();
+        return Optional.ofNullable(match);
+    }
+
+    /**
+     * Indexes the verdict of a description, evicting the oldest one if the index is full
+     * @param signature the signature of the description, see {@link #signature(String)}
+     * @param verdict the verdict of the LLM
+     */
+    public void put(Signature signature, TextVerdict verdict) {
+        if (signature == null) return;
+        lock.writeLock().lock();
+        try {
+            int slot = cursor;
+            cursor = (cursor + 1) % maxSize;
+            if (verdicts[slot] != null) {
+                unlink(slot);
+                evictions.increment();
+            } else {
+                size++;
+            }
+            System.arraycopy(signature.fingerprint, 0, fingerprints, slot * HASHES, HASHES);
+            for (int band = 0; band < BANDS; band++) {
+                int key = signature.bandKeys[band];
+                int bucket = bucket(key);
+                bandKeys[slot * BANDS + band] = key;
+                next[slot * BANDS + band] = heads[band][bucket];
+                heads[band][bucket] = slot;
+            }
+            insertedAt[slot] = nanoClock.getAsLong();
+            textHashes[slot] = signature.textHash;
+            verdicts[slot] = verdict;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Stats stats() {
+        int current;
+        lock.readLock().lock();
+        try {
+            current = size;
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), current, maxSize);
+    }
+
+    private Match nearest(Signature signature) {
+        long now = nanoClock.getAsLong();
+        int best = -1;
+        double bestSimilarity = minSimilarity;
+        for (int band = 0; band < BANDS; band++) {
+            int key = signature.bandKeys[band];
+            for (int slot = heads[band][bucket(key)]; slot >= 0; slot = next[slot * BANDS + band]) {
+                if (bandKeys[slot * BANDS + band] != key || now - insertedAt[slot] > maxAgeNanos) continue;
+                if (verdicts[slot].allowed() && textHashes[slot] != signature.textHash) continue;
+                double similarity = similarity(signature.fingerprint, slot);
+                if (similarity >= bestSimilarity) {
+                    best = slot;
+                    bestSimilarity = similarity;
+                    if (similarity >= 1) return new Match(verdicts[best], 1);
+                }
+            }
+        }
+        return best < 0 ? null : new Match(verdicts[best], bestSimilarity);
+    }
+
+    /**
+     * Two 8-bit fingerprints of different minima are equal once in 256, the estimate is corrected for it
+     */
+    private double similarity(byte[] fingerprint, int slot) {
+        int offset = slot * HASHES;
+        int equal = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (fingerprints[offset + i] == fingerprint[i]) equal++;
+        }
+        double chance = 1.0 / 256;
+        return Math.max(0, ((double) equal / HASHES - chance) / (1 - chance));
+    }
+
+    /**
+     * Unlike the shingles, numbers and punctuation are kept: "THC 0.2%" and "THC 20%" are different texts
+     * @return a hash of the text in lower case with single spaces between words
+     */
+    static long textHash(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT).strip();
+        long h = 0xcbf29ce484222325L;
+        boolean space = false;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space) {
+                h = (h ^ ' ') * 0x100000001b3L;
+                space = false;
+            }
+            h = (h ^ c) * 0x100000001b3L;
+        }
+        return MinHash.mix(h);
+    }
+
+    private void unlink(int slot) {
+        for (int band = 0; band < BANDS; band++) {
+            int bucket = bucket(bandKeys[slot * BANDS + band]);
+            int previous = -1;
+            for (int s = heads[band][bucket]; s >= 0; s = next[s * BANDS + band]) {
+                if (s == slot) {
+                    if (previous < 0) heads[band][bucket] = next[s * BANDS + band];
+                    else next[previous * BANDS + band] = next[s * BANDS + band];
+                    break;
+                }
+                previous = s;
+            }
+        }
+        verdicts[slot] = null;
+    }
+
+    private int bucket(int key) {
+        return (int) MinHash.mix(key) & bucketMask;
+    }
+
+    /**
+     * @param fingerprint the low 8 bits of each minimum
+     * @param bandKeys the hash of each band of minima
+     * @param textHash the hash of the text, see {@link #textHash(String)}
+     */
+    public record Signature(byte[] fingerprint, int[] bandKeys, long textHash) {
+    }
+
+    /**
+     * @param verdict the verdict of the similar description
+     * @param similarity the estimated Jaccard similarity of the two descriptions
+     */
+    public record Match(TextVerdict verdict, double similarity) {
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size, int maxSize) {
+    }
+}
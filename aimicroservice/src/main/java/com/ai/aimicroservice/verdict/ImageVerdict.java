@@ -0,0 +1,32 @@
+package com.ai.aimicroservice.verdict;
+
+import software.amazon.awssdk.services.rekognition.model.Label;
+
+import java.util.List;
+
+/**
+ * Outcome of the image analysis of a post
+ * @param allowed true if the image passes the check
+ * @param labels the labels detected by Rekognition, with their confidence
+ * @param reason why the label policy allowed or rejected the image
+ * @param perceptualHash the perceptual hash of the image, null if it was not computed
+ */
+public record ImageVerdict(boolean allowed, List<Label> labels, String reason, Long perceptualHash) {
+
+    public ImageVerdict(boolean allowed, List<Label> labels, String reason) {
+        this(allowed, labels, reason, null);
+    }
+
+    /**
+     * Formats the labels as "[Name : confidence, ...]", the format used in reports
+     * @return the formatted labels
+     */
+    public String describeLabels() {
+        StringBuilder described = new StringBuilder(labels.size() * 24).append('[');
+        for (int i = 0; i < labels.size(); i++) {
+            if (i > 0) described.append(", ");
+            described.append(labels.get(i).name()).append(" : ").append(labels.get(i).confidence());
+        }
+        return described.append(']').toString();
+    }
+}
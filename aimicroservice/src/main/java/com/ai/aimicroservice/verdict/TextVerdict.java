@@ -0,0 +1,93 @@
+package com.ai.aimicroservice.verdict;
+
+/**
+ * Outcome of the text analysis of a post description
+ * @param allowed true if the description passes the check
+ * @param reasoning why the description was allowed or rejected
+ * @param wellFormed false if the LLM response did not end with a TRUE/FALSE line, such a response is rejected
+ * @param source what gave the verdict, only the verdicts of the LLM are cached and reused across posts
+ */
+public record TextVerdict(boolean allowed, String reasoning, boolean wellFormed, Source source) {
+
+    private static final String TRUE = "TRUE";
+    private static final String FALSE = "FALSE";
+
+    public enum Source {
+        LLM,
+        LEXICON,
+        NEAR_DUPLICATE,
+        CLASSIFIER
+    }
+
+    public TextVerdict(boolean allowed, String reasoning, boolean wellFormed) {
+        this(allowed, reasoning, wellFormed, Source.LLM);
+    }
+
+    /**
+     * @param source what gave the verdict
+     * @return the same verdict, given by the source
+     */
+    public TextVerdict withSource(Source source) {
+        return new TextVerdict(allowed, reasoning, wellFormed, source);
+    }
+
+    /**
+     * @param allowed true if the description passes the check
+     * @param reasoning why the description was allowed or rejected
+     * @return a verdict that did not come from an LLM response
+     */
+    public static TextVerdict of(boolean allowed, String reasoning) {
+        return new TextVerdict(allowed, reasoning, true);
+    }
+
+    /**
+     * Parses an LLM response made of reasoning lines followed by a TRUE or FALSE line, in a single pass
+     * Trailing blank lines, surrounding markdown or punctuation ("**TRUE**", "FALSE.") and CRLF line breaks
+     * are tolerated. The reasoning lines are joined with single spaces.
+     * @param llmResponse the full LLM response
+     * @return the verdict, rejecting the description if the response has no verdict line
+     */
+    public static TextVerdict parse(String llmResponse) {
+        if (llmResponse == null) return new TextVerdict(false, "", false);
+
+        // the verdict is the last non-blank line
+        int end = llmResponse.length();
+        while (end > 0 && Character.isWhitespace(llmResponse.charAt(end - 1))) end--;
+        int lineStart = end == 0 ? 0 : llmResponse.lastIndexOf('\n', end - 1) + 1;
+
+        int verdictStart = lineStart;
+        int verdictEnd = end;
+        while (verdictStart < verdictEnd && !Character.isLetter(llmResponse.charAt(verdictStart))) verdictStart++;
+        while (verdictEnd > verdictStart && !Character.isLetter(llmResponse.charAt(verdictEnd - 1))) verdictEnd--;
+
+        int verdictLength = verdictEnd - verdictStart;
+        if (verdictLength == TRUE.length() && llmResponse.regionMatches(true, verdictStart, TRUE, 0, verdictLength)) {
+            return new TextVerdict(true, joinLines(llmResponse, 0, lineStart), true);
+        }
+        if (verdictLength == FALSE.length() && llmResponse.regionMatches(true, verdictStart, FALSE, 0, verdictLength)) {
+            return new TextVerdict(false, joinLines(llmResponse, 0, lineStart), true);
+        }
+        return new TextVerdict(false, joinLines(llmResponse, 0, end), false);
+    }
+
+    /**
+     * Joins the lines of text[start, end) with single spaces, without splitting the text
+     */
+    static String joinLines(CharSequence text, int start, int end) {
+        StringBuilder reasoning = new StringBuilder(end - start);
+        boolean lineBreak = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                lineBreak = true;
+                continue;
+            }
+            if (lineBreak && !reasoning.isEmpty() && reasoning.charAt(reasoning.length() - 1) != ' ') {
+                reasoning.append(' ');
+            }
+            lineBreak = false;
+            reasoning.append(c);
+        }
+        return reasoning.toString().trim();
+    }
+}
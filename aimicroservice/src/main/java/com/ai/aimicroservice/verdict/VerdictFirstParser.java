@@ -0,0 +1,92 @@
+package com.ai.aimicroservice.verdict;
+
+/**
+ * Incremental parser of a streamed, verdict-first LLM response: TRUE or FALSE first, then the reasoning
+ * The verdict is known as soon as the first word is complete, so the caller can stop the stream early.
+ * Not thread safe, one parser per response.
+ */
+public class VerdictFirstParser {
+
+    private static final String TRUE = "TRUE";
+    private static final String FALSE = "FALSE";
+
+    private enum State { UNDECIDED, ALLOWED, REJECTED, MALFORMED }
+
+    private final StringBuilder text = new StringBuilder();
+    private State state = State.UNDECIDED;
+    private int verdictEnd;
+
+    /**
+     * Appends the next chunk of the response
+     * @param chunk the chunk
+     */
+    public void append(String chunk) {
+        text.append(chunk);
+        if (state == State.UNDECIDED) {
+            decide(false);
+        }
+    }
+
+    /**
+     * @return true once the response is known to start with TRUE
+     */
+    public boolean allowed() {
+        return state == State.ALLOWED;
+    }
+
+    /**
+     * @return true once the verdict is known, or the response is known not to start with one
+     */
+    public boolean decided() {
+        return state != State.UNDECIDED;
+    }
+
+    /**
+     * Builds the verdict from what was received so far
+     * A response that does not start with the verdict is parsed as a regular, verdict-last response.
+     * @return the verdict
+     */
+    public TextVerdict result() {
+        if (state == State.UNDECIDED) {
+            decide(true);
+        }
+        return switch (state) {
+            case ALLOWED -> TextVerdict.of(true, TextVerdict.joinLines(text, verdictEnd, text.length()));
+            case REJECTED -> TextVerdict.of(false, TextVerdict.joinLines(text, verdictEnd, text.length()));
+            default -> TextVerdict.parse(text.toString());
+        };
+    }
+
+    private void decide(boolean ended) {
+        int length = text.length();
+        int start = 0;
+        while (start < length && !Character.isLetter(text.charAt(start))) start++;
+        int end = start;
+        while (end < length && Character.isLetter(text.charAt(end))) end++;
+
+        if (end == length && !ended) {
+            // the first word may continue in the next chunk, give up early only if it cannot be a verdict
+            if (!isPrefix(TRUE, start, end) && !isPrefix(FALSE, start, end)) {
+                state = State.MALFORMED;
+            }
+            return;
+        }
+
+        if (end - start == TRUE.length() && isPrefix(TRUE, start, end)) {
+            state = State.ALLOWED;
+        } else if (end - start == FALSE.length() && isPrefix(FALSE, start, end)) {
+            state = State.REJECTED;
+        } else {
+            state = State.MALFORMED;
+        }
+        verdictEnd = end;
+    }
+
+    private boolean isPrefix(String word, int start, int end) {
+        if (end - start > word.length()) return false;
+        for (int i = start; i < end; i++) {
+            if (Character.toUpperCase(text.charAt(i)) != word.charAt(i - start)) return false;
+        }
+        return true;
+    }
+}
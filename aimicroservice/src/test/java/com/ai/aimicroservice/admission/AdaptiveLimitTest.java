@@ -0,0 +1,103 @@
+package com.ai.aimicroservice.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimitTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long WAIT = TimeUnit.SECONDS.toNanos(5);
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void testCallsOverTheLimitQueueInOrder() {
+        AdaptiveLimit limit = new AdaptiveLimit(1, 1, 1, now::get);
+        AdaptiveLimit.Permit first = limit.acquire(WAIT).join();
+
+        CompletableFuture<AdaptiveLimit.Permit> second = limit.acquire(WAIT);
+        CompletableFuture<AdaptiveLimit.Permit> third = limit.acquire(WAIT);
+        assertFalse(second.isDone());
+        assertEquals(2, limit.queued());
+
+        first.ignore();
+        assertTrue(second.isDone());
+        assertFalse(third.isDone());
+        second.join().ignore();
+        third.join().ignore();
+        assertEquals(0, limit.inFlight());
+    }
+
+    @Test
+    void testQueuedCallTimesOut() {
+        AdaptiveLimit limit = new AdaptiveLimit(1, 1, 1, now::get);
+        limit.acquire(WAIT).join();
+
+        CompletableFuture<AdaptiveLimit.Permit> waiter = limit.acquire(TimeUnit.MILLISECONDS.toNanos(10));
+
+        CompletionException e = assertThrows(CompletionException.class, waiter::join);
+        assertTrue(e.getCause() instanceof TimeoutException);
+        assertEquals(0, limit.queued());
+    }
+
+    @Test
+    void testLimitGrowsWhileLatencyIsStable() {
+        AdaptiveLimit limit = new AdaptiveLimit(2, 1, 10, now::get);
+
+        for (int i = 0; i < 20; i++) {
+            complete(limit, 100 * MILLI);
+        }
+
+        assertTrue(limit.limit() > 2, "limit " + limit.limit());
+    }
+
+    @Test
+    void testLimitShrinksWhenLatencyRises() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 1, 10, now::get);
+        complete(limit, 100 * MILLI);
+
+        for (int i = 0; i < 10; i++) {
+            complete(limit, 1000 * MILLI);
+        }
+
+        assertTrue(limit.limit() < 10, "limit " + limit.limit());
+    }
+
+    @Test
+    void testThrottlingHalvesTheLimitOncePerRoundTrip() {
+        AdaptiveLimit limit = new AdaptiveLimit(8, 1, 8, now::get);
+        AdaptiveLimit.Permit first = limit.acquire(WAIT).join();
+        AdaptiveLimit.Permit second = limit.acquire(WAIT).join();
+        now.addAndGet(200 * MILLI);
+
+        first.throttled();
+        second.throttled();
+
+        assertEquals(4, limit.limit());
+        assertEquals(0, limit.inFlight());
+    }
+
+    @Test
+    void testPermitIsReleasedOnce() {
+        AdaptiveLimit limit = new AdaptiveLimit(2, 1, 2, now::get);
+        AdaptiveLimit.Permit permit = limit.acquire(WAIT).join();
+
+        permit.ignore();
+        permit.success();
+
+        assertEquals(0, limit.inFlight());
+    }
+
+    private void complete(AdaptiveLimit limit, long latency) {
+        AdaptiveLimit.Permit permit = limit.acquire(WAIT).join();
+        now.addAndGet(latency);
+        permit.success();
+    }
+}
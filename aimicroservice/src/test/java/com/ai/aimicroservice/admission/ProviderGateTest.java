@@ -0,0 +1,47 @@
+package com.ai.aimicroservice.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProviderGateTest {
+
+    private static class ThrottledException extends RuntimeException {
+    }
+
+    private final ProviderGate gate = new ProviderGate("test",
+            new TokenBucket(1, 1, System::nanoTime),
+            new TokenBucket(100, 100 / 60d, System::nanoTime),
+            new AdaptiveLimit(4, 1, 4, System::nanoTime),
+            Duration.ofMillis(50),
+            e -> e instanceof ThrottledException);
+
+    @Test
+    void testCallOverRequestQuotaIsNotAdmitted() {
+        assertEquals("ok", gate.call(10, () -> "ok"));
+
+        assertThrows(AdmissionTimeoutException.class, () -> gate.call(10, () -> "too soon"));
+        assertEquals(1, gate.stats().admitted());
+        assertEquals(1, gate.stats().timedOut());
+    }
+
+    @Test
+    void testCallOverTokenQuotaIsNotAdmitted() {
+        assertThrows(AdmissionTimeoutException.class, () -> gate.call(500, () -> "too big"));
+        // the request reservation was given back
+        assertEquals("ok", gate.call(10, () -> "ok"));
+    }
+
+    @Test
+    void testThrottlingShrinksTheLimit() {
+        assertThrows(ThrottledException.class, () -> gate.call(() -> {
+            throw new ThrottledException();
+        }));
+
+        assertEquals(2, gate.stats().limit());
+        assertEquals(1, gate.stats().throttled());
+        assertEquals(0, gate.stats().inFlight());
+    }
+}
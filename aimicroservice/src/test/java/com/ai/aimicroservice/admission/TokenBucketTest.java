@@ -0,0 +1,51 @@
+package com.ai.aimicroservice.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong();
+    private final TokenBucket bucket = new TokenBucket(2, 1, now::get);
+
+    @Test
+    void testBurstIsFreeThenCallsAreSpread() {
+        assertEquals(0, bucket.reserve(1, 0));
+        assertEquals(0, bucket.reserve(1, 0));
+        assertEquals(SECOND, bucket.reserve(1, SECOND));
+        // the next caller waits behind the debt of the previous one
+        assertEquals(2 * SECOND, bucket.reserve(1, 2 * SECOND));
+    }
+
+    @Test
+    void testReservationOverMaxWaitTakesNothing() {
+        bucket.reserve(2, 0);
+
+        assertEquals(-1, bucket.reserve(1, SECOND / 2));
+        now.addAndGet(SECOND);
+        assertEquals(0, bucket.reserve(1, 0));
+    }
+
+    @Test
+    void testRefillIsCappedAtCapacity() {
+        now.addAndGet(60 * SECOND);
+
+        assertEquals(2.0, bucket.available());
+    }
+
+    @Test
+    void testAdjustSettlesTheRealCost() {
+        bucket.reserve(1, 0);
+        bucket.adjust(-1);
+        assertEquals(2.0, bucket.available());
+
+        bucket.adjust(3);
+        assertEquals(-1.0, bucket.available());
+    }
+}
@@ -0,0 +1,68 @@
+package com.ai.aimicroservice.archive;
+
+import com.ai.aimicroservice.client.MediaServiceClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MediaArchiverTest {
+
+    private MediaServiceClient mediaServiceClient;
+    private MediaArchiver mediaArchiver;
+
+    @BeforeEach
+    void setUp() {
+        mediaServiceClient = Mockito.mock(MediaServiceClient.class);
+        mediaArchiver = new MediaArchiver(mediaServiceClient, 10, 2, 2, 100, Duration.ZERO);
+    }
+
+    @Test
+    void testDuplicateObjectsAreMovedOnce() {
+        when(mediaServiceClient.moveObjectToArchiveReactive("weed.png")).thenReturn(Mono.empty());
+
+        mediaArchiver.archive("weed.png");
+        mediaArchiver.archive("weed.png");
+        assertEquals(1, mediaArchiver.stats().queued());
+
+        mediaArchiver.flush();
+
+        verify(mediaServiceClient, times(1)).moveObjectToArchiveReactive("weed.png");
+        assertEquals(0, mediaArchiver.stats().queued());
+        assertEquals(1, mediaArchiver.stats().moved());
+    }
+
+    @Test
+    void testFailedMoveIsRetriedThenDropped() {
+        when(mediaServiceClient.moveObjectToArchiveReactive("tomatoplant.jpg"))
+                .thenReturn(Mono.error(new IllegalStateException("media service down")));
+
+        mediaArchiver.archive("tomatoplant.jpg");
+        mediaArchiver.flush();
+        assertEquals(1, mediaArchiver.stats().queued());
+        assertEquals(1, mediaArchiver.stats().retried());
+
+        mediaArchiver.flush();
+        verify(mediaServiceClient, times(2)).moveObjectToArchiveReactive("tomatoplant.jpg");
+        assertEquals(0, mediaArchiver.stats().queued());
+        assertEquals(1, mediaArchiver.stats().dropped());
+    }
+
+    @Test
+    void testFullQueueDropsNewObjects() {
+        MediaArchiver small = new MediaArchiver(mediaServiceClient, 10, 2, 2, 1, Duration.ZERO);
+
+        small.archive("a.png");
+        small.archive("b.png");
+
+        assertEquals(1, small.stats().queued());
+        assertEquals(1, small.stats().dropped());
+    }
+}
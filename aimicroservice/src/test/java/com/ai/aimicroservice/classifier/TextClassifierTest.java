@@ -0,0 +1,121 @@
+package com.ai.aimicroservice.classifier;
+
+import com.ai.aimicroservice.verdict.TextVerdict;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextClassifierTest {
+
+    private static final List<String> ALLOWED = List.of(
+            "Heirloom tomato seeds, harvested last summer",
+            "Basil and parsley seeds for your kitchen garden",
+            "Organic pepper seeds, sweet and hot varieties",
+            "Sunflower seeds for balcony pots",
+            "Carrot and radish seeds, easy to grow");
+
+    private static final List<String> REJECTED = List.of(
+            "Cannabis seeds, strong weed guaranteed",
+            "Buy weed seeds here, discreet shipping",
+            "Feminized cannabis strains for indoor grow",
+            "Selling kush and weed, best prices",
+            "Psilocybin mushroom spores and cannabis seeds");
+
+    private static List<LabeledText> examples() {
+        List<LabeledText> examples = new ArrayList<>();
+        ALLOWED.forEach(text -> examples.add(new LabeledText(text, true)));
+        REJECTED.forEach(text -> examples.add(new LabeledText(text, false)));
+        return examples;
+    }
+
+    private static ClassifierTrainer trainer() {
+        return new ClassifierTrainer(16, 30, 0.5, 1e-6, 42);
+    }
+
+    @Test
+    void testFeaturesAreDeterministicAndBounded() {
+        FeatureHasher hasher = new FeatureHasher(10);
+        int[] features = hasher.features("Tomato SEEDS, tomato seeds!");
+
+        assertTrue(Arrays.equals(features, hasher.features("Tomato SEEDS, tomato seeds!")));
+        assertTrue(features.length > 4);
+        for (int feature : features) {
+            assertTrue(feature >= 0 && feature < 1024);
+        }
+        assertEquals(0, hasher.features("  ...  ").length);
+    }
+
+    @Test
+    void testLearnsTheTrainingSet() {
+        TextClassifier classifier = trainer().train(examples());
+
+        for (String text : ALLOWED) {
+            assertTrue(classifier.probabilityAllowed(text) > 0.5, text);
+        }
+        for (String text : REJECTED) {
+            assertTrue(classifier.probabilityAllowed(text) < 0.5, text);
+        }
+        // unseen texts sharing words and n-grams with the training set
+        assertTrue(classifier.probabilityAllowed("tomatoes and basil seeds") > classifier.probabilityAllowed("weed and cannabis seeds"));
+    }
+
+    @Test
+    void testEvaluation() {
+        TextClassifier classifier = trainer().train(examples());
+
+        ClassifierTrainer.Evaluation evaluation = ClassifierTrainer.evaluate(classifier, examples(), 0.5);
+        assertEquals(10, evaluation.examples());
+        assertEquals(1.0, evaluation.accuracy());
+        assertEquals(1.0, evaluation.coverage());
+        assertEquals(0, evaluation.falseAllows());
+
+        assertEquals(0.0, ClassifierTrainer.evaluate(classifier, examples(), 1.0).coverage());
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        TextClassifier classifier = trainer().train(examples());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        classifier.write(output);
+
+        TextClassifier read = TextClassifier.read(new ByteArrayInputStream(output.toByteArray()));
+        assertEquals(16, read.bits());
+        for (LabeledText example : examples()) {
+            assertEquals(classifier.probabilityAllowed(example.text()), read.probabilityAllowed(example.text()));
+        }
+    }
+
+    @Test
+    void testRejectsForeignFiles() {
+        byte[] bytes = "not a model at all".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> TextClassifier.read(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    void testHistoryKeepsTheLastVerdict(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("history.jsonl");
+        VerdictHistory history = new VerdictHistory(new ObjectMapper(), path, true);
+        history.record("tomato seeds", TextVerdict.of(true, "Legal."), "mistral");
+        history.record("weed", TextVerdict.of(true, "Legal."), "mistral");
+        history.record("weed", TextVerdict.of(false, "Cannabis."), "mistral");
+        history.record("???", new TextVerdict(false, "no verdict", false), "mistral");
+        history.close();
+        Files.writeString(path, "not json\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        List<LabeledText> read = VerdictHistory.read(path, new ObjectMapper());
+        assertEquals(List.of(new LabeledText("tomato seeds", true), new LabeledText("weed", false)), read);
+    }
+}
@@ -0,0 +1,76 @@
+package com.ai.aimicroservice.client;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadTest {
+
+    @Test
+    void testCallReleasesSlot() {
+        Bulkhead bulkhead = new Bulkhead("post", 1, Duration.ZERO);
+
+        assertEquals("a", bulkhead.call(() -> "a"));
+        assertEquals("b", bulkhead.call(() -> "b"));
+        assertEquals(0, bulkhead.stats().inFlight());
+    }
+
+    @Test
+    void testCallReleasesSlotOnError() {
+        Bulkhead bulkhead = new Bulkhead("post", 1, Duration.ZERO);
+
+        assertThrows(IllegalStateException.class, () -> bulkhead.call(() -> {
+            throw new IllegalStateException("downstream failed");
+        }));
+        assertEquals("ok", bulkhead.call(() -> "ok"));
+    }
+
+    @Test
+    void testFullBulkheadRejects() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("report", 1, Duration.ofMillis(10));
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> slow = executor.submit(() -> bulkhead.call(() -> {
+                inside.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "slow";
+            }));
+            inside.await();
+
+            assertThrows(BulkheadFullException.class, () -> bulkhead.call(() -> "fast"));
+            assertEquals(1, bulkhead.stats().inFlight());
+            assertEquals(1, bulkhead.stats().rejected());
+
+            release.countDown();
+            assertEquals("slow", slow.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testWrapFailsFastWhenFull() {
+        Bulkhead bulkhead = new Bulkhead("media", 1, Duration.ZERO);
+        Mono<String> never = bulkhead.wrap(Mono.never());
+        var subscription = never.subscribe();
+
+        assertThrows(BulkheadFullException.class, () -> bulkhead.wrap(Mono.just("second")).block());
+
+        subscription.dispose();
+        assertEquals("third", bulkhead.wrap(Mono.just("third")).block());
+    }
+}
@@ -0,0 +1,78 @@
+package com.ai.aimicroservice.client;
+
+import com.ai.aimicroservice.deadline.Deadline;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgingTest {
+
+    private static final long MILLI = Duration.ofMillis(1).toNanos();
+
+    @Test
+    void testNoDelayUntilLatencyIsKnown() {
+        Hedging hedging = new Hedging("post", true, 0.95, Duration.ofMillis(1));
+
+        for (int i = 0; i < 19; i++) {
+            hedging.record(10 * MILLI);
+        }
+
+        assertNull(hedging.delay());
+    }
+
+    @Test
+    void testDelayFollowsThePercentile() {
+        Hedging hedging = new Hedging("post", true, 0.95, Duration.ofMillis(1));
+
+        for (int i = 1; i <= 64; i++) {
+            hedging.record(i * MILLI);
+        }
+
+        // 95% of 64 samples, the 61st fastest latency
+        assertEquals(Duration.ofMillis(61), hedging.delay());
+    }
+
+    @Test
+    void testDelayIsNeverBelowTheMinimum() {
+        Hedging hedging = new Hedging("post", true, 0.95, Duration.ofMillis(20));
+
+        for (int i = 0; i < 20; i++) {
+            hedging.record(MILLI);
+        }
+
+        assertEquals(Duration.ofMillis(20), hedging.delay());
+    }
+
+    @Test
+    void testHedgedCallIsTimedFromItsFirstAttempt() {
+        List<Long> recorded = new CopyOnWriteArrayList<>();
+        Hedging hedging = new Hedging("media", true, 0.95, Duration.ofMillis(5)) {
+            @Override
+            synchronized void record(long latencyNanos) {
+                recorded.add(latencyNanos);
+                super.record(latencyNanos);
+            }
+        };
+        for (int i = 0; i < 20; i++) {
+            hedging.record(5 * MILLI);
+        }
+        recorded.clear();
+
+        AtomicInteger attempts = new AtomicInteger();
+        String result = hedging.hedge(Deadline.after(Duration.ofSeconds(5)), () -> attempts.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofSeconds(2)).thenReturn("primary")
+                : Mono.just("hedge")).block();
+
+        assertEquals("hedge", result);
+        assertEquals(1, hedging.stats().hedgeWins());
+        // the cancelled primary is not lost: the call took at least the hedging delay
+        assertEquals(1, recorded.size());
+        assertTrue(recorded.get(0) >= 5 * MILLI, "recorded " + recorded.get(0));
+    }
+}
@@ -0,0 +1,81 @@
+package com.ai.aimicroservice.client;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MediaBufferPoolTest {
+
+    @Test
+    void testBuffersGoBackToThePool() {
+        MediaBufferPool pool = new MediaBufferPool(1024, 2);
+        MediaBuffer first = pool.acquire(-1);
+        MediaBuffer second = pool.acquire(-1);
+        MediaBuffer overflow = pool.acquire(-1);
+        assertTrue(first.buffer().isDirect());
+        assertTrue(second.buffer().isDirect());
+        assertFalse(overflow.buffer().isDirect());
+
+        first.close();
+        first.close();
+        assertTrue(pool.acquire(-1).buffer().isDirect());
+        assertFalse(pool.acquire(-1).buffer().isDirect());
+    }
+
+    @Test
+    void testOverflowIsSizedFromTheContentLength() {
+        MediaBufferPool pool = new MediaBufferPool(1 << 20, 0);
+        MediaBuffer media = pool.acquire(100);
+        media.append(chunk(100, (byte) 1), "seeds.jpg");
+
+        assertEquals(100, media.flip().size());
+        assertEquals(100, media.buffer().capacity());
+    }
+
+    @Test
+    void testOverflowGrowsWhenTheLengthIsUnknown() {
+        MediaBufferPool pool = new MediaBufferPool(1 << 20, 0);
+        MediaBuffer media = pool.acquire(-1);
+        assertEquals(MediaBufferPool.INITIAL_OVERFLOW_SIZE, media.buffer().capacity());
+
+        int chunkSize = MediaBufferPool.INITIAL_OVERFLOW_SIZE / 2 + 1;
+        for (int i = 0; i < 3; i++) {
+            media.append(chunk(chunkSize, (byte) i), "seeds.jpg");
+        }
+
+        ByteBuffer object = media.flip().buffer();
+        assertEquals(3 * chunkSize, object.remaining());
+        byte[] bytes = new byte[object.remaining()];
+        object.get(bytes);
+        for (int i = 0; i < 3; i++) {
+            byte[] expected = new byte[chunkSize];
+            Arrays.fill(expected, (byte) i);
+            assertArrayEquals(expected, Arrays.copyOfRange(bytes, i * chunkSize, (i + 1) * chunkSize));
+        }
+    }
+
+    @Test
+    void testObjectAboveTheLimitIsRejected() {
+        MediaBufferPool pool = new MediaBufferPool(1000, 1);
+        MediaBuffer pooled = pool.acquire(-1);
+        MediaBuffer overflow = pool.acquire(-1);
+
+        pooled.append(chunk(600, (byte) 1), "seeds.jpg");
+        overflow.append(chunk(600, (byte) 1), "seeds.jpg");
+        assertThrows(MediaTooLargeException.class, () -> pooled.append(chunk(401, (byte) 1), "seeds.jpg"));
+        assertThrows(MediaTooLargeException.class, () -> overflow.append(chunk(401, (byte) 1), "seeds.jpg"));
+        overflow.append(chunk(400, (byte) 1), "seeds.jpg");
+        assertEquals(1000, overflow.flip().size());
+    }
+
+    private static DataBuffer chunk(int size, byte value) {
+        byte[] bytes = new byte[size];
+        Arrays.fill(bytes, value);
+        return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+    }
+}
@@ -0,0 +1,100 @@
+package com.ai.aimicroservice.client;
+
+import com.ai.aimicroservice.deadline.Deadline;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+class MediaServiceClientTest {
+
+    private final MediaBufferPool pool = new MediaBufferPool(1000, 1);
+
+    @Test
+    void testObjectIsStreamedIntoAPooledBuffer() {
+        MediaServiceClient client = client(Flux.just(chunk(300), chunk(200)), -1);
+
+        try (MediaBuffer media = client.getS3ObjectBuffer("seeds.jpg", Deadline.after(Duration.ofSeconds(5))).block()) {
+            assertEquals(500, media.size());
+            assertTrue(media.buffer().isDirect());
+        }
+        assertTrue(pool.acquire(-1).buffer().isDirect());
+    }
+
+    @Test
+    void testKnownLengthAboveTheLimitIsRejectedBeforeTheBody() {
+        MediaServiceClient client = client(Flux.just(chunk(10)), 1001);
+
+        assertThrows(MediaTooLargeException.class,
+                () -> client.getS3ObjectBuffer("seeds.jpg", Deadline.after(Duration.ofSeconds(5))).block());
+        assertTrue(pool.acquire(-1).buffer().isDirect());
+    }
+
+    @Test
+    void testBufferIsReleasedWhenTheLimitIsCrossed() {
+        MediaServiceClient client = client(Flux.just(chunk(600), chunk(600)), -1);
+
+        assertThrows(MediaTooLargeException.class,
+                () -> client.getS3ObjectBuffer("seeds.jpg", Deadline.after(Duration.ofSeconds(5))).block());
+        assertTrue(pool.acquire(-1).buffer().isDirect());
+    }
+
+    @Test
+    void testBufferIsReleasedOnError() {
+        MediaServiceClient client = client(Flux.concat(Flux.just(chunk(100)), Flux.error(new IOException("reset"))), -1);
+
+        assertThrows(RuntimeException.class,
+                () -> client.getS3ObjectBuffer("seeds.jpg", Deadline.after(Duration.ofSeconds(5))).block());
+        assertTrue(pool.acquire(-1).buffer().isDirect());
+    }
+
+    @Test
+    void testBufferIsReleasedOnCancel() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        MediaServiceClient client = client(Flux.concat(Flux.just(chunk(100)), Flux.<DataBuffer>never())
+                .doOnCancel(() -> cancelled.set(true)), -1);
+
+        Disposable fetch = client.getS3ObjectBuffer("seeds.jpg", Deadline.after(Duration.ofSeconds(5))).subscribe();
+        fetch.dispose();
+
+        assertTrue(cancelled.get());
+        assertTrue(pool.acquire(-1).buffer().isDirect());
+    }
+
+    private MediaServiceClient client(Flux<DataBuffer> body, long contentLength) {
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://media")
+                .exchangeFunction(request -> {
+                    ClientResponse.Builder response = ClientResponse.create(HttpStatus.OK).body(body);
+                    if (contentLength >= 0) {
+                        response.header(HttpHeaders.CONTENT_LENGTH, String.valueOf(contentLength));
+                    }
+                    return Mono.just(response.build());
+                })
+                .build();
+        Downstream downstream = new Downstream("media", "http://media", webClient,
+                new Bulkhead("media", 4, Duration.ofMillis(100)), new Hedging("media", false, 0.95, Duration.ofMillis(20)));
+        DownstreamHttpClients downstreamHttpClients = Mockito.mock(DownstreamHttpClients.class);
+        when(downstreamHttpClients.create(anyString(), anyString())).thenReturn(downstream);
+        return new MediaServiceClient(downstreamHttpClients, pool);
+    }
+
+    private static DataBuffer chunk(int size) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(new byte[size]);
+    }
+}
@@ -0,0 +1,98 @@
+package com.ai.aimicroservice.consumer;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryEventBrokerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final InMemoryEventBroker broker = new InMemoryEventBroker(3, Duration.ofMinutes(1), clock::get);
+
+    @Test
+    void testDeliversInOrderUpToMax() throws InterruptedException {
+        broker.publish(event("1"));
+        broker.publish(event("2"));
+        broker.publish(event("3"));
+
+        List<Delivery> first = broker.poll(2, Duration.ZERO);
+        assertEquals(List.of("1", "2"), first.stream().map(d -> d.event().postId()).toList());
+        assertEquals(1, first.get(0).attempt());
+        assertEquals("3", broker.poll(5, Duration.ZERO).get(0).event().postId());
+        assertTrue(broker.poll(5, Duration.ZERO).isEmpty());
+        assertEquals(3, broker.stats().inFlight());
+    }
+
+    @Test
+    void testRejectsEventsOverCapacity() {
+        broker.publish(event("1"));
+        broker.publish(event("2"));
+        broker.publish(event("3"));
+
+        assertThrows(BrokerFullException.class, () -> broker.publish(event("4")));
+    }
+
+    @Test
+    void testAckedEventIsGone() throws InterruptedException {
+        broker.publish(event("1"));
+        Delivery delivery = broker.poll(1, Duration.ZERO).get(0);
+
+        assertTrue(broker.ack(delivery));
+        assertFalse(broker.ack(delivery));
+        clock.addAndGet(Duration.ofHours(1).toNanos());
+        assertTrue(broker.poll(1, Duration.ZERO).isEmpty());
+        assertEquals(0, broker.stats().backlog());
+    }
+
+    @Test
+    void testNackedEventIsRedeliveredAfterTheDelay() throws InterruptedException {
+        broker.publish(event("1"));
+        broker.nack(broker.poll(1, Duration.ZERO).get(0), Duration.ofSeconds(10));
+
+        assertTrue(broker.poll(1, Duration.ZERO).isEmpty());
+        assertEquals(1, broker.stats().backlog());
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        Delivery retry = broker.poll(1, Duration.ZERO).get(0);
+        assertEquals(2, retry.attempt());
+        assertEquals(1, broker.stats().redelivered());
+        assertEquals(10_000, broker.stats().lagMillis());
+    }
+
+    @Test
+    void testExpiredDeliveryIsRedelivered() throws InterruptedException {
+        broker.publish(event("1"));
+        Delivery lost = broker.poll(1, Duration.ZERO).get(0);
+
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+        Delivery again = broker.poll(1, Duration.ZERO).get(0);
+        assertEquals(2, again.attempt());
+        // the late ack of the first delivery does not remove the redelivered event
+        assertFalse(broker.ack(lost));
+        assertTrue(broker.ack(again));
+    }
+
+    @Test
+    void testPollWaitsForPublication() throws InterruptedException {
+        InMemoryEventBroker realTime = new InMemoryEventBroker(10, Duration.ofMinutes(1));
+        Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            realTime.publish(event("1"));
+        });
+
+        assertEquals(1, realTime.poll(1, Duration.ofSeconds(5)).size());
+        assertTrue(realTime.poll(1, Duration.ofMillis(20)).isEmpty());
+    }
+
+    static PostEvent event(String postId) {
+        return new PostEvent("event-" + postId, PostEvent.Type.POST_CREATED, postId, Instant.now());
+    }
+}
@@ -0,0 +1,106 @@
+package com.ai.aimicroservice.consumer;
+
+import com.ai.aimicroservice.deadline.Deadline;
+import com.ai.aimicroservice.service.AIAnalysisService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModerationConsumerTest {
+
+    private final InMemoryEventBroker broker = new InMemoryEventBroker(1000, Duration.ofMinutes(1));
+    private final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+
+    private final AIAnalysisService analysis = new AIAnalysisService(null, null, null, null, null, null, null, null, null) {
+        @Override
+        public boolean analyze(String postId, Deadline deadline) {
+            int attempt = attempts.computeIfAbsent(postId, id -> new AtomicInteger()).incrementAndGet();
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+            if (postId.equals("broken") || (postId.equals("flaky") && attempt == 1)) {
+                throw new RuntimeException("Post service unavailable");
+            }
+            return true;
+        }
+    };
+
+    @Test
+    void testDrainsEventsWithBoundedConcurrency() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            broker.publish(InMemoryEventBrokerTest.event("post-" + i));
+        }
+        ModerationConsumer consumer = consumer(3);
+        try {
+            awaitAcked(consumer, 20);
+            assertTrue(peak.get() <= 3, "at most 3 posts in flight, was " + peak.get());
+            assertEquals(0, consumer.stats().broker().backlog());
+        } finally {
+            consumer.close();
+        }
+    }
+
+    @Test
+    void testRetriesThenDeadLetters() throws Exception {
+        broker.publish(InMemoryEventBrokerTest.event("flaky"));
+        broker.publish(InMemoryEventBrokerTest.event("broken"));
+        ModerationConsumer consumer = consumer(2);
+        try {
+            awaitAcked(consumer, 1);
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (consumer.stats().deadLettered() == 0 && System.nanoTime() < deadline) Thread.sleep(10);
+
+            assertEquals(2, attempts.get("flaky").get());
+            assertEquals(3, attempts.get("broken").get());
+            assertEquals(1, consumer.stats().deadLettered());
+            assertEquals(3, consumer.stats().retried());
+        } finally {
+            consumer.close();
+        }
+    }
+
+    @Test
+    void testNoEventIsTakenBeforeTheStart() throws Exception {
+        broker.publish(InMemoryEventBrokerTest.event("post-1"));
+        ModerationConsumer consumer = new ModerationConsumer(broker, analysis, new SimpleMeterRegistry(), true, 2,
+                Duration.ofSeconds(5), 3, Duration.ofMillis(10), Duration.ofMillis(50));
+        try {
+            Thread.sleep(100);
+            assertEquals(1, consumer.stats().broker().backlog());
+            assertTrue(attempts.isEmpty());
+
+            consumer.start();
+            awaitAcked(consumer, 1);
+        } finally {
+            consumer.close();
+        }
+    }
+
+    private ModerationConsumer consumer(int concurrency) {
+        ModerationConsumer consumer = new ModerationConsumer(broker, analysis, new SimpleMeterRegistry(), true, concurrency,
+                Duration.ofSeconds(5), 3, Duration.ofMillis(10), Duration.ofMillis(50));
+        consumer.start();
+        return consumer;
+    }
+
+    private static void awaitAcked(ModerationConsumer consumer, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (consumer.stats().acked() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, consumer.stats().acked());
+    }
+}
@@ -0,0 +1,89 @@
+package com.ai.aimicroservice.controller;
+
+import com.ai.aimicroservice.entity.AnalysisResult;
+import com.ai.aimicroservice.service.AIAnalysisService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AIAnalysisControllerTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private AIAnalysisService aiAnalysisService;
+    private AIAnalysisController controller;
+
+    @BeforeEach
+    void setUp() {
+        aiAnalysisService = Mockito.mock(AIAnalysisService.class);
+        controller = new AIAnalysisController(aiAnalysisService, executor, true, 2, 10,
+                Duration.ofSeconds(5), Duration.ofSeconds(60));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testBatchOverTheLimitIsRejected() {
+        List<String> postIds = IntStream.range(0, 11).mapToObj(String::valueOf).toList();
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> controller.batch(postIds, null));
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, e.getStatusCode());
+        verify(aiAnalysisService, never()).analyzeReactive(anyString(), any());
+    }
+
+    @Test
+    void testBatchConcurrencyIsBounded() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(aiAnalysisService.analyzeReactive(anyString(), any())).thenAnswer(invocation -> Mono.delay(Duration.ofMillis(20))
+                .doOnSubscribe(s -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                .doOnTerminate(inFlight::decrementAndGet)
+                .thenReturn(true));
+
+        List<AnalysisResult> results = controller.batch(IntStream.range(0, 10).mapToObj(String::valueOf).toList(), null)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(10, results.size());
+        assertTrue(results.stream().allMatch(result -> result.getAllowed() && result.getError() == null));
+        assertEquals(2, maxInFlight.get());
+    }
+
+    @Test
+    void testFailedPostGetsAnErrorLine() {
+        when(aiAnalysisService.analyzeReactive(anyString(), any())).thenReturn(Mono.just(false));
+        when(aiAnalysisService.analyzeReactive(Mockito.eq("2"), any())).thenReturn(Mono.error(new IllegalStateException("post service down")));
+
+        Map<String, AnalysisResult> results = controller.batch(List.of("1", "2", "3"), "2s")
+                .collectMap(AnalysisResult::getPostId, Function.identity())
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(3, results.size());
+        assertEquals(false, results.get("1").getAllowed());
+        assertEquals(false, results.get("3").getAllowed());
+        assertNull(results.get("2").getAllowed());
+        assertEquals("post service down", results.get("2").getError());
+    }
+}
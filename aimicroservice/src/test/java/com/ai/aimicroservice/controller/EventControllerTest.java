@@ -0,0 +1,38 @@
+package com.ai.aimicroservice.controller;
+
+import com.ai.aimicroservice.consumer.InMemoryEventBroker;
+import com.ai.aimicroservice.consumer.PostEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventControllerTest {
+
+    private final InMemoryEventBroker broker = new InMemoryEventBroker(10, Duration.ofMinutes(1));
+
+    @Test
+    void testEventIsPublished() {
+        EventController controller = new EventController(broker, true);
+
+        PostEvent published = controller.publish(new PostEvent(null, PostEvent.Type.POST_CREATED, "1", null)).getBody();
+
+        assertNotNull(published.id());
+        assertNotNull(published.publishedAt());
+        assertEquals(1, broker.stats().backlog());
+    }
+
+    @Test
+    void testEventIsRefusedWhileTheConsumerIsDisabled() {
+        EventController controller = new EventController(broker, false);
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> controller.publish(new PostEvent(null, PostEvent.Type.POST_CREATED, "1", null)));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+        assertEquals(0, broker.stats().backlog());
+    }
+}
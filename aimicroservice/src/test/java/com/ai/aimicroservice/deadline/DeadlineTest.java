@@ -0,0 +1,46 @@
+package com.ai.aimicroservice.deadline;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineTest {
+
+    @Test
+    void testCapKeepsTheShorterOfTimeoutAndTimeLeft() {
+        Deadline deadline = Deadline.after(Duration.ofSeconds(10));
+
+        assertEquals(Duration.ofSeconds(1), deadline.cap(Duration.ofSeconds(1)));
+        assertTrue(deadline.cap(Duration.ofSeconds(30)).compareTo(Duration.ofSeconds(10)) <= 0);
+        assertFalse(deadline.isExpired());
+    }
+
+    @Test
+    void testExpiredDeadlineHasNothingLeft() {
+        Deadline deadline = Deadline.after(Duration.ofNanos(-1));
+
+        assertTrue(deadline.isExpired());
+        assertEquals(Duration.ZERO, deadline.remaining());
+        assertEquals(Duration.ZERO, deadline.cap(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void testUnboundedDeadlineNeverExpires() {
+        Deadline deadline = Deadline.unbounded();
+
+        assertFalse(deadline.isBounded());
+        assertFalse(deadline.isExpired());
+        assertEquals(Duration.ofSeconds(30), deadline.cap(Duration.ofSeconds(30)));
+    }
+
+    @Test
+    void testIsExceededLooksThroughCauses() {
+        RuntimeException wrapped = new RuntimeException("Failed to analyze post 1",
+                new RuntimeException("Failed to analyze image", new DeadlineExceededException()));
+
+        assertTrue(Deadline.isExceeded(wrapped));
+        assertFalse(Deadline.isExceeded(new RuntimeException("other")));
+    }
+}
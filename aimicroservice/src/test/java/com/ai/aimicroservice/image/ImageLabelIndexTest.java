@@ -0,0 +1,82 @@
+package com.ai.aimicroservice.image;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rekognition.model.Label;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageLabelIndexTest {
+
+    @Test
+    void testResizedJpegIsNearDuplicate() throws Exception {
+        byte[] original = Files.readAllBytes(Path.of("src/test/resources/weed.png"));
+        byte[] resized = resizeToJpeg(original, 0.5);
+
+        int distance = PerceptualHash.distance(PerceptualHash.compute(original), PerceptualHash.compute(resized));
+        assertTrue(distance <= 6, "Re-encoded image should be a near-duplicate, distance was " + distance);
+    }
+
+    @Test
+    void testDifferentImagesAreFarApart() throws Exception {
+        long weed = PerceptualHash.compute(Files.readAllBytes(Path.of("src/test/resources/weed.png")));
+        long tomato = PerceptualHash.compute(Files.readAllBytes(Path.of("src/test/resources/tomatoplant.jpg")));
+
+        assertTrue(PerceptualHash.distance(weed, tomato) > 6);
+    }
+
+    @Test
+    void testFindWithinDistance() {
+        ImageLabelIndex index = new ImageLabelIndex(10, 6);
+        long hash = 0x0F0F_F0F0_1234_5678L;
+        index.put(hash, List.of(label("Weed")));
+
+        // 5 bits flipped, spread over several chunks
+        long nearDuplicate = hash ^ 0x0001_0003_0000_0003L;
+        assertEquals(List.of(label("Weed")), index.find(nearDuplicate).orElseThrow());
+        assertTrue(index.find(hash ^ 0x00FF_0000_0000_0000L).isEmpty());
+        assertEquals(1, index.stats().hits());
+        assertEquals(1, index.stats().misses());
+    }
+
+    @Test
+    void testEvictsOldestImage() {
+        ImageLabelIndex index = new ImageLabelIndex(2, 0);
+        index.put(1L, List.of(label("Seed")));
+        index.put(2L, List.of(label("Plant")));
+        index.put(3L, List.of(label("Flower")));
+
+        assertTrue(index.find(1L).isEmpty());
+        assertTrue(index.find(3L).isPresent());
+        assertEquals(2, index.stats().size());
+        assertEquals(1, index.stats().evictions());
+    }
+
+    private static Label label(String name) {
+        return Label.builder().name(name).confidence(98.5F).build();
+    }
+
+    private static byte[] resizeToJpeg(byte[] imageBytes, double scale) throws Exception {
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(imageBytes));
+        int width = (int) (source.getWidth() * scale);
+        int height = (int) (source.getHeight() * scale);
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(source, 0, 0, width, height, null);
+        graphics.dispose();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(resized, "jpg", out);
+        return out.toByteArray();
+    }
+}
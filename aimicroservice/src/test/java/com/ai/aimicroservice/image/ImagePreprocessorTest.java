@@ -0,0 +1,74 @@
+package com.ai.aimicroservice.image;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImagePreprocessorTest {
+
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor(true, 1024, 0.85f, 512 * 1024);
+
+    @Test
+    void testLargeImageIsDownscaled() throws Exception {
+        byte[] original = Files.readAllBytes(Path.of("src/test/resources/tomatoplant.jpg"));
+
+        ImagePreprocessor.PreparedImage prepared = preprocessor.prepare(ByteBuffer.wrap(original));
+        byte[] payload = toBytes(prepared.payload());
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(payload));
+
+        assertEquals(1024, Math.max(image.getWidth(), image.getHeight()));
+        assertTrue(payload.length < original.length / 4, "Payload should be much smaller, was " + payload.length);
+        // JPEG start of image marker
+        assertEquals((byte) 0xFF, payload[0]);
+        assertEquals((byte) 0xD8, payload[1]);
+    }
+
+    @Test
+    void testDownscaledImageKeepsItsPerceptualHash() throws Exception {
+        byte[] original = Files.readAllBytes(Path.of("src/test/resources/tomatoplant.jpg"));
+
+        ImagePreprocessor.PreparedImage prepared = preprocessor.prepare(ByteBuffer.wrap(original));
+
+        int distance = PerceptualHash.distance(PerceptualHash.compute(original), PerceptualHash.compute(prepared.payload()));
+        assertTrue(distance <= 6, "Downscaled image should be a near-duplicate, distance was " + distance);
+    }
+
+    @Test
+    void testSmallImageIsPassedThrough() throws Exception {
+        ByteBuffer original = ByteBuffer.wrap(Files.readAllBytes(Path.of("src/test/resources/weed.png")));
+
+        ImagePreprocessor.PreparedImage prepared = preprocessor.prepare(original);
+
+        assertSame(original, prepared.payload());
+        assertNull(prepared.decoded());
+        assertEquals(0, original.position());
+    }
+
+    @Test
+    void testUndecodableImageIsPassedThrough() {
+        ByteBuffer original = ByteBuffer.wrap(new byte[]{1, 2, 3, 4});
+
+        assertSame(original, preprocessor.prepare(original).payload());
+    }
+
+    @Test
+    void testDisabled() throws Exception {
+        ImagePreprocessor disabled = new ImagePreprocessor(false, 1024, 0.85f, 512 * 1024);
+        ByteBuffer original = ByteBuffer.wrap(Files.readAllBytes(Path.of("src/test/resources/tomatoplant.jpg")));
+
+        assertSame(original, disabled.prepare(original).payload());
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
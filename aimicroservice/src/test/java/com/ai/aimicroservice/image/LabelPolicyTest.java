@@ -0,0 +1,84 @@
+package com.ai.aimicroservice.image;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rekognition.model.Label;
+import software.amazon.awssdk.services.rekognition.model.Parent;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LabelPolicyTest {
+
+    private final LabelPolicy policy = LabelPolicy.compile(List.of(
+            "# test policy",
+            "deny Cannabis",
+            "deny Weed 80",
+            "allow Plant",
+            "allow Potted Plant 90",
+            "deny Drugs"
+    ));
+
+    @Test
+    void testDeniedLabelRejects() {
+        assertFalse(policy.evaluate(List.of(label("Plant", 99F), label("Cannabis", 76F))).allowed());
+    }
+
+    @Test
+    void testBelowThresholdIsIgnored() {
+        assertTrue(policy.evaluate(List.of(label("Plant", 99F), label("Weed", 76F))).allowed());
+        assertFalse(policy.evaluate(List.of(label("Plant", 99F), label("Weed", 85F))).allowed());
+    }
+
+    @Test
+    void testParentCategoryMatches() {
+        assertTrue(policy.evaluate(List.of(label("Tomato", 95F, "Plant", "Food"))).allowed());
+        assertFalse(policy.evaluate(List.of(label("Pills", 95F, "Drugs"))).allowed());
+    }
+
+    @Test
+    void testOwnRuleBeatsParentRule() {
+        // "Cannabis" is a child of "Plant", the deny on the label itself wins
+        assertFalse(policy.evaluate(List.of(label("Cannabis", 95F, "Plant"))).allowed());
+    }
+
+    @Test
+    void testLabelNamesWithSpaces() {
+        assertTrue(policy.evaluate(List.of(label("potted plant", 95F))).allowed());
+        assertFalse(policy.evaluate(List.of(label("Potted Plant", 80F))).allowed());
+    }
+
+    @Test
+    void testNoAllowedLabelRejects() {
+        assertFalse(policy.evaluate(List.of(label("Electronics", 99F))).allowed());
+        assertFalse(policy.evaluate(List.of()).allowed());
+    }
+
+    @Test
+    void testAllowAndDenyKeepTheirOwnThresholds() {
+        LabelPolicy hemp = LabelPolicy.compile(List.of("allow Hemp 50", "deny Hemp 90"));
+        assertTrue(hemp.evaluate(List.of(label("Hemp", 70F))).allowed());
+        assertFalse(hemp.evaluate(List.of(label("Hemp", 95F))).allowed());
+        assertFalse(hemp.evaluate(List.of(label("Hemp", 40F))).allowed());
+
+        // the deny rule still applies when it comes first
+        LabelPolicy reversed = LabelPolicy.compile(List.of("deny Hemp 90", "allow Hemp 50"));
+        assertFalse(reversed.evaluate(List.of(label("Hemp", 95F))).allowed());
+        assertEquals(2, reversed.size());
+    }
+
+    @Test
+    void testMalformedRule() {
+        assertThrows(IllegalArgumentException.class, () -> LabelPolicy.compile(List.of("maybe Plant")));
+        assertThrows(IllegalArgumentException.class, () -> LabelPolicy.compile(List.of("allow Plant", "allow plant 80")));
+    }
+
+    private static Label label(String name, float confidence, String... parents) {
+        return Label.builder()
+                .name(name)
+                .confidence(confidence)
+                .parents(Arrays.stream(parents).map(p -> Parent.builder().name(p).build()).toList())
+                .build();
+    }
+}
@@ -0,0 +1,74 @@
+package com.ai.aimicroservice.image;
+
+import com.ai.aimicroservice.utils.Localstack;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rekognition.model.S3Object;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class S3ImageLocatorTest {
+
+    private static final String BUCKET = "rekognitor-bucket";
+
+    private static S3AsyncClient s3AsyncClient;
+
+    @BeforeAll
+    static void setup() {
+        // same layout as docker/localstack/init.sh
+        Localstack.createS3Client().createBucket(b -> b.bucket(BUCKET));
+        Localstack.uploadFileAsync(BUCKET, "analyze/tomatoplant.jpg", Path.of("src/test/resources/tomatoplant.jpg")).join();
+        s3AsyncClient = Localstack.createS3AsyncClient();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        s3AsyncClient.close();
+    }
+
+    @Test
+    void testImageOfTheBucketIsReferenced() {
+        S3Object reference = locator(true).locate("tomatoplant.jpg").block();
+
+        assertNotNull(reference);
+        assertEquals(BUCKET, reference.bucket());
+        assertEquals("analyze/tomatoplant.jpg", reference.name());
+        assertEquals(reference, locator(true).locate("s3://rekognitor-bucket/analyze/tomatoplant.jpg").block());
+    }
+
+    @Test
+    void testMissingImageFallsBackToBytes() {
+        assertNull(locator(true).locate("missing.jpg").block());
+    }
+
+    @Test
+    void testImageOutsideTheBucketFallsBackToBytes() {
+        assertNull(locator(true).locate("s3://other-bucket/analyze/tomatoplant.jpg").block());
+    }
+
+    @Test
+    void testDisabled() {
+        assertNull(locator(false).locate("tomatoplant.jpg").block());
+    }
+
+    @Test
+    void testKey() {
+        S3ImageLocator locator = locator(true);
+
+        assertEquals(Optional.of("analyze/weed.png"), locator.key("weed.png"));
+        assertEquals(Optional.of("archive/weed.png"), locator.key("s3://rekognitor-bucket/archive/weed.png"));
+        assertEquals(Optional.empty(), locator.key("s3://rekognitor-bucket-2/analyze/weed.png"));
+        assertEquals(Optional.empty(), locator.key("s3://rekognitor-bucket"));
+        assertEquals(Optional.empty(), locator.key("s3://rekognitor-bucket/"));
+        assertEquals(Optional.empty(), locator.key(""));
+    }
+
+    private static S3ImageLocator locator(boolean enabled) {
+        return new S3ImageLocator(s3AsyncClient, enabled, BUCKET, "analyze/");
+    }
+}
@@ -0,0 +1,77 @@
+package com.ai.aimicroservice.lexicon;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LexiconFilterTest {
+
+    private LexiconFilter lexiconFilter;
+
+    @BeforeEach
+    void setUp() {
+        lexiconFilter = new LexiconFilter(new DefaultResourceLoader(), "classpath:assets/lexicon.txt", true);
+    }
+
+    @Test
+    void testMatchesBundledSample() throws Exception {
+        String description = Files.readString(Path.of("src/main/resources/assets/slurs.txt"));
+        assertTrue(lexiconFilter.match(description).isPresent());
+    }
+
+    @Test
+    void testCleanDescriptionDoesNotMatch() throws Exception {
+        String description = Files.readString(Path.of("src/main/resources/assets/description.txt"));
+        assertEquals(Optional.empty(), lexiconFilter.match(description));
+    }
+
+    @Test
+    void testLeetspeakAndAccents() {
+        assertEquals(Optional.of("shit"), lexiconFilter.match("This is $h1t, don't buy"));
+        assertEquals(Optional.of("fuck"), lexiconFilter.match("Fück these seeds"));
+        assertEquals(Optional.of("fuck"), lexiconFilter.match("fuuuuuuck"));
+        assertEquals(Optional.of("jackas"), lexiconFilter.match("what a JACKASSS"));
+    }
+
+    @Test
+    void testWholeWordTermsRespectBoundaries() {
+        // "shit" is a whole-word term, shiitake (squeezed to "shitake") is a mushroom
+        assertEquals(Optional.empty(), lexiconFilter.match("Shiitake spawn plugs, great price!"));
+        assertEquals(Optional.of("shit"), lexiconFilter.match("Don't buy this shit!"));
+    }
+
+    @Test
+    void testGardeningTermsDoNotMatch() {
+        assertEquals(Optional.empty(), lexiconFilter.match("Prick out the seedlings once they have two true leaves"));
+        assertEquals(Optional.empty(), lexiconFilter.match("Bastard saffron (safflower) seeds, 50 pcs"));
+        assertEquals(Optional.empty(), lexiconFilter.match("Bastard balm, a shade-loving perennial"));
+        assertEquals(Optional.empty(), lexiconFilter.match("Prickly pear pads, pricked and ready to root"));
+    }
+
+    @Test
+    void testAutomatonOverlappingTerms() {
+        AhoCorasick automaton = new AhoCorasick(List.of("he", "she", "*hers", "his"));
+        assertEquals(Optional.of("hers"), automaton.findFirst("ushers she"));
+        assertEquals(Optional.of("she"), automaton.findFirst("usher, she said"));
+        assertEquals(Optional.empty(), automaton.findFirst("this"));
+    }
+
+    @Test
+    void testReloadPicksUpNewTerms() throws Exception {
+        Path lexicon = Files.createTempFile("lexicon", ".txt");
+        Files.writeString(lexicon, "cabbage\n");
+        LexiconFilter filter = new LexiconFilter(new DefaultResourceLoader(), lexicon.toUri().toString(), true);
+        assertTrue(filter.match("Fresh cabbage seeds").isPresent());
+
+        Files.writeString(lexicon, "# no terms\n");
+        filter.reload();
+        assertTrue(filter.match("Fresh cabbage seeds").isEmpty());
+    }
+}
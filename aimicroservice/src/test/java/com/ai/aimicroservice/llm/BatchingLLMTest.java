@@ -0,0 +1,154 @@
+package com.ai.aimicroservice.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingLLMTest {
+
+    private BatchingLLM batching;
+
+    @AfterEach
+    void tearDown() {
+        if (batching != null) batching.close();
+    }
+
+    @Test
+    void testFullBatchIsSentInOneRequest() {
+        StubModel model = new StubModel(texts -> answer(texts, 0, texts.size()));
+        batching = new BatchingLLM(model, new ObjectMapper(), 3, Duration.ofMinutes(1));
+
+        List<CompletableFuture<String>> responses = new ArrayList<>();
+        for (String text : List.of("tomato", "drugs", "basil")) {
+            responses.add(batching.submit(text));
+        }
+
+        assertEquals("Reasoning for tomato\nTRUE", responses.get(0).join());
+        assertEquals("Reasoning for drugs\nFALSE", responses.get(1).join());
+        assertEquals("Reasoning for basil\nTRUE", responses.get(2).join());
+        assertEquals(List.of(List.of("tomato", "drugs", "basil")), model.batches);
+        assertTrue(model.singles.isEmpty());
+    }
+
+    @Test
+    void testWindowFlushesPartialBatch() {
+        StubModel model = new StubModel(texts -> answer(texts, 0, texts.size()));
+        batching = new BatchingLLM(model, new ObjectMapper(), 16, Duration.ofMillis(10));
+
+        CompletableFuture<String> first = batching.submit("tomato");
+        CompletableFuture<String> second = batching.submit("basil");
+
+        assertEquals("Reasoning for tomato\nTRUE", first.join());
+        assertEquals("Reasoning for basil\nTRUE", second.join());
+        assertEquals(1, model.batches.size());
+    }
+
+    @Test
+    void testSingleTextSkipsBatchPrompt() {
+        StubModel model = new StubModel(texts -> {
+            throw new AssertionError("a single text must not be batched");
+        });
+        batching = new BatchingLLM(model, new ObjectMapper(), 16, Duration.ofMillis(10));
+
+        assertEquals("Single tomato\nTRUE", batching.generateTextAnalysis("tomato"));
+        assertTrue(model.batches.isEmpty());
+    }
+
+    @Test
+    void testMalformedResponseFallsBackToSingleRequests() {
+        StubModel model = new StubModel(texts -> "Sorry, here are my verdicts: TRUE, FALSE");
+        batching = new BatchingLLM(model, new ObjectMapper(), 2, Duration.ofMinutes(1));
+
+        CompletableFuture<String> first = batching.submit("tomato");
+        CompletableFuture<String> second = batching.submit("drugs");
+
+        assertEquals("Single tomato\nTRUE", first.join());
+        assertEquals("Single drugs\nFALSE", second.join());
+        assertEquals(2, model.singles.size());
+    }
+
+    @Test
+    void testMissingItemFallsBackToSingleRequest() {
+        StubModel model = new StubModel(texts -> "```json\n" + answer(texts, 0, 1) + "\n```");
+        batching = new BatchingLLM(model, new ObjectMapper(), 2, Duration.ofMinutes(1));
+
+        CompletableFuture<String> first = batching.submit("tomato");
+        CompletableFuture<String> second = batching.submit("basil");
+
+        assertEquals("Reasoning for tomato\nTRUE", first.join());
+        assertEquals("Single basil\nTRUE", second.join());
+        assertEquals(List.of("basil"), model.singles);
+    }
+
+    @Test
+    void testWaitingCallerCanBeInterrupted() {
+        batching = new BatchingLLM(new StubModel(texts -> answer(texts, 0, texts.size())), new ObjectMapper(), 16,
+                Duration.ofMinutes(1));
+
+        // the window keeps the text waiting, the interrupt has to end the wait
+        Thread.currentThread().interrupt();
+        try {
+            RuntimeException e = assertThrows(RuntimeException.class, () -> batching.generateTextAnalysis("tomato"));
+            assertInstanceOf(InterruptedException.class, e.getCause());
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void testSplitAcceptsTextualVerdictsAndIgnoresUnknownIds() {
+        batching = new BatchingLLM(new StubModel(texts -> ""), new ObjectMapper(), 2, Duration.ofMinutes(1));
+
+        String[] responses = batching.split("""
+                [{"id": 1, "verdict": "FALSE", "reasoning": "Off-topic."},
+                 {"id": 7, "verdict": true, "reasoning": "Unknown."},
+                 {"id": 0, "verdict": "maybe", "reasoning": "Unsure."}]""", 2);
+
+        assertNull(responses[0]);
+        assertEquals("Off-topic.\nFALSE", responses[1]);
+    }
+
+    private static String answer(List<String> texts, int from, int to) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = from; i < to; i++) {
+            if (i > from) json.append(',');
+            json.append("{\"id\": ").append(i)
+                    .append(", \"verdict\": ").append(!texts.get(i).equals("drugs"))
+                    .append(", \"reasoning\": \"Reasoning for ").append(texts.get(i)).append("\"}");
+        }
+        return json.append(']').toString();
+    }
+
+    private static class StubModel implements BatchLLM {
+
+        private final Function<List<String>, String> batchAnswer;
+        private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+        private final List<String> singles = new CopyOnWriteArrayList<>();
+
+        StubModel(Function<List<String>, String> batchAnswer) {
+            this.batchAnswer = batchAnswer;
+        }
+
+        @Override
+        public String generateBatchTextAnalysis(List<String> texts) {
+            batches.add(texts);
+            return batchAnswer.apply(texts);
+        }
+
+        @Override
+        public String generateTextAnalysis(String text) {
+            singles.add(text);
+            return "Single " + text + "\n" + (text.equals("drugs") ? "FALSE" : "TRUE");
+        }
+    }
+}
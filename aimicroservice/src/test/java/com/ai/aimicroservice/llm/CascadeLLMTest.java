@@ -0,0 +1,94 @@
+package com.ai.aimicroservice.llm;
+
+import com.ai.aimicroservice.verdict.TextVerdict;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CascadeLLMTest {
+
+    private final List<String> calls = new ArrayList<>();
+    private final CascadePolicy policy = new CascadePolicy(false, List.of("unclear", "not sure"));
+
+    @Test
+    void testConfidentAnswerStaysOnTheSmallModel() {
+        CascadeLLM cascade = cascade(Map.of("tomato", "Legal seeds for sale.\nTRUE"), Map.of());
+
+        assertEquals("Legal seeds for sale.\nTRUE", cascade.generateTextAnalysis("tomato"));
+        assertEquals(List.of("small"), calls);
+        assertEquals(0, cascade.stats().get(0).escalations());
+    }
+
+    @Test
+    void testMalformedAnswerIsEscalated() {
+        CascadeLLM cascade = cascade(Map.of("tomato", "Legal seeds for sale."), Map.of("tomato", "Legal seeds.\nTRUE"));
+
+        assertEquals("Legal seeds.\nTRUE", cascade.generateTextAnalysis("tomato"));
+        assertEquals(List.of("small", "large"), calls);
+        assertEquals(1, cascade.stats().get(0).escalations());
+        assertEquals(1.0, cascade.stats().get(0).escalationRate());
+    }
+
+    @Test
+    void testUncertainAnswerIsEscalated() {
+        CascadeLLM cascade = cascade(Map.of("seeds", "It is unclear what kind of seeds these are.\nTRUE"),
+                Map.of("seeds", "The seeds are cannabis seeds.\nFALSE"));
+
+        assertEquals("The seeds are cannabis seeds.\nFALSE", cascade.generateTextAnalysis("seeds"));
+        assertEquals(List.of("small", "large"), calls);
+    }
+
+    @Test
+    void testLastModelHasTheFinalSay() {
+        CascadeLLM cascade = cascade(Map.of("seeds", "Not a verdict"), Map.of("seeds", "Still not a verdict"));
+
+        assertEquals("Still not a verdict", cascade.generateTextAnalysis("seeds"));
+        assertEquals(0, cascade.stats().get(1).escalations());
+    }
+
+    @Test
+    void testPolicy() {
+        CascadePolicy strict = new CascadePolicy(true, List.of("might"));
+
+        assertNull(strict.escalationReason(TextVerdict.of(true, "Tomato seeds, mighty harvest.")));
+        assertEquals(CascadePolicy.UNCERTAIN, strict.escalationReason(TextVerdict.of(true, "It might be a seed sale.")));
+        assertEquals(CascadePolicy.REJECTED, strict.escalationReason(TextVerdict.of(false, "Off-topic.")));
+        assertEquals(CascadePolicy.MALFORMED, strict.escalationReason(TextVerdict.parse("no verdict")));
+        assertNull(policy.escalationReason(TextVerdict.of(false, "Off-topic.")));
+    }
+
+    @Test
+    void testVersionChangesWithModels() {
+        CascadeLLM cascade = cascade(Map.of(), Map.of());
+
+        assertEquals(cascade.version(), cascade(Map.of(), Map.of()).version());
+        assertNotEquals(cascade.version(), new CascadeLLM(List.of(new CascadeLLM.Model("small", model("small", Map.of()))),
+                policy, new SimpleMeterRegistry()).version());
+    }
+
+    private CascadeLLM cascade(Map<String, String> small, Map<String, String> large) {
+        return new CascadeLLM(List.of(
+                new CascadeLLM.Model("small", model("small", small)),
+                new CascadeLLM.Model("large", model("large", large))), policy, new SimpleMeterRegistry());
+    }
+
+    private LLM model(String name, Map<String, String> answers) {
+        return new LLM() {
+            @Override
+            public String generateTextAnalysis(String text) {
+                calls.add(name);
+                return answers.get(text);
+            }
+
+            @Override
+            public String version() {
+                return name;
+            }
+        };
+    }
+}
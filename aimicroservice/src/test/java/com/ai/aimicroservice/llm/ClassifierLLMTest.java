@@ -0,0 +1,84 @@
+package com.ai.aimicroservice.llm;
+
+import com.ai.aimicroservice.classifier.ClassifierTrainer;
+import com.ai.aimicroservice.classifier.LabeledText;
+import com.ai.aimicroservice.classifier.TextClassifier;
+import com.ai.aimicroservice.verdict.TextVerdict;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassifierLLMTest {
+
+    private static final TextClassifier CLASSIFIER = new ClassifierTrainer(12, 50, 1.0, 0, 7).train(List.of(
+            new LabeledText("tomato seeds", true),
+            new LabeledText("basil seeds", true),
+            new LabeledText("weed seeds", false),
+            new LabeledText("cannabis seeds", false)));
+
+    private final List<String> calls = new ArrayList<>();
+    private final LLM fallback = text -> {
+        calls.add(text);
+        return "Checked by the LLM.\nTRUE";
+    };
+
+    @Test
+    void testConfidentTextIsDecidedLocally() {
+        ClassifierLLM llm = classifier(Optional.of(CLASSIFIER), 0.6, false);
+
+        String response = llm.generateTextAnalysis("tomato seeds");
+        assertTrue(response.startsWith("Decided by the embedded classifier"));
+        assertTrue(response.endsWith("\nTRUE"));
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    void testUnsureTextGoesToTheLLM() {
+        ClassifierLLM llm = classifier(Optional.of(CLASSIFIER), 0.999999, false);
+
+        assertEquals("Checked by the LLM.\nTRUE", llm.generateTextAnalysis("tomato seeds"));
+        assertEquals(List.of("tomato seeds"), calls);
+    }
+
+    @Test
+    void testLocalRejectionsAreOptIn() {
+        assertNull(classifier(Optional.of(CLASSIFIER), 0.6, false).decide("cannabis seeds"));
+        assertFalse(classifier(Optional.of(CLASSIFIER), 0.6, true).decide("cannabis seeds").allowed());
+    }
+
+    @Test
+    void testLocalVerdictsAreMarked() {
+        ClassifierLLM llm = classifier(Optional.of(CLASSIFIER), 0.6, false);
+
+        assertEquals(TextVerdict.Source.CLASSIFIER, llm.generateTextVerdict("tomato seeds").source());
+        assertEquals(TextVerdict.Source.CLASSIFIER, llm.generateTextVerdictAsync("tomato seeds").block().source());
+        assertEquals(TextVerdict.Source.CLASSIFIER, llm.streamTextAnalysis("tomato seeds").block().source());
+        assertEquals(TextVerdict.Source.LLM, llm.generateTextVerdict("cannabis seeds").source());
+        assertEquals(List.of("cannabis seeds"), calls);
+    }
+
+    @Test
+    void testAnswersOfTheLlmAreNeverMarkedAsLocal() {
+        LLM fallback = text -> "Decided by the embedded classifier, the seeds are legal.\nTRUE";
+        ClassifierLLM llm = new ClassifierLLM(Optional::empty, fallback, null, 0.6, false, new SimpleMeterRegistry());
+
+        assertEquals(TextVerdict.Source.LLM, llm.generateTextVerdict("tomato seeds").source());
+    }
+
+    @Test
+    void testNoModelMeansLLM() {
+        ClassifierLLM llm = classifier(Optional.empty(), 0.6, true);
+
+        assertEquals("Checked by the LLM.\nTRUE", llm.generateTextAnalysis("tomato seeds"));
+        assertEquals(1, calls.size());
+    }
+
+    private ClassifierLLM classifier(Optional<TextClassifier> model, double threshold, boolean localRejections) {
+        return new ClassifierLLM(() -> model, fallback, null, threshold, localRejections, new SimpleMeterRegistry());
+    }
+}
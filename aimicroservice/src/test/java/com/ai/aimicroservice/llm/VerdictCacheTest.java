@@ -0,0 +1,94 @@
+package com.ai.aimicroservice.llm;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerdictCacheTest {
+
+    private AtomicLong now;
+    private VerdictCache cache;
+
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong();
+        cache = new VerdictCache(2, Duration.ofMinutes(1), now::get);
+    }
+
+    @Test
+    void testKeyIgnoresCaseAndWhitespace() {
+        assertEquals(cache.key("v1", "Tomato  seeds\nfor sale"), cache.key("v1", "  tomato seeds for SALE "));
+    }
+
+    @Test
+    void testKeyChangesWithVersion() {
+        assertNotEquals(cache.key("v1", "Tomato seeds"), cache.key("v2", "Tomato seeds"));
+    }
+
+    @Test
+    void testHitAndMiss() {
+        assertNull(cache.get("a"));
+        cache.put("a", "Legal seeds.\nTRUE");
+
+        assertEquals("Legal seeds.\nTRUE", cache.get("a"));
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.get("a");
+        cache.put("c", "C");
+
+        assertNull(cache.get("b"));
+        assertEquals("A", cache.get("a"));
+        assertEquals("C", cache.get("c"));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    void testExpiresAfterTtl() {
+        cache.put("a", "A");
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void testCachingLLMCallsDelegateOnce() {
+        AtomicLong calls = new AtomicLong();
+        LLM delegate = text -> {
+            calls.incrementAndGet();
+            return "Legal seeds.\nTRUE";
+        };
+        LLM llm = new CachingLLM(delegate, cache);
+
+        llm.generateTextAnalysis("Tomato seeds");
+        llm.generateTextAnalysis("tomato seeds");
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testCachingLLMSkipsMalformedResponses() {
+        AtomicLong calls = new AtomicLong();
+        LLM delegate = text -> {
+            calls.incrementAndGet();
+            return "I cannot decide about these seeds.";
+        };
+        LLM llm = new CachingLLM(delegate, cache);
+
+        llm.generateTextAnalysis("Tomato seeds");
+        llm.generateTextAnalysisAsync("Tomato seeds").block();
+
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.stats().size());
+    }
+}
@@ -0,0 +1,45 @@
+package com.ai.aimicroservice.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PipelineMetrics metrics = new PipelineMetrics(registry);
+
+    @Test
+    void testTimeBlockingStage() {
+        assertEquals("post", metrics.time(PipelineMetrics.POST_LOOKUP, () -> "post"));
+        assertThrows(IllegalStateException.class, () -> metrics.time(PipelineMetrics.POST_LOOKUP, () -> {
+            throw new IllegalStateException("post service down");
+        }));
+
+        assertEquals(1, registry.get("moderation.stage").tag("stage", "post_lookup").tag("outcome", "success").timer().count());
+        assertEquals(1, registry.get("moderation.stage").tag("stage", "post_lookup").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void testTimeReactiveStage() {
+        Mono<String> llm = metrics.time(PipelineMetrics.LLM, Mono.just("TRUE"));
+        assertEquals(0, registry.find("moderation.stage").timers().size(), "Nothing is timed before subscription");
+
+        assertEquals("TRUE", llm.block());
+        assertEquals(1, registry.get("moderation.stage").tag("stage", "llm").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void testVerdictsAndSizes() {
+        metrics.verdict(PipelineMetrics.PASS);
+        metrics.verdict(PipelineMetrics.PASS);
+        metrics.verdict(PipelineMetrics.IMAGE_REJECT);
+        metrics.mediaSize(1_061_500);
+
+        assertEquals(2, registry.get("moderation.verdicts").tag("outcome", "pass").counter().count());
+        assertEquals(1, registry.get("moderation.verdicts").tag("outcome", "image_reject").counter().count());
+        assertEquals(1, registry.get("moderation.media.size").summary().count());
+    }
+}
@@ -0,0 +1,131 @@
+package com.ai.aimicroservice.report;
+
+import com.ai.aimicroservice.entity.Report;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportJournalTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testUnackedEntriesAreReplayed() throws Exception {
+        try (ReportJournal journal = new ReportJournal(directory, 1 << 20, objectMapper)) {
+            assertTrue(journal.open().isEmpty());
+            journal.append(List.of(report("1"), report("2")));
+            journal.append(List.of(report("3")));
+            journal.ack(1);
+        }
+
+        try (ReportJournal journal = new ReportJournal(directory, 1 << 20, objectMapper)) {
+            List<OutboxEntry> replayed = journal.open();
+
+            assertEquals(List.of(2L, 3L), replayed.stream().map(OutboxEntry::seq).toList());
+            assertEquals("2", replayed.get(0).postId());
+            assertEquals("Inappropriate content 2", replayed.get(0).report().getDescription());
+
+            // sequence numbers keep growing after a restart
+            assertEquals(4L, journal.append(List.of(report("4"))).get(0).seq());
+        }
+    }
+
+    @Test
+    void testTornEntryIsTruncated() throws Exception {
+        try (ReportJournal journal = new ReportJournal(directory, 1 << 20, objectMapper)) {
+            journal.open();
+            journal.append(List.of(report("1"), report("2")));
+        }
+        Path segment = segments().get(0);
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 5);
+        }
+
+        try (ReportJournal journal = new ReportJournal(directory, 1 << 20, objectMapper)) {
+            List<OutboxEntry> replayed = journal.open();
+
+            assertEquals(List.of(1L), replayed.stream().map(OutboxEntry::seq).toList());
+            assertEquals(2L, journal.append(List.of(report("2"))).get(0).seq());
+        }
+
+        try (ReportJournal journal = new ReportJournal(directory, 1 << 20, objectMapper)) {
+            assertEquals(List.of(1L, 2L), journal.open().stream().map(OutboxEntry::seq).toList());
+        }
+    }
+
+    @Test
+    void testFailedAppendDoesNotTearLaterEntries() throws Exception {
+        AtomicBoolean failing = new AtomicBoolean();
+        try (ReportJournal journal = new ReportJournal(directory, 1 << 20, objectMapper) {
+            @Override
+            long write(FileChannel channel, ByteBuffer[] frames) throws IOException {
+                if (failing.getAndSet(false)) {
+                    // half a frame reaches the disk before the write fails
+                    channel.write(frames[0].slice(0, frames[0].remaining() / 2));
+                    throw new IOException("No space left on device");
+                }
+                return super.write(channel, frames);
+            }
+        }) {
+            journal.open();
+            journal.append(List.of(report("1")));
+            failing.set(true);
+            assertThrows(IOException.class, () -> journal.append(List.of(report("2"))));
+            journal.append(List.of(report("3")));
+        }
+
+        try (ReportJournal journal = new ReportJournal(directory, 1 << 20, objectMapper)) {
+            List<OutboxEntry> replayed = journal.open();
+
+            assertEquals(List.of(1L, 2L), replayed.stream().map(OutboxEntry::seq).toList());
+            assertEquals(List.of("1", "3"), replayed.stream().map(OutboxEntry::postId).toList());
+        }
+    }
+
+    @Test
+    void testDeliveredSegmentsAreDeleted() throws Exception {
+        try (ReportJournal journal = new ReportJournal(directory, 64, objectMapper)) {
+            journal.open();
+            journal.append(List.of(report("1")));
+            journal.append(List.of(report("2")));
+            journal.append(List.of(report("3")));
+            assertEquals(3, journal.segmentCount());
+
+            journal.ack(2);
+            assertEquals(1, journal.segmentCount());
+            assertEquals(1, segments().size());
+        }
+
+        try (ReportJournal journal = new ReportJournal(directory, 64, objectMapper)) {
+            assertEquals(List.of(3L), journal.open().stream().map(OutboxEntry::seq).toList());
+        }
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static Map.Entry<String, Report> report(String postId) {
+        return Map.entry(postId, new Report("Inappropriate content " + postId, "ai", new Date()));
+    }
+}
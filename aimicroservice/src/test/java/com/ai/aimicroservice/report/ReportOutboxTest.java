@@ -0,0 +1,179 @@
+package com.ai.aimicroservice.report;
+
+import com.ai.aimicroservice.client.ReportServiceClient;
+import com.ai.aimicroservice.entity.Report;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReportOutboxTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ReportServiceClient reportServiceClient = Mockito.mock(ReportServiceClient.class);
+    // posts the report service currently fails for
+    private final Set<String> failing = ConcurrentHashMap.newKeySet();
+    private ReportOutbox outbox;
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (outbox != null) outbox.close();
+    }
+
+    @Test
+    void testConcurrentSubmissionsAreGroupCommitted() throws Exception {
+        CountDownLatch firstAppend = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batches = new CopyOnWriteArrayList<>();
+        ReportJournal journal = new ReportJournal(directory, 1 << 20, objectMapper) {
+            @Override
+            public synchronized List<OutboxEntry> append(List<Map.Entry<String, Report>> reports) throws IOException {
+                batches.add(reports.size());
+                firstAppend.countDown();
+                await(release);
+                return super.append(reports);
+            }
+        };
+        outbox = outbox(journal, Duration.ofMillis(50));
+
+        CompletableFuture<Void> first = outbox.submit("0", report("0"));
+        assertTrue(firstAppend.await(1, TimeUnit.SECONDS));
+        // queued while the writer is busy with the first fsync, journaled together by the next one
+        List<CompletableFuture<Void>> queued = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            queued.add(outbox.submit(String.valueOf(i), report(String.valueOf(i))));
+        }
+        release.countDown();
+
+        first.get(1, TimeUnit.SECONDS);
+        CompletableFuture.allOf(queued.toArray(CompletableFuture[]::new)).get(1, TimeUnit.SECONDS);
+        assertEquals(List.of(1, 10), batches);
+        assertEquals(11, outbox.stats().journaled());
+    }
+
+    @Test
+    void testOnlyThePrefixSentBeforeTheFirstFailureIsAcked() throws Exception {
+        outbox = outbox(journal(), Duration.ofMillis(20));
+        submitAll("1", "2", "3", "4", "5");
+        failing.add("3");
+
+        outbox.drain();
+
+        assertEquals(2, outbox.stats().sent());
+        assertEquals(3, outbox.stats().pending());
+        assertEquals(1, outbox.stats().failures());
+        // the checkpoint covers the prefix only, the rest would be replayed after a restart
+        outbox.close();
+        try (ReportJournal journal = journal()) {
+            assertEquals(List.of("3", "4", "5"), journal.open().stream().map(OutboxEntry::postId).toList());
+        }
+
+        outbox = outbox(journal(), Duration.ofMillis(20));
+        failing.clear();
+        outbox.drain();
+        assertEquals(3, outbox.stats().sent());
+        assertEquals(0, outbox.stats().pending());
+        verify(reportServiceClient, times(2)).postReportAsync(any(), Mockito.eq("3"));
+    }
+
+    @Test
+    void testBackoffIsResetAfterASuccess() throws Exception {
+        outbox = outbox(journal(), Duration.ofMillis(200));
+        submitAll("1");
+        failing.add("1");
+
+        // 200ms, then 400ms after the second failure
+        outbox.drain();
+        Thread.sleep(250);
+        outbox.drain();
+        assertEquals(2, outbox.stats().failures());
+        Thread.sleep(450);
+        failing.clear();
+        outbox.drain();
+        assertEquals(1, outbox.stats().sent());
+
+        // back to the initial backoff, not 800ms
+        submitAll("2");
+        failing.add("2");
+        outbox.drain();
+        assertEquals(3, outbox.stats().failures());
+        outbox.drain();
+        assertEquals(3, outbox.stats().failures());
+        Thread.sleep(250);
+        outbox.drain();
+        assertEquals(4, outbox.stats().failures());
+    }
+
+    @Test
+    void testCloseFailsLateSubmissions() throws Exception {
+        outbox = outbox(journal(), Duration.ofMillis(20));
+        CompletableFuture<Void> submitted = outbox.submit("1", report("1"));
+
+        outbox.close();
+
+        submitted.get(1, TimeUnit.SECONDS);
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> outbox.submit("2", report("2")).get(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertEquals(1, outbox.stats().journaled());
+        outbox = null;
+    }
+
+    private ReportOutbox outbox(ReportJournal journal, Duration initialBackoff) throws IOException {
+        when(reportServiceClient.postReportAsync(any(), anyString())).thenAnswer(invocation ->
+                failing.contains(invocation.<String>getArgument(1))
+                        ? Mono.error(new IllegalStateException("Report service unavailable"))
+                        : Mono.empty());
+        return new ReportOutbox(reportServiceClient, journal, true, 50, 1, initialBackoff, Duration.ofSeconds(10));
+    }
+
+    private ReportJournal journal() {
+        return new ReportJournal(directory, 1 << 20, objectMapper);
+    }
+
+    private void submitAll(String... postIds) throws Exception {
+        for (String postId : postIds) {
+            outbox.submit(postId, report(postId)).get(1, TimeUnit.SECONDS);
+        }
+    }
+
+    private static Report report(String postId) {
+        return new Report("Inappropriate content " + postId, "ai", new Date(0));
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            if (!latch.await(1, TimeUnit.SECONDS)) throw new IOException("not released");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
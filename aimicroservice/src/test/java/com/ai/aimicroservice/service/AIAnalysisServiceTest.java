@@ -0,0 +1,218 @@
+package com.ai.aimicroservice.service;
+
+import com.ai.aimicroservice.client.PostServiceClient;
+import com.ai.aimicroservice.deadline.Deadline;
+import com.ai.aimicroservice.entity.Post;
+import com.ai.aimicroservice.entity.Report;
+import com.ai.aimicroservice.metrics.PipelineMetrics;
+import com.ai.aimicroservice.report.ReportOutbox;
+import com.ai.aimicroservice.llm.VerdictCache;
+import com.ai.aimicroservice.store.VerdictRecord;
+import com.ai.aimicroservice.store.VerdictStore;
+import com.ai.aimicroservice.verdict.ImageVerdict;
+import com.ai.aimicroservice.verdict.TextVerdict;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AIAnalysisServiceTest {
+
+    private static final Post POST = new Post("1", "Heirloom tomato seeds", "tomatoplant.jpg");
+    private static final ImageVerdict PLANT = new ImageVerdict(true, List.of(), "Allowed label: Plant");
+    private static final ImageVerdict NO_LABEL = new ImageVerdict(false, List.of(), "No allowed label");
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private PostServiceClient postServiceClient;
+    private ReportOutbox reportOutbox;
+    private TextAnalysisService textAnalysisService;
+    private ImageAnalysisService imageAnalysisService;
+    private AIAnalysisService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        postServiceClient = Mockito.mock(PostServiceClient.class);
+        reportOutbox = Mockito.mock(ReportOutbox.class);
+        textAnalysisService = Mockito.mock(TextAnalysisService.class);
+        imageAnalysisService = Mockito.mock(ImageAnalysisService.class);
+        when(postServiceClient.getPost(eq("1"), any())).thenReturn(POST);
+        when(postServiceClient.getPostAsync(eq("1"), any())).thenReturn(Mono.just(POST));
+        when(reportOutbox.submit(eq("1"), any())).thenReturn(CompletableFuture.completedFuture(null));
+        VerdictStore disabled = new VerdictStore(new ObjectMapper(), false, Path.of("unused"), 16, 0.5, 0);
+        service = new AIAnalysisService(postServiceClient, reportOutbox, textAnalysisService, imageAnalysisService,
+                executor, PipelineMetrics.noop(), disabled, Duration.ofMillis(500), Duration.ofMillis(500));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testBranchesRunConcurrently() {
+        // each branch only completes once the other one has started
+        CountDownLatch started = new CountDownLatch(2);
+        when(textAnalysisService.analyzeText(POST.getDescription())).thenAnswer(invocation -> {
+            started.countDown();
+            assertTrue(started.await(1, TimeUnit.SECONDS));
+            return TextVerdict.of(true, "Legal seeds.");
+        });
+        when(imageAnalysisService.analyzeImage(eq("tomatoplant.jpg"), any())).thenAnswer(invocation -> {
+            started.countDown();
+            assertTrue(started.await(1, TimeUnit.SECONDS));
+            return PLANT;
+        });
+
+        assertTrue(service.analyze("1", Deadline.after(Duration.ofSeconds(5))));
+        verify(reportOutbox, never()).submit(any(), any());
+    }
+
+    @Test
+    void testRejectedImageIsReported() {
+        when(textAnalysisService.analyzeText(POST.getDescription())).thenReturn(TextVerdict.of(true, "Legal seeds."));
+        when(imageAnalysisService.analyzeImage(eq("tomatoplant.jpg"), any())).thenReturn(NO_LABEL);
+
+        assertFalse(service.analyze("1", Deadline.after(Duration.ofSeconds(5))));
+
+        ArgumentCaptor<Report> report = ArgumentCaptor.forClass(Report.class);
+        verify(reportOutbox).submit(eq("1"), report.capture());
+        assertEquals("ai", report.getValue().getType());
+        assertTrue(report.getValue().getDescription().contains("[]"));
+    }
+
+    @Test
+    void testOnlyTextVerdictsOfTheLlmAreReused(@TempDir Path directory) throws Exception {
+        VerdictStore store = new VerdictStore(new ObjectMapper(), true, directory, 16, 0.5, 0);
+        store.put(new VerdictRecord("1", "tomatoplant.jpg", VerdictCache.hash(POST.getDescription()), null, false,
+                "The text contains inappropriate language (\"seed\").", TextVerdict.Source.LEXICON,
+                List.of(new VerdictRecord.StoredLabel("Plant", 99F, List.of())), "mistral-v1", 0L));
+        AIAnalysisService withHistory = new AIAnalysisService(postServiceClient, reportOutbox, textAnalysisService,
+                imageAnalysisService, executor, PipelineMetrics.noop(), store, Duration.ofMillis(500), Duration.ofMillis(500));
+        when(textAnalysisService.version()).thenReturn("mistral-v1");
+        when(textAnalysisService.analyzeText(POST.getDescription())).thenReturn(TextVerdict.of(true, "Legal seeds."));
+        when(imageAnalysisService.analyzeImage(eq("tomatoplant.jpg"), any())).thenReturn(PLANT);
+        when(imageAnalysisService.filterLabels(any())).thenReturn(true);
+
+        assertTrue(withHistory.analyze("1", Deadline.after(Duration.ofSeconds(5))));
+        verify(textAnalysisService).analyzeText(POST.getDescription());
+        verify(reportOutbox, never()).submit(any(), any());
+        assertEquals(TextVerdict.Source.LLM, store.find("1").orElseThrow().textSource());
+    }
+
+    @Test
+    void testFirstRejectionCancelsTheOtherBranch() throws Exception {
+        CountDownLatch imageStarted = new CountDownLatch(1);
+        AtomicBoolean imageInterrupted = new AtomicBoolean();
+        CountDownLatch imageDone = new CountDownLatch(1);
+        when(imageAnalysisService.analyzeImage(eq("tomatoplant.jpg"), any())).thenAnswer(invocation -> {
+            imageStarted.countDown();
+            try {
+                Thread.sleep(10_000);
+                return PLANT;
+            } catch (InterruptedException e) {
+                imageInterrupted.set(true);
+                throw e;
+            } finally {
+                imageDone.countDown();
+            }
+        });
+        when(textAnalysisService.analyzeText(POST.getDescription())).thenAnswer(invocation -> {
+            assertTrue(imageStarted.await(1, TimeUnit.SECONDS));
+            return TextVerdict.of(false, "The description sells cannabis seeds.");
+        });
+
+        long start = System.nanoTime();
+        assertFalse(service.analyze("1", Deadline.after(Duration.ofSeconds(5))));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+
+        assertTrue(imageDone.await(1, TimeUnit.SECONDS));
+        assertTrue(imageInterrupted.get());
+        ArgumentCaptor<Report> report = ArgumentCaptor.forClass(Report.class);
+        verify(reportOutbox).submit(eq("1"), report.capture());
+        assertEquals("The description sells cannabis seeds.", report.getValue().getDescription());
+    }
+
+    @Test
+    void testSlowBranchTimesOut() {
+        when(textAnalysisService.analyzeText(POST.getDescription())).thenReturn(TextVerdict.of(true, "Legal seeds."));
+        when(imageAnalysisService.analyzeImage(eq("tomatoplant.jpg"), any())).thenAnswer(invocation -> {
+            Thread.sleep(10_000);
+            return PLANT;
+        });
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.analyze("1", Deadline.after(Duration.ofSeconds(5))));
+        assertTrue(e.getCause() instanceof TimeoutException);
+        assertTrue(e.getCause().getMessage().startsWith("image analysis timed out"));
+        verify(reportOutbox, never()).submit(any(), any());
+    }
+
+    @Test
+    void testProviderErrorFailsTheAnalysis() {
+        when(textAnalysisService.analyzeText(POST.getDescription())).thenReturn(TextVerdict.of(true, "Legal seeds."));
+        when(imageAnalysisService.analyzeImage(eq("tomatoplant.jpg"), any()))
+                .thenThrow(new RuntimeException("Failed to analyze image", new IllegalStateException("Rekognition unavailable")));
+
+        // a provider outage must not turn into reports
+        assertThrows(RuntimeException.class, () -> service.analyze("1", Deadline.after(Duration.ofSeconds(5))));
+        verify(reportOutbox, never()).submit(any(), any());
+    }
+
+    @Test
+    void testReactiveAnalysisAllowsThePost() {
+        when(textAnalysisService.analyzeTextAsync(POST.getDescription())).thenReturn(Mono.just(TextVerdict.of(true, "Legal seeds.")));
+        when(imageAnalysisService.analyzeImageAsync(eq("tomatoplant.jpg"), any())).thenReturn(Mono.just(PLANT));
+
+        assertEquals(true, service.analyzeReactive("1", Deadline.after(Duration.ofSeconds(5))).block(Duration.ofSeconds(5)));
+        verify(reportOutbox, never()).submit(any(), any());
+    }
+
+    @Test
+    void testReactiveRejectionCancelsTheOtherBranch() throws Exception {
+        CountDownLatch imageCancelled = new CountDownLatch(1);
+        when(textAnalysisService.analyzeTextAsync(POST.getDescription()))
+                .thenReturn(Mono.just(TextVerdict.of(false, "The description sells cannabis seeds.")).delayElement(Duration.ofMillis(20)));
+        when(imageAnalysisService.analyzeImageAsync(eq("tomatoplant.jpg"), any()))
+                .thenReturn(Mono.<ImageVerdict>never().doOnCancel(imageCancelled::countDown));
+
+        assertEquals(false, service.analyzeReactive("1", Deadline.after(Duration.ofSeconds(5))).block(Duration.ofSeconds(5)));
+        assertTrue(imageCancelled.await(1, TimeUnit.SECONDS));
+        ArgumentCaptor<Report> report = ArgumentCaptor.forClass(Report.class);
+        verify(reportOutbox).submit(eq("1"), report.capture());
+        assertEquals("The description sells cannabis seeds.", report.getValue().getDescription());
+    }
+
+    @Test
+    void testReactiveErrorIsMapped() {
+        when(textAnalysisService.analyzeTextAsync(POST.getDescription())).thenReturn(Mono.just(TextVerdict.of(true, "Legal seeds.")));
+        when(imageAnalysisService.analyzeImageAsync(eq("tomatoplant.jpg"), any()))
+                .thenReturn(Mono.error(new IllegalStateException("Rekognition unavailable")));
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> service.analyzeReactive("1", Deadline.after(Duration.ofSeconds(5))).block(Duration.ofSeconds(5)));
+        assertEquals("Failed to analyze post 1", e.getMessage());
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        verify(reportOutbox, never()).submit(any(), any());
+    }
+}
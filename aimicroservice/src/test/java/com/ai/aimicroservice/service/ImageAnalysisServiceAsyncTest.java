@@ -0,0 +1,82 @@
+package com.ai.aimicroservice.service;
+
+import com.ai.aimicroservice.admission.ProviderGates;
+import com.ai.aimicroservice.archive.MediaArchiver;
+import com.ai.aimicroservice.client.MediaBuffer;
+import com.ai.aimicroservice.client.MediaBufferPool;
+import com.ai.aimicroservice.client.MediaServiceClient;
+import com.ai.aimicroservice.deadline.Deadline;
+import com.ai.aimicroservice.image.ImageLabelIndex;
+import com.ai.aimicroservice.image.ImagePreprocessor;
+import com.ai.aimicroservice.image.LabelPolicy;
+import com.ai.aimicroservice.image.LabelPolicyEngine;
+import com.ai.aimicroservice.image.S3ImageLocator;
+import com.ai.aimicroservice.metrics.PipelineMetrics;
+import com.ai.aimicroservice.verdict.ImageVerdict;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClient;
+import software.amazon.awssdk.services.rekognition.RekognitionClient;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+class ImageAnalysisServiceAsyncTest {
+
+    // stands for the Reactor Netty event loop delivering the media body
+    private final Scheduler eventLoop = Schedulers.newSingle("reactor-http-nio");
+
+    @AfterEach
+    void tearDown() {
+        eventLoop.dispose();
+    }
+
+    @Test
+    void testImageIsPreparedOffTheEventLoop() {
+        AtomicReference<String> preparedOn = new AtomicReference<>();
+        ImagePreprocessor imagePreprocessor = Mockito.mock(ImagePreprocessor.class);
+        when(imagePreprocessor.prepare(any())).thenAnswer(invocation -> {
+            preparedOn.set(Thread.currentThread().getName());
+            return new ImagePreprocessor.PreparedImage(invocation.getArgument(0), null);
+        });
+        MediaBufferPool pool = new MediaBufferPool(1024, 1);
+        MediaBuffer media = pool.acquire(-1);
+        MediaServiceClient mediaServiceClient = Mockito.mock(MediaServiceClient.class);
+        when(mediaServiceClient.getS3ObjectBuffer(anyString(), any())).thenReturn(Mono.just(media).subscribeOn(eventLoop));
+        S3ImageLocator s3ImageLocator = Mockito.mock(S3ImageLocator.class);
+        when(s3ImageLocator.locate(anyString())).thenReturn(Mono.empty());
+        DetectLabelsResponse response = Mockito.mock(DetectLabelsResponse.class);
+        when(response.labels()).thenReturn(List.of());
+        RekognitionAsyncClient rekognitionAsyncClient = Mockito.mock(RekognitionAsyncClient.class);
+        when(rekognitionAsyncClient.detectLabels(any(DetectLabelsRequest.class))).thenReturn(CompletableFuture.completedFuture(response));
+        LabelPolicyEngine labelPolicyEngine = Mockito.mock(LabelPolicyEngine.class);
+        when(labelPolicyEngine.evaluate(any())).thenReturn(new LabelPolicy.Decision(false, "no allowed label"));
+        ImageAnalysisService service = new ImageAnalysisService(mediaServiceClient, Mockito.mock(MediaArchiver.class),
+                Mockito.mock(RekognitionClient.class), rekognitionAsyncClient, new ImageLabelIndex(100, 6), labelPolicyEngine,
+                imagePreprocessor, s3ImageLocator, PipelineMetrics.noop(),
+                new ProviderGates(new MockEnvironment(), new SimpleMeterRegistry()), false);
+
+        ImageVerdict verdict = service.analyzeImageAsync("seeds.jpg", Deadline.after(Duration.ofSeconds(5)))
+                .block(Duration.ofSeconds(5));
+
+        assertFalse(verdict.allowed());
+        assertTrue(preparedOn.get().startsWith("parallel-"), preparedOn.get());
+        // the pooled buffer went back once Rekognition was done
+        assertTrue(pool.acquire(-1).buffer().isDirect());
+    }
+}
@@ -0,0 +1,70 @@
+package com.ai.aimicroservice.service;
+
+import com.ai.aimicroservice.admission.ProviderGates;
+import com.ai.aimicroservice.image.ImagePreprocessor;
+import com.ai.aimicroservice.image.LabelPolicyEngine;
+import com.ai.aimicroservice.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import software.amazon.awssdk.services.rekognition.RekognitionClient;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
+import software.amazon.awssdk.services.rekognition.model.InvalidImageFormatException;
+import software.amazon.awssdk.services.rekognition.model.ThrottlingException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rekognition errors, with a stubbed client: only errors about the image itself end as an image without labels
+ */
+class ImageAnalysisServiceErrorTest {
+
+    private static final byte[] IMAGE = {1, 2, 3};
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void testThrottlingFailsTheAnalysis() {
+        ImageAnalysisService service = service(() -> ThrottlingException.builder().message("Rate exceeded").build());
+
+        // the post must not be rejected as an image without labels, the analysis is retried later
+        assertThrows(ThrottlingException.class, () -> service.detectLabels(IMAGE));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testInvalidImageHasNoLabels() {
+        ImageAnalysisService service = service(() -> InvalidImageFormatException.builder().message("Unsupported format").build());
+
+        assertTrue(service.detectLabels(IMAGE).isEmpty());
+        assertFalse(service.filterLabels(service.detectLabels(IMAGE)));
+    }
+
+    private ImageAnalysisService service(Supplier<RuntimeException> error) {
+        RekognitionClient rekognitionClient = new RekognitionClient() {
+            @Override
+            public DetectLabelsResponse detectLabels(DetectLabelsRequest request) {
+                calls.incrementAndGet();
+                throw error.get();
+            }
+
+            @Override
+            public String serviceName() {
+                return "rekognition";
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        return new ImageAnalysisService(null, null, rekognitionClient, null, null,
+                new LabelPolicyEngine(new DefaultResourceLoader(), "classpath:assets/label-policy.txt"),
+                new ImagePreprocessor(false, 1600, 0.85f, 524288), null, PipelineMetrics.noop(),
+                new ProviderGates(new StandardEnvironment(), new SimpleMeterRegistry()), false);
+    }
+}
@@ -1,6 +1,7 @@
 package com.ai.aimicroservice.service;
 
 import com.ai.aimicroservice.client.MediaServiceClient;
+import com.ai.aimicroservice.image.ImagePreprocessor;
 import com.ai.aimicroservice.utils.Localstack;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -10,13 +11,17 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.rekognition.RekognitionClient;
+import software.amazon.awssdk.services.rekognition.model.Label;
 
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -44,6 +49,12 @@ public class ImageAnalysisServiceTest {
     @Autowired
     private ImageAnalysisService imageAnalysisService;
 
+    @Autowired
+    private ImagePreprocessor imagePreprocessor;
+
+    @Autowired
+    private RekognitionClient rekognitionClient;
+
     @BeforeAll
     static void setup() throws Exception {
         // Start LocalStack and create bucket
@@ -66,12 +77,12 @@ public class ImageAnalysisServiceTest {
         byte[] imageBytes = future.get(); // or future.join()
 
         // Call the service method with raw bytes
-        List<String> labels = imageAnalysisService.detectLabels(imageBytes);
+        List<Label> labels = imageAnalysisService.detectLabels(imageBytes);
 
         assertFalse(labels.isEmpty(), "Labels should not be empty");
 
         boolean hasTomato = labels.stream()
-                .anyMatch(l -> l.split(":")[0].trim().equalsIgnoreCase("Tomato"));
+                .anyMatch(l -> l.name().equalsIgnoreCase("Tomato"));
         assertTrue(hasTomato, "Labels should contain 'Tomato'");
 
         // filter the labels
@@ -86,12 +97,12 @@ public class ImageAnalysisServiceTest {
         byte[] imageBytes = future.get(); // or future.join()
 
         // Call the service method with raw bytes
-        List<String> labels = imageAnalysisService.detectLabels(imageBytes);
+        List<Label> labels = imageAnalysisService.detectLabels(imageBytes);
 
         assertFalse(labels.isEmpty(), "Labels should not be empty");
 
         boolean hasWeed = labels.stream()
-                .anyMatch(l -> l.split(":")[0].trim().equalsIgnoreCase("Weed"));
+                .anyMatch(l -> l.name().equalsIgnoreCase("Weed"));
         assertTrue(hasWeed, "Labels should contain 'Weed'");
 
         // filter the labels
@@ -99,4 +110,20 @@ public class ImageAnalysisServiceTest {
         assertFalse(filterResult);
     }
 
+    @Test
+    void preprocessingKeepsVerdictsTest() throws Exception {
+        for (String name : List.of("tomatoplant.jpg", "weed.png", "weed2.jpg")) {
+            byte[] imageBytes = Localstack.getObjectAsync(BUCKET, name).get();
+            ByteBuffer payload = imagePreprocessor.prepare(ByteBuffer.wrap(imageBytes)).payload();
+
+            // call Rekognition directly, the service would reuse the labels of the first image for the second one
+            List<Label> originalLabels = rekognitionClient.detectLabels(r -> r
+                    .image(i -> i.bytes(SdkBytes.fromByteArray(imageBytes))).maxLabels(10).minConfidence(75F)).labels();
+            List<Label> preprocessedLabels = rekognitionClient.detectLabels(r -> r
+                    .image(i -> i.bytes(SdkBytes.fromByteBuffer(payload))).maxLabels(10).minConfidence(75F)).labels();
+
+            assertEquals(imageAnalysisService.filterLabels(originalLabels), imageAnalysisService.filterLabels(preprocessedLabels),
+                    "Preprocessing should not change the verdict of " + name);
+        }
+    }
 }
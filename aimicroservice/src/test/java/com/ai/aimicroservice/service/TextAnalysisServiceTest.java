@@ -1,11 +1,14 @@
 package com.ai.aimicroservice.service;
 
 import com.ai.aimicroservice.llm.Mistral;
+import com.ai.aimicroservice.metrics.PipelineMetrics;
+import com.ai.aimicroservice.verdict.TextVerdict;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 
 class TextAnalysisServiceTest {
@@ -17,7 +20,8 @@ class TextAnalysisServiceTest {
     void setUp() {
         // mock the LLM dependency
         mistral = Mockito.mock(Mistral.class);
-        textAnalysisService = new TextAnalysisService(mistral);
+        when(mistral.generateTextVerdict(anyString())).thenCallRealMethod();
+        textAnalysisService = new TextAnalysisService(mistral, null, PipelineMetrics.noop(), false, null);
     }
 
     @Test
@@ -29,11 +33,12 @@ class TextAnalysisServiceTest {
         when(mistral.generateTextAnalysis(description)).thenReturn(fakeResponse);
 
         // when
-        String response = textAnalysisService.analyzeText(description);
+        TextVerdict verdict = textAnalysisService.analyzeText(description);
 
         // then
-        assertNotNull(response);
-        assertEquals(fakeResponse, response);
+        assertNotNull(verdict);
+        assertTrue(verdict.allowed());
+        assertEquals("This looks like a legal seed sale.", verdict.reasoning());
     }
 
     @Test
@@ -0,0 +1,51 @@
+package com.ai.aimicroservice.store;
+
+import com.ai.aimicroservice.image.ImageLabelIndex;
+import com.ai.aimicroservice.llm.VerdictCache;
+import com.ai.aimicroservice.service.TextAnalysisService;
+import com.ai.aimicroservice.verdict.TextVerdict;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class CacheWarmerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testOnlyVerdictsOfTheLlmAreWarmed() throws Exception {
+        VerdictStore store = new VerdictStore(new ObjectMapper(), true, directory, 16, 0.5, 0);
+        store.put(record("1", TextVerdict.Source.LLM, "mistral-v1"));
+        store.put(record("2", TextVerdict.Source.LEXICON, "mistral-v1"));
+        store.put(record("3", TextVerdict.Source.NEAR_DUPLICATE, "mistral-v1"));
+        store.put(record("4", null, "mistral-v1"));
+        store.put(record("5", TextVerdict.Source.LLM, "mistral-v0"));
+        VerdictCache verdictCache = new VerdictCache(100, Duration.ofHours(1));
+        TextAnalysisService textAnalysisService = Mockito.mock(TextAnalysisService.class);
+        when(textAnalysisService.version()).thenReturn("mistral-v1");
+
+        new CacheWarmer(store, verdictCache, new ImageLabelIndex(100, 6), textAnalysisService,
+                true, true, true, 100, 100).warmUp();
+
+        assertEquals("reasoning of 1\nFALSE", verdictCache.get(verdictCache.keyOfHash("mistral-v1", "hash-1")));
+        for (String postId : List.of("2", "3", "4", "5")) {
+            assertNull(verdictCache.get(verdictCache.keyOfHash("mistral-v1", "hash-" + postId)), postId);
+        }
+        assertEquals(1, verdictCache.stats().size());
+        store.close();
+    }
+
+    private static VerdictRecord record(String postId, TextVerdict.Source source, String modelVersion) {
+        return new VerdictRecord(postId, postId + ".jpg", "hash-" + postId, null, false, "reasoning of " + postId,
+                source, null, modelVersion, 1_700_000_000_000L);
+    }
+}
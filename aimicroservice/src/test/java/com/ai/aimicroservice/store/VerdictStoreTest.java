@@ -0,0 +1,153 @@
+package com.ai.aimicroservice.store;
+
+import com.ai.aimicroservice.verdict.TextVerdict;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerdictStoreTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRecordsSurviveARestart() throws Exception {
+        VerdictStore store = store(1024);
+        store.put(record("1", true, "v1"));
+        store.put(record("2", false, "v1"));
+        assertEquals(record("1", true, "v1"), store.find("1").orElseThrow());
+        store.close();
+
+        VerdictStore reopened = store(1024);
+        assertEquals(record("1", true, "v1"), reopened.find("1").orElseThrow());
+        assertEquals(record("2", false, "v1"), reopened.find("2").orElseThrow());
+        assertTrue(reopened.find("3").isEmpty());
+        assertEquals(2, reopened.stats().posts());
+        reopened.close();
+    }
+
+    @Test
+    void testLastVerdictOfAPostWins() throws Exception {
+        VerdictStore store = store(1024);
+        store.put(record("1", true, "v1"));
+        store.put(record("1", false, "v2"));
+
+        assertEquals(record("1", false, "v2"), store.find("1").orElseThrow());
+        VerdictStore.Stats stats = store.stats();
+        assertEquals(1, stats.posts());
+        assertTrue(stats.liveBytes() < stats.logBytes() / 2);
+        store.close();
+    }
+
+    @Test
+    void testTornTailIsTruncatedAndTheIndexRebuilt() throws Exception {
+        VerdictStore store = store(1024);
+        store.put(record("1", true, "v1"));
+        store.put(record("2", true, "v1"));
+        store.close();
+
+        Path log = directory.resolve("verdicts.log");
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        VerdictStore reopened = store(1024);
+        assertTrue(reopened.find("1").isPresent());
+        assertTrue(reopened.find("2").isEmpty());
+        reopened.put(record("3", false, "v1"));
+        assertEquals(record("3", false, "v1"), reopened.find("3").orElseThrow());
+        reopened.close();
+    }
+
+    @Test
+    void testCompactionDropsReplacedVerdicts() throws Exception {
+        VerdictStore store = store(1024);
+        for (int i = 0; i < 50; i++) {
+            store.put(record("post-" + (i % 5), i % 2 == 0, "v" + i));
+        }
+        long before = store.stats().logBytes();
+        store.compact();
+
+        VerdictStore.Stats stats = store.stats();
+        assertEquals(5, stats.posts());
+        assertTrue(stats.logBytes() < before / 5);
+        assertEquals(stats.logBytes() - 16, stats.liveBytes());
+        assertEquals(record("post-4", false, "v49"), store.find("post-4").orElseThrow());
+        store.put(record("post-5", true, "v50"));
+        store.close();
+
+        VerdictStore reopened = store(1024);
+        assertEquals(record("post-0", false, "v45"), reopened.find("post-0").orElseThrow());
+        assertEquals(record("post-5", true, "v50"), reopened.find("post-5").orElseThrow());
+        assertEquals(6, reopened.stats().posts());
+        reopened.close();
+    }
+
+    @Test
+    void testVerdictsRecordedDuringACompactionSurvive() throws Exception {
+        VerdictStore store = store(16);
+        for (int i = 0; i < 2000; i++) {
+            store.put(record("post-" + (i % 200), true, "v" + i));
+        }
+        Thread writer = Thread.ofPlatform().start(() -> {
+            for (int i = 0; i < 500; i++) {
+                store.put(record("post-" + (i % 300), false, "w" + i));
+                assertTrue(store.find("post-" + (i % 200)).isPresent());
+            }
+        });
+        store.compact();
+        writer.join();
+
+        for (int i = 0; i < 300; i++) {
+            VerdictRecord expected = record("post-" + i, false, "w" + (i < 200 ? i + 300 : i));
+            assertEquals(expected, store.find("post-" + i).orElseThrow());
+        }
+        store.compact();
+        VerdictStore.Stats stats = store.stats();
+        assertEquals(300, stats.posts());
+        assertEquals(stats.logBytes() - 16, stats.liveBytes());
+        store.close();
+
+        VerdictStore reopened = store(16);
+        assertEquals(record("post-299", false, "w299"), reopened.find("post-299").orElseThrow());
+        assertEquals(300, reopened.stats().posts());
+        reopened.close();
+    }
+
+    @Test
+    void testIndexGrowsAndRecentReturnsTheNewestRecords() throws Exception {
+        VerdictStore store = store(16);
+        for (int i = 0; i < 100; i++) {
+            store.put(record("post-" + i, true, "v1"));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(store.find("post-" + i).isPresent(), "post-" + i);
+        }
+        List<VerdictRecord> recent = store.recent(3);
+        assertEquals(List.of("post-97", "post-98", "post-99"), recent.stream().map(VerdictRecord::postId).toList());
+        store.close();
+        assertTrue(Files.size(directory.resolve("verdicts.idx")) > 16 * 16);
+    }
+
+    private VerdictStore store(int initialCapacity) throws Exception {
+        return new VerdictStore(objectMapper, true, directory, initialCapacity, 0.5, 0);
+    }
+
+    private static VerdictRecord record(String postId, boolean textAllowed, String modelVersion) {
+        return new VerdictRecord(postId, postId + ".jpg", "hash-" + postId, 42L, textAllowed, "reasoning of " + postId, TextVerdict.Source.LLM,
+                List.of(new VerdictRecord.StoredLabel("Plant", 99.5F, List.of()),
+                        new VerdictRecord.StoredLabel("Tomato", 91.0F, List.of("Vegetable", "Food"))),
+                modelVersion, 1_700_000_000_000L);
+    }
+}
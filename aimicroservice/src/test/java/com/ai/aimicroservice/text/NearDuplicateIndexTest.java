@@ -0,0 +1,99 @@
+package com.ai.aimicroservice.text;
+
+import com.ai.aimicroservice.verdict.TextVerdict;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NearDuplicateIndexTest {
+
+    private static final String SPAM = "Premium cannabis seeds, 10 seeds for 25€ only! Discreet shipping worldwide, "
+            + "message me for the full list of strains and bulk prices 🌱";
+    private static final TextVerdict REJECTED = TextVerdict.of(false, "The description sells cannabis seeds.");
+
+    private static final String LISTING = "Heirloom tomato seeds harvested from my own garden this summer, open pollinated "
+            + "and dried for three weeks before packing. Each pack holds about 30 seeds of the Cherokee Purple variety, "
+            + "sowing advice included. Ships in a paper envelope within two days, 3€ per pack or 5 packs for 12€.";
+    private static final TextVerdict ALLOWED = TextVerdict.of(true, "Legal tomato seeds.");
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void testNormalize() {
+        assertEquals("tomates a 0 0 seeds", MinHash.normalize("  Tomatés à 2,50€ — 100 seeds!! 🍅 "));
+        assertEquals("", MinHash.normalize("!!! 🌱"));
+    }
+
+    @Test
+    void testEditedRepostIsNearDuplicate() {
+        NearDuplicateIndex index = index(10, 0.9);
+        index.put(index.signature(SPAM), REJECTED);
+
+        String repost = SPAM.replace("10 seeds for 25€", "12 seeds for 30€").replace("🌱", "🔥🔥");
+        NearDuplicateIndex.Match match = index.find(index.signature(repost)).orElseThrow();
+        assertEquals(REJECTED, match.verdict());
+        assertTrue(match.similarity() >= 0.9);
+        assertEquals(1, index.stats().hits());
+    }
+
+    @Test
+    void testInsertedBannedWordDoesNotInheritAnApproval() {
+        NearDuplicateIndex index = index(10, 0.9);
+        index.put(index.signature(LISTING), ALLOWED);
+
+        String edited = LISTING.replace("Heirloom tomato seeds", "Heirloom tomato and cannabis seeds");
+        assertTrue(index.find(index.signature(edited)).isEmpty());
+        assertTrue(index.find(index.signature(LISTING.replace("open pollinated", "not open pollinated"))).isEmpty());
+        assertTrue(index.find(index.signature(LISTING.replace("3€", "30€"))).isEmpty());
+    }
+
+    @Test
+    void testApprovalIsReusedForTheSameText() {
+        NearDuplicateIndex index = index(10, 0.9);
+        index.put(index.signature(LISTING), ALLOWED);
+
+        String respaced = "  " + LISTING.toUpperCase(Locale.ROOT).replace(" ", "  \n") + " ";
+        assertEquals(ALLOWED, index.find(index.signature(respaced)).orElseThrow().verdict());
+    }
+
+    @Test
+    void testDifferentDescriptionIsNotMatched() {
+        NearDuplicateIndex index = index(10, 0.9);
+        index.put(index.signature(SPAM), REJECTED);
+
+        assertTrue(index.find(index.signature("Heirloom tomato seeds from my own garden, 20 seeds per pack")).isEmpty());
+        assertTrue(index.find(index.signature("🌱🌱")).isEmpty());
+        assertEquals(2, index.stats().misses());
+    }
+
+    @Test
+    void testEvictsOldestDescription() {
+        NearDuplicateIndex index = index(2, 0.9);
+        index.put(index.signature("Tomato seeds from Italy"), TextVerdict.of(true, "Tomato."));
+        index.put(index.signature("Basil seeds from Greece"), TextVerdict.of(true, "Basil."));
+        index.put(index.signature("Pepper seeds from Mexico"), TextVerdict.of(true, "Pepper."));
+
+        assertTrue(index.find(index.signature("Tomato seeds from Italy")).isEmpty());
+        assertEquals("Basil.", index.find(index.signature("Basil seeds from Greece")).orElseThrow().verdict().reasoning());
+        assertEquals("Pepper.", index.find(index.signature("Pepper seeds from Mexico")).orElseThrow().verdict().reasoning());
+        assertEquals(2, index.stats().size());
+        assertEquals(1, index.stats().evictions());
+    }
+
+    @Test
+    void testExpiredDescriptionIsNotMatched() {
+        NearDuplicateIndex index = index(10, 0.9);
+        index.put(index.signature(SPAM), REJECTED);
+
+        clock.addAndGet(Duration.ofHours(2).toNanos());
+        assertTrue(index.find(index.signature(SPAM)).isEmpty());
+    }
+
+    private NearDuplicateIndex index(int maxSize, double minSimilarity) {
+        return new NearDuplicateIndex(maxSize, Duration.ofHours(1), minSimilarity, clock::get);
+    }
+}
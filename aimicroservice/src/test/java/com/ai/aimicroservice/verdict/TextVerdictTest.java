@@ -0,0 +1,57 @@
+package com.ai.aimicroservice.verdict;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextVerdictTest {
+
+    @Test
+    void testParseAllowed() {
+        TextVerdict verdict = TextVerdict.parse("Line one\nLine two\nTRUE");
+
+        assertTrue(verdict.allowed());
+        assertTrue(verdict.wellFormed());
+        assertEquals("Line one Line two", verdict.reasoning());
+    }
+
+    @Test
+    void testParseCrlfAndBlankLines() {
+        TextVerdict verdict = TextVerdict.parse("It insults the buyers.\r\n\r\nIt is a scam.\r\nFALSE\r\n\r\n");
+
+        assertFalse(verdict.allowed());
+        assertTrue(verdict.wellFormed());
+        assertEquals("It insults the buyers. It is a scam.", verdict.reasoning());
+    }
+
+    @Test
+    void testParseDecoratedVerdict() {
+        assertTrue(TextVerdict.parse("Seeds for sale.\n**TRUE**").allowed());
+        assertTrue(TextVerdict.parse("Seeds for sale.\n  true.  ").allowed());
+        assertFalse(TextVerdict.parse("Cannabis seeds.\n\"FALSE\"").allowed());
+    }
+
+    @Test
+    void testParseVerdictOnly() {
+        TextVerdict verdict = TextVerdict.parse("TRUE");
+
+        assertTrue(verdict.allowed());
+        assertEquals("", verdict.reasoning());
+    }
+
+    @Test
+    void testMalformedResponseIsRejected() {
+        TextVerdict verdict = TextVerdict.parse("I cannot decide.\nThe text is TRUE to its topic");
+
+        assertFalse(verdict.allowed());
+        assertFalse(verdict.wellFormed());
+        assertEquals("I cannot decide. The text is TRUE to its topic", verdict.reasoning());
+    }
+
+    @Test
+    void testParseNullAndEmpty() {
+        assertFalse(TextVerdict.parse(null).allowed());
+        assertFalse(TextVerdict.parse("").allowed());
+        assertFalse(TextVerdict.parse("  \n ").wellFormed());
+    }
+}
@@ -0,0 +1,69 @@
+package com.ai.aimicroservice.verdict;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerdictFirstParserTest {
+
+    @Test
+    void testAllowedIsKnownBeforeTheReasoning() {
+        VerdictFirstParser parser = new VerdictFirstParser();
+
+        parser.append("TR");
+        assertFalse(parser.decided());
+        parser.append("UE\nThe text");
+        assertTrue(parser.allowed());
+
+        TextVerdict verdict = parser.result();
+        assertTrue(verdict.allowed());
+        assertEquals("The text", verdict.reasoning());
+    }
+
+    @Test
+    void testRejectedKeepsTheReasoning() {
+        VerdictFirstParser parser = new VerdictFirstParser();
+
+        parser.append("FALSE");
+        assertFalse(parser.decided(), "FALSE could still be the start of a longer word");
+        parser.append("\nThe text sells cannabis seeds.\r\n");
+        parser.append("It is not allowed.");
+        assertTrue(parser.decided());
+        assertFalse(parser.allowed());
+
+        TextVerdict verdict = parser.result();
+        assertFalse(verdict.allowed());
+        assertTrue(verdict.wellFormed());
+        assertEquals("The text sells cannabis seeds. It is not allowed.", verdict.reasoning());
+    }
+
+    @Test
+    void testVerdictAloneAtTheEndOfTheStream() {
+        VerdictFirstParser parser = new VerdictFirstParser();
+        parser.append("**TRUE**");
+
+        assertTrue(parser.result().allowed());
+    }
+
+    @Test
+    void testVerdictLastResponseFallsBackToRegularParsing() {
+        VerdictFirstParser parser = new VerdictFirstParser();
+
+        parser.append("The");
+        assertTrue(parser.decided());
+        assertFalse(parser.allowed());
+        parser.append(" text describes tomato seeds.\nTRUE");
+
+        TextVerdict verdict = parser.result();
+        assertTrue(verdict.allowed());
+        assertEquals("The text describes tomato seeds.", verdict.reasoning());
+    }
+
+    @Test
+    void testEmptyStreamIsRejected() {
+        TextVerdict verdict = new VerdictFirstParser().result();
+
+        assertFalse(verdict.allowed());
+        assertFalse(verdict.wellFormed());
+    }
+}